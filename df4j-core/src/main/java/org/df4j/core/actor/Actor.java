@@ -1,6 +1,10 @@
 package org.df4j.core.actor;
 
-import java.util.TimerTask;
+import org.df4j.protocol.SimpleSubscription;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * {@link Actor} is an {@link AsyncProc} whose {@link Actor#runAction()} method can be executed repeatedly,
@@ -12,11 +16,17 @@ import java.util.TimerTask;
 public abstract class Actor extends AsyncProc {
     public static final int PORTS_ALL  = 0xFFFFFFFF;
     public static final int PORTS_NONE = 0x00000001;
+    /** mask of active wide ports when none of them is active */
+    private static final AtomicInteger[] NO_WIDE_PORTS = new AtomicInteger[0];
 
+    /** null means {@link #runAction()}, to not allocate a method reference per actor */
     private volatile ThrowingRunnable nextAction;
-    private TimerTask task;
-
-    {nextAction(this::runAction);}
+    /** timeout of the current delay, if any */
+    private SimpleSubscription timeout;
+    /** number of the current delay, to recognize stale timeouts */
+    private int delayNum = 0;
+    private int batchSize = 1;
+    private long batchNanos = 0;
 
     public Actor(ActorGroup parent) {
         super(parent);
@@ -35,16 +45,23 @@ public abstract class Actor extends AsyncProc {
         return (TransitionSome) super.getTransition();
     }
 
+    /**
+     * @param ports ports to include
+     * @return scale of the ports with numbers up to {@link #MAX_PORT_NUM}; wide ports are not included
+     */
     public static int makePortScale(Port... ports) {
         int scale = 0;
         for (Port port: ports) {
-            scale |= (1 << port.portNum);
+            if (port.portNum <= MAX_PORT_NUM) {
+                scale |= (1 << port.portNum);
+            }
         }
         return scale;
     }
 
     public ThrowingRunnable getNextAction() {
-        return nextAction;
+        ThrowingRunnable action = nextAction;
+        return action == null ? this::runAction : action;
     }
 
     protected void nextAction(ThrowingRunnable tRunnable, int portScale) {
@@ -53,31 +70,71 @@ public abstract class Actor extends AsyncProc {
     }
 
     protected void nextAction(ThrowingRunnable tRunnable, Port... ports) {
-        nextAction(tRunnable, makePortScale(ports));
+        this.nextAction = tRunnable;
+        getTransition().setActivePorts(ports);
     }
 
     protected void nextAction(ThrowingRunnable tRunnable) {
         nextAction(tRunnable, PORTS_ALL);
     }
 
+    /**
+     * Allows to run several actions in a single executor task.
+     * After an action is completed, next action is run immediately if all its ports are still ready,
+     * until the batch size or the batch time is exhausted.
+     *
+     * @param batchSize max number of actions run in a single executor task. Value 1 means no batching.
+     */
+    public synchronized void setBatchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Limits the time of a batch, see {@link #setBatchSize(int)}.
+     * The last action of a batch can exceed this time.
+     *
+     * @param time max time of a single batch. Value &le; 0 means the time is not limited.
+     * @param unit time unit
+     */
+    public synchronized void setBatchTime(long time, TimeUnit unit) {
+        this.batchNanos = Math.max(0, unit.toNanos(time));
+    }
+
     /**
      * setes delay before subsequent call to next action.
      * Previousely set delay is canceled.
+     * When the delay elapses, this actor is resumed on its executor, and not on the timer's thread.
      *
      * @param delay delay in milliseconds. Value &le; 0 means no delay.
      */
-    protected void delay(long delay) {
-        synchronized(this) {
-            if (state == ActorState.Completed) {
-                return;
-            }
-            if (delay <= 0) {
-                return;
-            }
-            state = ActorState.Suspended;
-            this.task = new MyTimerTask();
+    protected synchronized void delay(long delay) {
+        if (state == ActorState.Completed) {
+            return;
+        }
+        if (delay <= 0) {
+            return;
+        }
+        state = ActorState.Suspended;
+        cancelTimeout();
+        int num = ++delayNum;
+        timeout = getTimerService().schedule(()->getExecutor().execute(()->onTimeout(num)), delay, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void onTimeout(int num) {
+        if (num != delayNum || timeout == null) {
+            return; // the actor was resumed, and maybe delayed again, before this timeout
+        }
+        resume();
+    }
+
+    private void cancelTimeout() {
+        if (timeout != null) {
+            timeout.cancel();
+            timeout = null;
         }
-        getTimer().schedule(task, delay);
     }
 
     /**
@@ -88,6 +145,7 @@ public abstract class Actor extends AsyncProc {
             return;
         }
         state = ActorState.Suspended;
+        cancelTimeout();
     }
 
     /**
@@ -98,24 +156,43 @@ public abstract class Actor extends AsyncProc {
         if (state != ActorState.Suspended) {
             return;
         }
-        if (this.task != null) {
-            this.task.cancel();
-            this.task = null;
-        }
+        cancelTimeout();
         _controlportUnblock();
     }
 
     @Override
     protected void run() {
+        ActorMetrics metrics = getMetrics();
+        long startTime = metrics == null ? 0 : metrics.runStarted();
         try {
-            nextAction.run();
+            int actionsLeft;
+            long deadline;
             synchronized (this) {
-                switch (state) {
-                    case Completed:
-                    case Suspended:
-                    return;
-                default:
-                    _controlportUnblock();
+                actionsLeft = batchSize;
+                deadline = batchNanos == 0 ? 0 : System.nanoTime() + batchNanos;
+            }
+            for (;;) {
+                ThrowingRunnable action = nextAction;
+                if (action == null) {
+                    runAction();
+                } else {
+                    action.run();
+                }
+                if (metrics != null) {
+                    startTime = metrics.actionDone(startTime);
+                }
+                synchronized (this) {
+                    switch (state) {
+                        case Completed:
+                        case Suspended:
+                            return;
+                    }
+                    actionsLeft--;
+                    if (actionsLeft == 0 || !getTransition().canRefire()
+                            || (deadline != 0 && System.nanoTime() - deadline >= 0)) {
+                        _controlportUnblock();
+                        return;
+                    }
                 }
             }
         } catch (Throwable e) {
@@ -123,30 +200,72 @@ public abstract class Actor extends AsyncProc {
         }
     }
 
-    private class MyTimerTask extends TimerTask {
-        @Override
-        public void run() {
-            resume();
-        }
-    }
-
     /**
-     * fires when all active ports are ready
+     * fires when all active ports are ready.
+     * Wide ports (with numbers greater than {@link #MAX_PORT_NUM}) are all active for {@link #PORTS_ALL},
+     * so that only the counter of blocked wide ports is checked.
+     * Otherwise, only the wide ports listed explicitly are active, and their blocked bits are checked
+     * when some wide port is blocked.
      */
     class TransitionSome extends Transition {
-        private int activePortsScale = PORTS_ALL;
+        private volatile int activePortsScale = PORTS_ALL;
+        /** a bit per active wide port, in the layout of the blocked bits of wide ports; null if all wide ports are active */
+        private volatile AtomicInteger[] activeWideScales = null;
 
-        protected void setActivePorts(int scale) {
+        protected void setActivePorts(int scale, AtomicInteger[] activeWideScales) {
             activePortsScale = PORTS_NONE | scale;
+            this.activeWideScales = activeWideScales;
+        }
+
+        protected void setActivePorts(int scale) {
+            setActivePorts(scale, scale == PORTS_ALL ? null : NO_WIDE_PORTS);
         }
 
         protected void setActivePorts(Port... ports) {
-            setActivePorts(makePortScale(ports));
+            AtomicInteger[] activeWideScales = NO_WIDE_PORTS;
+            for (Port port: ports) {
+                if (port.portNum <= MAX_PORT_NUM) {
+                    continue;
+                }
+                int wideNum = port.portNum - MAX_PORT_NUM - 1;
+                int wordNum = wideNum >> 5;
+                if (wordNum >= activeWideScales.length) {
+                    AtomicInteger[] words = Arrays.copyOf(activeWideScales, wordNum + 1);
+                    for (int k = activeWideScales.length; k < words.length; k++) {
+                        words[k] = new AtomicInteger();
+                    }
+                    activeWideScales = words;
+                }
+                AtomicInteger word = activeWideScales[wordNum];
+                word.set(word.get() | (1 << wideNum));
+            }
+            setActivePorts(makePortScale(ports), activeWideScales);
         }
 
         @Override
-        public boolean canFire() {
-            return (blockedPortsScale & activePortsScale) == 0;
+        protected boolean canFire(long scale) {
+            if (((int) scale & activePortsScale) != 0) {
+                return false;
+            }
+            if ((scale >>> 32) == 0) {
+                return true;
+            }
+            AtomicInteger[] activeWideScales = this.activeWideScales;
+            return activeWideScales != null && !isAnyWideBlocked(activeWideScales);
+        }
+
+        @Override
+        protected boolean isActive(int portNum) {
+            if (portNum <= MAX_PORT_NUM) {
+                return (activePortsScale & (1 << portNum)) != 0;
+            }
+            AtomicInteger[] activeWideScales = this.activeWideScales;
+            if (activeWideScales == null) {
+                return true;
+            }
+            int wideNum = portNum - MAX_PORT_NUM - 1;
+            int wordNum = wideNum >> 5;
+            return wordNum < activeWideScales.length && (activeWideScales[wordNum].get() & (1 << wideNum)) != 0;
         }
     }
 
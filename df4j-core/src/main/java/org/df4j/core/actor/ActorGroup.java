@@ -1,17 +1,33 @@
 package org.df4j.core.actor;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
 import java.util.Collections;
-import java.util.IdentityHashMap;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A dataflow graph, consisting of 1 or more {@link AsyncProc}s and, probably, nested {@link ActorGroup}s.
  * Completion signals (errors or success) propagate from the leaf nodes to the root node.
  * Component {@link AsyncProc}s plays the same role as basic blocks in a flow chart.
+ * <p>
+ * Entering and leaving the group takes no locks: the group counts its live children with atomic counters.
+ * The children themselves are not kept, unless child tracking is turned on with {@link #setChildTracking(boolean)}.
+ * <p>
+ * Runtime statistics of the children are collected if turned on with {@link #setMetricsEnabled(boolean)},
+ * and can be published as an MXBean with {@link #registerMBean(String)}.
  */
 public class ActorGroup extends Node<ActorGroup> {
-    protected final Set<Node> children = Collections.newSetFromMap( new IdentityHashMap<>());
-    protected long totalChildCount = 0;
+    /** the children, if child tracking is on; null otherwise */
+    protected volatile Set<Node<?>> children;
+    private final AtomicLong childCount = new AtomicLong();
+    private final AtomicLong totalChildCount = new AtomicLong();
+    /** null if metrics are off */
+    private volatile GroupMetrics metrics;
+    private ObjectName mbeanName;
 
     /**
      *  creates root {@link ActorGroup} graph.
@@ -26,34 +42,153 @@ public class ActorGroup extends Node<ActorGroup> {
         super(parent);
     }
 
+    /**
+     *  creates root {@link ActorGroup} graph with its own executor, e.g. {@link ActorScheduler}.
+     * @param executor executor for the nodes of this graph
+     */
+    public ActorGroup(Executor executor) {
+        setExecutor(executor);
+    }
+
+    /**
+     * Turns on or off keeping references to the children of this group, see {@link #getChildNodes()}.
+     * Only the children which enter after child tracking is turned on are kept.
+     * Off by default, as it costs a hash table entry per child.
+     * Turning it on when it is already on keeps the children tracked so far.
+     * @param on true to turn child tracking on
+     */
+    public synchronized void setChildTracking(boolean on) {
+        if (on == (children != null)) {
+            return;
+        }
+        children = on ? ConcurrentHashMap.newKeySet() : null;
+    }
+
+    public boolean isChildTracking() {
+        return children != null;
+    }
+
+    /**
+     * @return current children of this group, if child tracking is on; empty set otherwise
+     */
+    public Set<Node<?>> getChildNodes() {
+        Set<Node<?>> children = this.children;
+        if (children == null) {
+            return Collections.emptySet();
+        }
+        return Collections.unmodifiableSet(children);
+    }
+
+    /**
+     * @return number of children which entered this graph and have not left it yet
+     */
+    public long getChildCount() {
+        return childCount.get();
+    }
+
+    /**
+     * @return number of children which entered this graph during its lifetime
+     */
+    public long getTotalChildCount() {
+        return totalChildCount.get();
+    }
+
+    /**
+     * Turns on or off collecting metrics by the children of this group, see {@link ActorMetrics}.
+     * Only the {@link AsyncProc}s created in this group after metrics are turned on collect them.
+     * @param on true to turn metrics on
+     */
+    public synchronized void setMetricsEnabled(boolean on) {
+        if (!on) {
+            metrics = null;
+        } else if (metrics == null) {
+            metrics = new GroupMetrics(this);
+        }
+    }
+
+    public boolean isMetricsEnabled() {
+        return metrics != null;
+    }
+
+    /**
+     * @return metrics of this group, or null if metrics are off
+     */
+    public GroupMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Turns metrics on and registers them in the platform MBean server
+     * under the name {@code org.df4j:type=ActorGroup,name=<name>}.
+     * @param name name of this group in the MBean server
+     * @return the name of the registered MBean
+     * @throws JMException if registration failed, e.g. the name is already taken
+     */
+    public synchronized ObjectName registerMBean(String name) throws JMException {
+        if (mbeanName != null) {
+            throw new IllegalStateException("already registered as " + mbeanName);
+        }
+        setMetricsEnabled(true);
+        ObjectName objectName = new ObjectName("org.df4j:type=ActorGroup,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, objectName);
+        mbeanName = objectName;
+        return objectName;
+    }
+
+    /**
+     * Removes the MBean registered with {@link #registerMBean(String)}, if any.
+     * @throws JMException if the MBean server failed
+     */
+    public synchronized void unregisterMBean() throws JMException {
+        if (mbeanName == null) {
+            return;
+        }
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(mbeanName);
+        mbeanName = null;
+    }
+
     /**
      * indicates that a node has added to this graph.
      * @param node the node which entered the group
      * @return unique sequential number of the child within this dataflow,
      *         starting from 0.
      */
-    public long enter(Node node) {
-        synchronized(this) {
-            long res = totalChildCount++;
+    public long enter(Node<?> node) {
+        childCount.incrementAndGet();
+        Set<Node<?>> children = this.children;
+        if (children != null) {
             children.add(node);
-            return res;
         }
+        return totalChildCount.getAndIncrement();
     }
 
     /**
      * indicates that a node has left this graph because of successful completion.
      * when all the nodes has left this graph, it is considered successfully completed itself
      * and leaves the pareng graph, if any.
+     * Repeated calls for the same node are ignored.
      * @param node the node which leaves the group
+     * @param ex the exception, if the node completed exceptionally
      */
-    public synchronized void leave(Node node, Throwable ex) {
-        children.remove(node);
-        if ((children.size() == 0) || (ex != null)) {
-            super.complete(ex);
+    public void leave(Node<?> node, Throwable ex) {
+        if (!node.markLeft()) {
+            return;
+        }
+        Set<Node<?>> children = this.children;
+        if (children != null) {
+            children.remove(node);
+        }
+        long count = childCount.decrementAndGet();
+        if (count == 0 || ex != null) {
+            synchronized (this) {
+                if (!completion.isCompleted()) {
+                    super.complete(ex);
+                }
+            }
         }
     }
 
-    public void leave(Node node) {
+    public void leave(Node<?> node) {
         leave(node, null);
     }
 
@@ -78,7 +213,7 @@ public class ActorGroup extends Node<ActorGroup> {
             sb.append("completed with exception: ");
             sb.append(completion.getCompletionException().toString());
         }
-        sb.append("; child node count: "+children.size());
+        sb.append("; child node count: "+childCount.get());
         return sb.toString();
     }
 }
@@ -0,0 +1,31 @@
+package org.df4j.core.actor;
+
+import java.util.List;
+
+/**
+ * Management interface of an {@link ActorGroup}, registered with {@link ActorGroup#registerMBean(String)}.
+ * Times are in nanoseconds.
+ */
+public interface ActorGroupMXBean {
+    long getChildCount();
+
+    long getTotalChildCount();
+
+    /**
+     * @return number of live children which collect metrics
+     */
+    int getActorCount();
+
+    long getFireCount();
+
+    long getActionCount();
+
+    long getRunNanos();
+
+    long getWaitNanos();
+
+    /**
+     * @return metrics of live children, the most busy first
+     */
+    List<ActorMetrics> getActors();
+}
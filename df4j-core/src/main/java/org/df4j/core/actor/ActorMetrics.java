@@ -0,0 +1,160 @@
+package org.df4j.core.actor;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Runtime statistics of a single {@link AsyncProc}.
+ * Collected only when turned on with {@link AsyncProc#enableMetrics()} or {@link ActorGroup#setMetricsEnabled(boolean)};
+ * actors without metrics pay a null check per firing and per port state change.
+ * <p>
+ * Firings and actions are recorded by the thread which holds the control token, one at a time.
+ * Port blocked times are recorded by the threads which change port states.
+ * When state changes of the same port race, a blocked interval can be cut or lost, so these times are approximate.
+ * Port 0 is the control port: it is blocked while the actor is running, suspended, or not yet started.
+ */
+public class ActorMetrics {
+    final AsyncProc actor;
+    private final GroupMetrics groupMetrics;
+    private volatile long fireCount = 0;
+    private volatile long actionCount = 0;
+    private volatile long runNanos = 0;
+    private volatile long waitNanos = 0;
+    /** time of the last firing; written by {@link #fired()}, read by {@link #runStarted()} after the executor handoff */
+    private long fireTime;
+    /** per port: [2*portNum] the time the port was blocked, or 0 if it is ready; [2*portNum+1] total blocked time */
+    private volatile AtomicLongArray portTimes;
+
+    ActorMetrics(AsyncProc actor, GroupMetrics groupMetrics, int portCount) {
+        this.actor = actor;
+        this.groupMetrics = groupMetrics;
+        portTimes = new AtomicLongArray(2 * Math.max(portCount, 4));
+        if (groupMetrics != null) {
+            groupMetrics.add(this);
+        }
+    }
+
+    void fired() {
+        fireTime = System.nanoTime();
+        fireCount++;
+        if (groupMetrics != null) {
+            groupMetrics.fired();
+        }
+    }
+
+    /**
+     * @return start time of the first action
+     */
+    long runStarted() {
+        long now = System.nanoTime();
+        long waited = now - fireTime;
+        waitNanos += waited;
+        if (groupMetrics != null) {
+            groupMetrics.waited(waited);
+        }
+        return now;
+    }
+
+    /**
+     * @param startTime start time of the action
+     * @return start time of the next action
+     */
+    long actionDone(long startTime) {
+        long now = System.nanoTime();
+        long elapsed = now - startTime;
+        runNanos += elapsed;
+        actionCount++;
+        if (groupMetrics != null) {
+            groupMetrics.actionDone(elapsed);
+        }
+        return now;
+    }
+
+    void portBlocked(int portNum) {
+        portTimes(portNum).compareAndSet(2 * portNum, 0, System.nanoTime());
+    }
+
+    void portUnblocked(int portNum) {
+        AtomicLongArray times = portTimes(portNum);
+        long since = times.getAndSet(2 * portNum, 0);
+        if (since != 0) {
+            times.addAndGet(2 * portNum + 1, System.nanoTime() - since);
+        }
+    }
+
+    void close() {
+        if (groupMetrics != null) {
+            groupMetrics.remove(this);
+        }
+    }
+
+    private AtomicLongArray portTimes(int portNum) {
+        AtomicLongArray times = portTimes;
+        if (2 * portNum < times.length()) {
+            return times;
+        }
+        synchronized (this) {
+            times = portTimes;
+            if (2 * portNum >= times.length()) {
+                AtomicLongArray newTimes = new AtomicLongArray(Math.max(2 * portNum + 2, 2 * times.length()));
+                for (int k = 0; k < times.length(); k++) {
+                    newTimes.set(k, times.get(k));
+                }
+                portTimes = times = newTimes;
+            }
+            return times;
+        }
+    }
+
+    public String getActorName() {
+        return actor.getClass().getName() + "@" + Integer.toHexString(System.identityHashCode(actor));
+    }
+
+    /**
+     * @return number of times the actor was submitted for execution
+     */
+    public long getFireCount() {
+        return fireCount;
+    }
+
+    /**
+     * @return number of actions run; can exceed the number of firings when actions are batched
+     */
+    public long getActionCount() {
+        return actionCount;
+    }
+
+    /**
+     * @return total time spent in actions
+     */
+    public long getRunNanos() {
+        return runNanos;
+    }
+
+    /**
+     * @return total time between firing and the start of execution, that is, time spent in executor queues
+     */
+    public long getWaitNanos() {
+        return waitNanos;
+    }
+
+    /**
+     * @return for each port, the total time it was blocked, including the current blocked interval
+     */
+    public long[] getPortBlockedNanos() {
+        AtomicLongArray times = portTimes;
+        int portCount = actor.getTransition().getPortCount();
+        long now = System.nanoTime();
+        long[] res = new long[portCount];
+        for (int portNum = 0; portNum < portCount && 2 * portNum < times.length(); portNum++) {
+            long since = times.get(2 * portNum);
+            res[portNum] = times.get(2 * portNum + 1) + (since == 0 ? 0 : now - since);
+        }
+        return res;
+    }
+
+    @Override
+    public String toString() {
+        return getActorName() + "[fires = " + fireCount + ", actions = " + actionCount
+                + ", run = " + runNanos / 1000 + "us, wait = " + waitNanos / 1000 + "us]";
+    }
+}
@@ -0,0 +1,270 @@
+package org.df4j.core.actor;
+
+import org.df4j.core.util.LoggerFactory;
+import org.slf4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Work-stealing executor dedicated to actors.
+ * Install it with {@link ActorGroup#setExecutor(Executor)} to isolate an actor graph
+ * from other users of {@link java.util.concurrent.ForkJoinPool#commonPool()}.
+ * <p>
+ * Each worker has its own run queue.
+ * A task submitted by a worker (usually, an actor unblocked by another actor running on that worker)
+ * is put into the worker's LIFO slot and is run next by the same worker, while its data is still in the cache.
+ * The task which was in the slot before goes to the tail of the worker's FIFO queue.
+ * Idle workers steal tasks from the heads of FIFO queues of other workers.
+ * Tasks submitted by other threads go to the shared submission queue.
+ */
+public class ActorScheduler implements Executor {
+    /** max number of tasks run from the LIFO slot in a row, to let tasks in the FIFO queue run */
+    static final int MAX_LIFO_RUNS = 16;
+    /** how often a worker looks at the submission queue first, to let submitted tasks run */
+    static final int SUBMISSION_CHECK_INTERVAL = 61;
+
+    protected final Logger logger = LoggerFactory.getLogger(this);
+    private final Worker[] workers;
+    private final ConcurrentLinkedQueue<Runnable> submissions = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Worker> idleWorkers = new ConcurrentLinkedQueue<>();
+    private final LongAdder taskCount = new LongAdder();
+    private final LongAdder stealCount = new LongAdder();
+    private final LongAdder parkCount = new LongAdder();
+    private volatile boolean shutdown = false;
+
+    /**
+     * @param parallelism number of worker threads
+     * @param name prefix of the worker thread names
+     */
+    public ActorScheduler(int parallelism, String name) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException();
+        }
+        workers = new Worker[parallelism];
+        for (int k = 0; k < parallelism; k++) {
+            workers[k] = new Worker(name + "-" + k);
+        }
+        for (Worker worker: workers) {
+            worker.start();
+        }
+    }
+
+    public ActorScheduler(int parallelism) {
+        this(parallelism, "df4j-scheduler");
+    }
+
+    public ActorScheduler() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @return the scheduler which owns the current thread, or null if the current thread is not a worker
+     */
+    public static ActorScheduler currentScheduler() {
+        Thread currentThread = Thread.currentThread();
+        if (currentThread instanceof Worker) {
+            return ((Worker) currentThread).getScheduler();
+        }
+        return null;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        if (shutdown) {
+            throw new RejectedExecutionException();
+        }
+        Thread currentThread = Thread.currentThread();
+        if (currentThread instanceof Worker && ((Worker) currentThread).getScheduler() == this) {
+            if (!((Worker) currentThread).push(task)) {
+                return; // nothing to steal, the task will be run by the current worker
+            }
+        } else {
+            submissions.add(task);
+        }
+        Worker idleWorker = idleWorkers.poll();
+        if (idleWorker != null) {
+            LockSupport.unpark(idleWorker);
+        }
+    }
+
+    /**
+     * Stops all the workers after they finish their current tasks.
+     * Tasks remaining in queues are not run.
+     */
+    public void shutdown() {
+        shutdown = true;
+        for (Worker worker: workers) {
+            LockSupport.unpark(worker);
+        }
+    }
+
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    public int getParallelism() {
+        return workers.length;
+    }
+
+    /**
+     * @return number of tasks run so far
+     */
+    public long getTaskCount() {
+        return taskCount.sum();
+    }
+
+    /**
+     * @return number of tasks taken by a worker from another worker's queue
+     */
+    public long getStealCount() {
+        return stealCount.sum();
+    }
+
+    /**
+     * @return number of times workers were parked for the lack of tasks
+     */
+    public long getParkCount() {
+        return parkCount.sum();
+    }
+
+    /**
+     * @return approximate number of tasks waiting in queues
+     */
+    public int getQueuedTaskCount() {
+        int res = submissions.size();
+        for (Worker worker: workers) {
+            res += worker.size();
+        }
+        return res;
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + "[parallelism = " + workers.length + ", tasks = " + getTaskCount()
+                + ", steals = " + getStealCount() + ", parks = " + getParkCount() + "]";
+    }
+
+    private Runnable steal(Worker thief) {
+        int workerCount = workers.length;
+        int start = ThreadLocalRandom.current().nextInt(workerCount);
+        for (int k = 0; k < workerCount; k++) {
+            Worker victim = workers[(start + k) % workerCount];
+            if (victim == thief) {
+                continue;
+            }
+            Runnable task = victim.pollFifo();
+            if (task != null) {
+                stealCount.increment();
+                return task;
+            }
+        }
+        return null;
+    }
+
+    class Worker extends Thread {
+        /** the most recently pushed task; guarded by this */
+        private Runnable lifoSlot;
+        /** guarded by this */
+        private final ArrayDeque<Runnable> fifoQueue = new ArrayDeque<>();
+        private int lifoRuns = 0;
+        private int tick = 0;
+
+        Worker(String name) {
+            super(name);
+            setDaemon(true);
+        }
+
+        ActorScheduler getScheduler() {
+            return ActorScheduler.this;
+        }
+
+        /**
+         * @param task task to run next
+         * @return true if a previously pushed task was moved to the FIFO queue and can be stolen
+         */
+        synchronized boolean push(Runnable task) {
+            Runnable prev = lifoSlot;
+            lifoSlot = task;
+            if (prev == null) {
+                return false;
+            }
+            fifoQueue.addLast(prev);
+            return true;
+        }
+
+        synchronized Runnable pollFifo() {
+            return fifoQueue.pollFirst();
+        }
+
+        synchronized int size() {
+            return fifoQueue.size() + (lifoSlot == null ? 0 : 1);
+        }
+
+        private synchronized Runnable pollLocal() {
+            Runnable task = lifoSlot;
+            if (task != null && (lifoRuns < MAX_LIFO_RUNS || fifoQueue.isEmpty())) {
+                lifoSlot = null;
+                lifoRuns++;
+                return task;
+            }
+            lifoRuns = 0;
+            return fifoQueue.pollFirst();
+        }
+
+        private Runnable findTask() {
+            Runnable task;
+            if (++tick % SUBMISSION_CHECK_INTERVAL == 0) {
+                task = submissions.poll();
+                if (task != null) {
+                    return task;
+                }
+            }
+            task = pollLocal();
+            if (task != null) {
+                return task;
+            }
+            task = submissions.poll();
+            if (task != null) {
+                return task;
+            }
+            return steal(this);
+        }
+
+        @Override
+        public void run() {
+            while (!shutdown) {
+                Runnable task = findTask();
+                if (task == null) {
+                    idleWorkers.add(this);
+                    // recheck, as a task could be submitted before this worker became visible as idle
+                    task = findTask();
+                    if (task == null) {
+                        if (shutdown) {
+                            break;
+                        }
+                        parkCount.increment();
+                        LockSupport.park(this);
+                        idleWorkers.remove(this);
+                        continue;
+                    }
+                    idleWorkers.remove(this);
+                }
+                try {
+                    task.run();
+                } catch (Throwable e) {
+                    logger.error("task failed", e);
+                }
+                taskCount.increment();
+            }
+        }
+    }
+}
@@ -12,6 +12,10 @@ package org.df4j.core.actor;
 import org.df4j.core.connector.Completion;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 
 /**
  * {@link AsyncProc} is the base class of all active components of {@link ActorGroup} graph.
@@ -28,22 +32,95 @@ import java.util.ArrayList;
  * It becomes {@link ActorState#Completed} when its method {@link AsyncProc#runAction()} completes, normally or exceptionally.
  */
 public abstract class AsyncProc extends Node<AsyncProc> implements TransitionHolder {
+    /** ports with greater numbers are wide ports, see {@link Transition} */
     public static final int MAX_PORT_NUM = 31;
+    /** the control port is always registered first */
+    protected static final int CONTROL_PORT_NUM = 0;
     private static final boolean checkingMode = true; // todo false
 
     protected ActorState state = ActorState.Created;
 
     /** is not encountered as a parent's child */
     private boolean daemon;
+    /** max depth of inline firing; 0 means inline firing is off */
+    private volatile int inlineDepth = 0;
+    /** {@link #run()} as a task for the executor, created once to not allocate on each firing */
+    private Runnable runTask;
+    /** the same with inline firing, see {@link Trampoline#runSubmitted(AsyncProc)} */
+    private Runnable submittedTask;
+    /** number of firings, wraps around; changed only by the thread which holds the control token */
+    private volatile int fireCount = 0;
+    /** runtime statistics, null unless turned on */
+    private volatile ActorMetrics metrics;
     private final Transition transition = createTransition();
-    private ControlPort controlport = new ControlPort(this);
+    {
+        transition.registerPort(null, false); // control port, kept as a bit only
+    }
 
     protected AsyncProc(ActorGroup actorGroup) {
         super(actorGroup);
+        if (actorGroup.isMetricsEnabled()) {
+            enableMetrics();
+        }
     }
 
+    /**
+     * creates {@link AsyncProc} in its own {@link ActorGroup}, which is created only if requested by {@link #getActorGroup()}.
+     */
     public AsyncProc() {
-        this(new ActorGroup());
+    }
+
+    /**
+     * @return the parent group. If this {@link AsyncProc} was created without a group, creates one.
+     */
+    @Override
+    public ActorGroup getActorGroup() {
+        ActorGroup group = actorGroup;
+        if (group != null) {
+            return group;
+        }
+        synchronized (this) {
+            group = actorGroup;
+            if (group != null) {
+                return group;
+            }
+            group = new ActorGroup();
+            group.enter(this);
+            actorGroup = group;
+            if (daemon) {
+                group.leave(this);
+            }
+        }
+        // if this node has completed before the group was set, it has not left the group
+        if (completion.isCompleted()) {
+            group.leave(this, completion.getCompletionException());
+        }
+        return group;
+    }
+
+    /**
+     * Turns on collecting runtime statistics by this {@link AsyncProc}.
+     * The statistics are added to the metrics of the parent group, if that group has metrics turned on.
+     * @return the metrics
+     */
+    public synchronized ActorMetrics enableMetrics() {
+        ActorMetrics res = metrics;
+        if (res != null) {
+            return res;
+        }
+        ActorGroup group = actorGroup;
+        GroupMetrics groupMetrics = group == null ? null : group.getMetrics();
+        res = new ActorMetrics(this, groupMetrics, transition.getPortCount());
+        transition.markBlockedPorts(res);
+        metrics = res;
+        return res;
+    }
+
+    /**
+     * @return runtime statistics of this {@link AsyncProc}, or null if they are not collected
+     */
+    public ActorMetrics getMetrics() {
+        return metrics;
     }
 
     protected Transition createTransition() {
@@ -54,6 +131,27 @@ public abstract class AsyncProc extends Node<AsyncProc> implements TransitionHol
         return state;
     }
 
+    /**
+     * @return number of times this {@link AsyncProc} was fired, modulo 2<sup>32</sup>; changes when it makes progress
+     */
+    public int getFireCount() {
+        return fireCount;
+    }
+
+    /**
+     * @return the ports of this {@link AsyncProc} in the order of registration, not including the control port
+     */
+    public List<Port> getPorts() {
+        return transition.getPorts(false);
+    }
+
+    /**
+     * @return the ports which are blocked at the moment, not including the control port
+     */
+    public List<Port> getBlockedPorts() {
+        return transition.getPorts(true);
+    }
+
     public synchronized void setDaemon(boolean daemon) {
         if (this.daemon) {
             return;
@@ -66,6 +164,31 @@ public abstract class AsyncProc extends Node<AsyncProc> implements TransitionHol
         return daemon;
     }
 
+    /**
+     * Turns on inline firing: when the last blocked port is unblocked by a thread which can run this {@link AsyncProc},
+     * it runs immediately on that thread instead of being submitted to the executor.
+     * Nested inline runs on the same thread are limited to avoid stack overflow;
+     * when the limit is reached, the executor is used.
+     * Only {@link java.util.concurrent.ForkJoinPool} and {@link ActorScheduler} executors are supported,
+     * as their threads can be recognized; with other executors, this actor is always submitted.
+     * If the port is unblocked under its own lock, the run is deferred until the lock is released.
+     *
+     * @param maxDepth max number of nested inline runs on a thread. Value 0 turns inline firing off.
+     */
+    public void setInlineFiring(int maxDepth) {
+        if (maxDepth < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.inlineDepth = maxDepth;
+    }
+
+    /**
+     * @return max number of nested inline runs, 0 if inline firing is off
+     */
+    public int getInlineFiring() {
+        return inlineDepth;
+    }
+
     @Override
     public Transition getTransition() {
         return transition;
@@ -97,6 +220,10 @@ public abstract class AsyncProc extends Node<AsyncProc> implements TransitionHol
             }
             state = ActorState.Completed;
         }
+        ActorMetrics metrics = this.metrics;
+        if (metrics != null) {
+            metrics.close();
+        }
         super.complete(ex);
     }
 
@@ -110,20 +237,46 @@ public abstract class AsyncProc extends Node<AsyncProc> implements TransitionHol
      * Safe way is to submit this instance as a Runnable to an Executor.
      * Fast way is to invoke it directly, but make sure the chain of
      * direct invocations is short to avoid stack overflow.
+     * The fast way with bounded depth is turned on with {@link #setInlineFiring(int)}.
      */
     protected void fire() {
+        ActorMetrics metrics = this.metrics;
+        if (metrics != null) {
+            metrics.fired();
+        }
         _controlportBlock();
-        getExecutor().execute(this::run);
+        int maxDepth = inlineDepth;
+        if (maxDepth == 0) {
+            Runnable task = runTask;
+            if (task == null) {
+                runTask = task = this::run; // racy, but all the instances are equivalent
+            }
+            getExecutor().execute(task);
+        } else {
+            Trampoline.fire(this, maxDepth);
+        }
+    }
+
+    /**
+     * @return task to submit to the executor when inline firing is on
+     */
+    Runnable submittedTask() {
+        Runnable task = submittedTask;
+        if (task == null) {
+            submittedTask = task = ()->Trampoline.runSubmitted(this); // racy, but all the instances are equivalent
+        }
+        return task;
     }
 
     protected void _controlportUnblock() {
         state = ActorState.Blocked;
-        controlport.unblock();
+        transition.unblock(CONTROL_PORT_NUM);
     }
 
     protected void _controlportBlock() {
+        fireCount++;
         state = ActorState.Running;
-        controlport.block();
+        transition.blockPort(CONTROL_PORT_NUM);
     }
 
     /**
@@ -131,8 +284,13 @@ public abstract class AsyncProc extends Node<AsyncProc> implements TransitionHol
      * Overwrite only to declare different kind of node.
      */
     protected void run() {
+        ActorMetrics metrics = this.metrics;
+        long startTime = metrics == null ? 0 : metrics.runStarted();
         try {
             runAction();
+            if (metrics != null) {
+                metrics.actionDone(startTime);
+            }
             complete();
         } catch (Throwable e) {
             complete(e);
@@ -156,9 +314,9 @@ public abstract class AsyncProc extends Node<AsyncProc> implements TransitionHol
      * Has 2 states: ready or blocked.
      * When all ports become unblocked, method {@link AsyncProc#fire()} is called.
      * This is clear analogue to the firing of a Petri Net transition.
+     * The state of the port is kept as a bit in the transition's scale, so reading and changing it takes no locks.
      */
     public static class Port {
-        private boolean ready;
         protected final Transition transition;
         protected final int portNum;
 
@@ -169,16 +327,29 @@ public abstract class AsyncProc extends Node<AsyncProc> implements TransitionHol
          */
         public Port(TransitionHolder parentHolder, boolean ready) {
             this.transition = parentHolder.getTransition();
-            this.ready = ready;
-            portNum = transition.registerPort(this);
+            portNum = transition.registerPort(this, ready);
         }
 
         public Port(TransitionHolder transition) {
             this(transition, false);
         }
 
-        public synchronized boolean isReady() {
-            return ready;
+        public boolean isReady() {
+            return !transition.isBlocked(portNum);
+        }
+
+        /**
+         * @return false if the parent actor does not wait for this port at the moment, so that it cannot be held back by it
+         */
+        public boolean isActive() {
+            return transition.isActive(portNum);
+        }
+
+        /**
+         * @return number of this port within its transition
+         */
+        public int getPortNum() {
+            return portNum;
         }
 
         /**
@@ -194,7 +365,7 @@ public abstract class AsyncProc extends Node<AsyncProc> implements TransitionHol
 
         @Override
         public String toString() {
-            return super.toString() + (ready?": ready":": blocked");
+            return super.toString() + (isReady()?": ready":": blocked");
         }
 
         public AsyncProc getParentActor() {
@@ -202,52 +373,286 @@ public abstract class AsyncProc extends Node<AsyncProc> implements TransitionHol
         }
     }
 
-    private static class ControlPort extends Port {
-        ControlPort(AsyncProc parent) {
-            super(parent);
-        }
-    }
+    private static final AtomicLongFieldUpdater<Transition> blockedPortsScaleUpdater =
+            AtomicLongFieldUpdater.newUpdater(Transition.class, "blockedPortsScale");
+    /** one blocked wide port in the upper half of {@link Transition#blockedPortsScale} */
+    private static final long WIDE_PORT_UNIT = 1L << 32;
 
     /**
      * Analogue of Petri Net's transition.
      * Ports are like places, but can belong to only one transition.
      * Tokens are tokens :).
      * fires when all ports are ready
+     *
+     * Port states are changed with compare-and-set on {@link #blockedPortsScale}, no monitors are taken.
+     * The same compare-and-set which makes the transition ready to fire also blocks the control port,
+     * so concurrent unblocking of several ports fires the transition exactly once.
+     *
+     * Ports with numbers up to {@link #MAX_PORT_NUM} have a bit each in the lower half of {@link #blockedPortsScale}.
+     * Ports with greater numbers (wide ports) have a bit each in separate words,
+     * and only their number is kept in the upper half of {@link #blockedPortsScale},
+     * so checking that all ports are ready is still a single read.
+     * Small transitions never touch the wide port words.
      */
     class Transition {
-        private ArrayList<Port> ports = new ArrayList<>(4);
-        protected int blockedPortsScale = 0;
+        /** registered ports, allocated when the first port object is registered; changed under lock of this */
+        private volatile Port[] ports;
+        private volatile int portCount = 0;
+        /**
+         * lower 32 bits: a bit per blocked port with number up to {@link #MAX_PORT_NUM};
+         * upper 32 bits: number of blocked wide ports.
+         */
+        protected volatile long blockedPortsScale = 0;
+        /** a bit per blocked wide port, 32 ports per word; allocated when the first wide port is registered */
+        private volatile AtomicInteger[] wideScales;
+        protected volatile int widePortCount = 0;
+
+        /**
+         * @param port the port, or null for the control port, which is kept as a bit only
+         * @param ready initial state of the port
+         * @return number of the port
+         */
+        public synchronized int registerPort(Port port, boolean ready) {
+            final int portNum = portCount++;
+            if (port != null) {
+                if (ports == null) {
+                    ports = new Port[4];
+                } else if (portNum >= ports.length) {
+                    ports = Arrays.copyOf(ports, Math.max(portNum + 1, ports.length * 2));
+                }
+                ports[portNum] = port;
+            }
+            if (portNum > MAX_PORT_NUM) {
+                registerWidePort(portNum, ready);
+            } else if (!ready) {
+                setBlocked(1L << portNum);
+            }
+            if (!ready) {
+                ActorMetrics metrics = getMetrics();
+                if (metrics != null) {
+                    metrics.portBlocked(portNum);
+                }
+            }
+            return portNum;
+        }
 
-        private void setBlocked(int portNum) {
-            blockedPortsScale |= (1<<portNum);
+        synchronized int getPortCount() {
+            return portCount;
         }
 
-        private int setUnBlocked(int portNum) {
-            return blockedPortsScale &= ~(1<<portNum);
+        /**
+         * @param portNum number of a registered port
+         * @return the port object, or null for the control port
+         */
+        Port getPort(int portNum) {
+            Port[] ports = this.ports;
+            return ports == null ? null : ports[portNum];
         }
 
-        public synchronized int registerPort(Port port) {
-            final int portNum = ports.size();
-            if (portNum > MAX_PORT_NUM) {
-                throw new IllegalStateException("too many ports");
+        /**
+         * Finds a ready port with bit-scan over the port scales, without locks.
+         * @param from the least port number to look at
+         * @return number of the first ready port with number not less than {@code from}, or -1 if there is none
+         */
+        int nextReadyPort(int from) {
+            int count = portCount;
+            if (from <= MAX_PORT_NUM) {
+                long ready = ~blockedPortsScale & (-1L << from) & 0xFFFFFFFFL;
+                if (count <= MAX_PORT_NUM) {
+                    ready &= (1L << count) - 1;
+                }
+                if (ready != 0) {
+                    return Long.numberOfTrailingZeros(ready);
+                }
+                from = MAX_PORT_NUM + 1;
             }
-            ports.add(port);
-            if (!port.ready) {
-                setBlocked(portNum);
+            AtomicInteger[] words = wideScales;
+            for (int portNum = from; portNum < count; ) {
+                int wideNum = portNum - MAX_PORT_NUM - 1;
+                int bit = wideNum & 31;
+                int wordBase = portNum - bit;
+                int ready = ~words[wideNum >> 5].get() & (-1 << bit);
+                if (count - wordBase < 32) {
+                    ready &= (1 << (count - wordBase)) - 1;
+                }
+                if (ready != 0) {
+                    return wordBase + Integer.numberOfTrailingZeros(ready);
+                }
+                portNum = wordBase + 32;
+            }
+            return -1;
+        }
+
+        synchronized List<Port> getPorts(boolean blockedOnly) {
+            List<Port> res = new ArrayList<>();
+            for (int portNum = 0; portNum < portCount; portNum++) {
+                Port port = ports == null ? null : ports[portNum];
+                if (port != null && (!blockedOnly || isBlocked(portNum))) {
+                    res.add(port);
+                }
+            }
+            return res;
+        }
+
+        /**
+         * starts counting blocked time of the ports which are blocked now
+         */
+        synchronized void markBlockedPorts(ActorMetrics metrics) {
+            for (int portNum = 0; portNum < portCount; portNum++) {
+                if (isBlocked(portNum)) {
+                    metrics.portBlocked(portNum);
+                }
             }
-            return portNum;
+        }
+
+        /**
+         * @return metrics of the parent actor, if this is its main transition and metrics are on; null otherwise
+         */
+        private ActorMetrics getMetrics() {
+            ActorMetrics metrics = AsyncProc.this.metrics;
+            return metrics != null && this == transition ? metrics : null;
+        }
+
+        private void registerWidePort(int portNum, boolean ready) {
+            int wordNum = (portNum - MAX_PORT_NUM - 1) >> 5;
+            AtomicInteger[] words = wideScales;
+            if (words == null || wordNum == words.length) {
+                int oldLength = words == null ? 0 : words.length;
+                AtomicInteger[] newWords = new AtomicInteger[Math.max(1, oldLength * 2)];
+                for (int k = 0; k < newWords.length; k++) {
+                    newWords[k] = k < oldLength ? words[k] : new AtomicInteger();
+                }
+                wideScales = newWords;
+            }
+            if (!ready) {
+                blockedPortsScaleUpdater.getAndAdd(this, WIDE_PORT_UNIT);
+                flipWideBit(portNum, true);
+            }
+            widePortCount++;
         }
 
         public AsyncProc getParentActor() {
             return AsyncProc.this;
         }
 
+        protected boolean canFire(long scale) {
+            return scale == 0;
+        }
+
         protected boolean canFire() {
-            return blockedPortsScale == 0;
+            return canFire(blockedPortsScale);
+        }
+
+        /**
+         * Called by the running actor, which holds the control token.
+         * @return true if the transition would fire again when the control port is unblocked
+         */
+        protected boolean canRefire() {
+            return canFire(blockedPortsScale & ~fireGuard());
         }
 
         protected boolean isBlocked(int portNum) {
-            return (blockedPortsScale & (1<<portNum)) != 0;
+            if (portNum <= MAX_PORT_NUM) {
+                return (blockedPortsScale & (1L << portNum)) != 0;
+            }
+            int wideNum = portNum - MAX_PORT_NUM - 1;
+            return (wideScales[wideNum >> 5].get() & (1 << wideNum)) != 0;
+        }
+
+        /**
+         * @param mask a bit per wide port, in the layout of the blocked bits of wide ports
+         * @return true if some of the wide ports in the mask are blocked
+         */
+        boolean isAnyWideBlocked(AtomicInteger[] mask) {
+            AtomicInteger[] words = wideScales;
+            if (words == null) {
+                return false;
+            }
+            int length = Math.min(words.length, mask.length);
+            for (int k = 0; k < length; k++) {
+                if ((words[k].get() & mask[k].get()) != 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @param portNum number of a port
+         * @return true if the state of the port is taken into account by {@link #canFire(long)}
+         */
+        protected boolean isActive(int portNum) {
+            return true;
+        }
+
+        /**
+         * @return the ports which are blocked at the moment of firing, to prevent repeated firing.
+         */
+        protected long fireGuard() {
+            return 1L << CONTROL_PORT_NUM;
+        }
+
+        /**
+         * atomically sets blocking bits
+         * @param portBits bits to set
+         * @return true if some of the bits were not set
+         */
+        private boolean setBlocked(long portBits) {
+            for (;;) {
+                long scale = blockedPortsScale;
+                if ((scale & portBits) == portBits) {
+                    return false;
+                }
+                if (blockedPortsScaleUpdater.compareAndSet(this, scale, scale | portBits)) {
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * atomically changes the bit of a wide port
+         * @param portNum number of the wide port
+         * @param blocked new state of the bit
+         * @return true if the bit was changed
+         */
+        private boolean flipWideBit(int portNum, boolean blocked) {
+            int wideNum = portNum - MAX_PORT_NUM - 1;
+            AtomicInteger word = wideScales[wideNum >> 5];
+            int portBit = 1 << wideNum;
+            for (;;) {
+                int scale = word.get();
+                if (((scale & portBit) != 0) == blocked) {
+                    return false;
+                }
+                if (word.compareAndSet(scale, scale ^ portBit)) {
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * atomically subtracts delta from the scale, and fires if the transition becomes ready.
+         * @param portBits bits which must be set, or 0
+         * @param delta value to subtract
+         */
+        private void release(long portBits, long delta) {
+            for (;;) {
+                long scale = blockedPortsScale;
+                if ((scale & portBits) != portBits) {
+                    return;
+                }
+                long newScale = scale - delta;
+                boolean canFire = canFire(newScale);
+                if (canFire) {
+                    newScale |= fireGuard();
+                }
+                if (blockedPortsScaleUpdater.compareAndSet(this, scale, newScale)) {
+                    if (canFire) {
+                        callFire();
+                    }
+                    return;
+                }
+            }
         }
 
         /**
@@ -256,17 +661,30 @@ public abstract class AsyncProc extends Node<AsyncProc> implements TransitionHol
          * this block is submitted to the executor.
          */
         public void unblock(Port port) {
-            boolean canFire;
-            synchronized (this) {
-                if (port.ready) {
-                    return;
-                }
-                port.ready = true;
-                setUnBlocked(port.portNum);
-                canFire = canFire();
+            if (inlineDepth == 0 || !(Thread.holdsLock(port) || Thread.holdsLock(this))) {
+                unblock(port.portNum);
+                return;
+            }
+            // the actor must not run inline until the port lock is released
+            boolean saved = Trampoline.enterLocked();
+            try {
+                unblock(port.portNum);
+            } finally {
+                Trampoline.exitLocked(saved);
+            }
+        }
+
+        void unblock(int portNum) {
+            ActorMetrics metrics = getMetrics();
+            if (metrics != null) {
+                // before the change, as the change can run the actor, which can block the port again
+                metrics.portUnblocked(portNum);
             }
-            if (canFire) {
-                callFire();
+            if (portNum <= MAX_PORT_NUM) {
+                long portBit = 1L << portNum;
+                release(portBit, portBit);
+            } else if (flipWideBit(portNum, false)) {
+                release(0, WIDE_PORT_UNIT);
             }
         }
 
@@ -274,25 +692,74 @@ public abstract class AsyncProc extends Node<AsyncProc> implements TransitionHol
             fire();
         }
 
-        public synchronized void block(Port port) {
-            if (!port.ready) {
-                return;
+        /**
+         * sets the port to blocked state.
+         * @param port the port to block
+         * @return true if the port was ready
+         */
+        protected boolean blockPort(Port port) {
+            return blockPort(port.portNum);
+        }
+
+        boolean blockPort(int portNum) {
+            boolean blocked;
+            if (portNum <= MAX_PORT_NUM) {
+                blocked = setBlocked(1L << portNum);
+            } else if (isBlocked(portNum)) {
+                return false;
+            } else {
+                // count first, so that the counter never shows less blocked ports than there are
+                blockedPortsScaleUpdater.getAndAdd(this, WIDE_PORT_UNIT);
+                blocked = flipWideBit(portNum, true);
+                if (!blocked) {
+                    release(0, WIDE_PORT_UNIT);
+                }
+            }
+            if (blocked) {
+                ActorMetrics metrics = getMetrics();
+                if (metrics != null) {
+                    metrics.portBlocked(portNum);
+                }
             }
-            port.ready = false;
-            setBlocked(port.portNum);
+            return blocked;
+        }
+
+        public void block(Port port) {
+            blockPort(port);
         }
 
-        public String portsToString() {
-            return ports.toString();
+        public synchronized String portsToString() {
+            StringBuilder sb = new StringBuilder("[");
+            for (int portNum = 0; portNum < portCount; portNum++) {
+                if (portNum > 0) {
+                    sb.append(", ");
+                }
+                Port port = ports == null ? null : ports[portNum];
+                if (port == null) {
+                    sb.append(isBlocked(portNum) ? "control port: blocked" : "control port: ready");
+                } else {
+                    sb.append(port);
+                }
+            }
+            return sb.append("]").toString();
         }
     }
 
     /**
      * parent for a group of ports.
      * Becomes ready when any of child ports become ready.
+     * <p>
+     * The action of the parent actor can take ready child ports with {@link #select()},
+     * instead of probing each of them with {@link Port#isReady()}.
      */
     public class PortGroup extends Port implements TransitionHolder {
         final TransitionAny transition;
+        /** number of the port next to the one last selected; used by the parent's action only */
+        private int cursor = 0;
+        /** how many more times the last selected port can be selected in a row */
+        private int credit = 0;
+        /** weights of child ports, null if all are 1; copied on write under lock of this */
+        private volatile int[] weights;
 
         public PortGroup(AsyncProc parent) {
             super(parent);
@@ -304,35 +771,119 @@ public abstract class AsyncProc extends Node<AsyncProc> implements TransitionHol
             return transition;
         }
 
+        /**
+         * @return the ports of this group in the order of registration
+         */
+        public List<Port> getPorts() {
+            return transition.getPorts(false);
+        }
+
+        /**
+         * Sets the weight of a child port for {@link #select()}:
+         * while ready, the port is selected up to {@code weight} times in a row before the next ready port gets its turn.
+         * @param port a child port of this group
+         * @param weight the weight, 1 by default
+         */
+        public synchronized void setWeight(Port port, int weight) {
+            if (port.transition != transition) {
+                throw new IllegalArgumentException("not a port of this group");
+            }
+            if (weight <= 0) {
+                throw new IllegalArgumentException();
+            }
+            int[] oldWeights = weights;
+            int oldLength = oldWeights == null ? 0 : oldWeights.length;
+            int[] newWeights = new int[Math.max(oldLength, transition.getPortCount())];
+            if (oldWeights != null) {
+                System.arraycopy(oldWeights, 0, newWeights, 0, oldLength);
+            }
+            Arrays.fill(newWeights, oldLength, newWeights.length, 1);
+            newWeights[port.portNum] = weight;
+            weights = newWeights;
+        }
+
+        /**
+         * Selects the next ready child port, in round-robin order, taking weights into account.
+         * Finding a ready port takes a bit-scan over the ready mask and no locks, so it costs nearly the same
+         * for hundreds of ports as for a few.
+         * Must be called from the action of the parent actor, as the selection state is not synchronized.
+         * @return a ready child port, or null if none is ready
+         */
+        public Port select() {
+            int last = cursor - 1;
+            if (credit > 0 && last >= 0 && !transition.isBlocked(last)) {
+                credit--;
+                return transition.getPort(last);
+            }
+            int portNum = transition.nextReadyPort(cursor);
+            if (portNum < 0) {
+                portNum = transition.nextReadyPort(0);
+                if (portNum < 0) {
+                    return null;
+                }
+            }
+            cursor = portNum + 1;
+            int[] weights = this.weights;
+            credit = weights == null || portNum >= weights.length ? 0 : weights[portNum] - 1;
+            return transition.getPort(portNum);
+        }
+
         /**
          * fires when any port is ready.
          * Firing means enclosing port is unblocked.
          */
         class TransitionAny extends Transition {
-            int allPortsScale = 0;
+            volatile int allPortsScale = 0;
 
             @Override
-            public synchronized int registerPort(Port port) {
-                int portNum = super.registerPort(port);
-                allPortsScale |= (1<<portNum);
+            public synchronized int registerPort(Port port, boolean ready) {
+                int portNum = super.registerPort(port, ready);
+                if (portNum <= MAX_PORT_NUM) {
+                    allPortsScale |= (1<<portNum);
+                }
                 return portNum;
             }
 
             @Override
-            protected boolean canFire() {
-                return (blockedPortsScale ^ allPortsScale) != 0;
+            protected boolean canFire(long scale) {
+                return (~(int) scale & allPortsScale) != 0 || (int) (scale >>> 32) < widePortCount;
+            }
+
+            @Override
+            protected long fireGuard() {
+                return 0;
             }
 
             @Override
             protected void callFire() {
-                PortGroup.this.unblock();
+                syncGroupPort();
             }
 
             @Override
-            public synchronized void block(Port port) {
-                super.block(port);
-                if (!transition.canFire()) {
-                    PortGroup.this.block();
+            public void block(Port port) {
+                if (blockPort(port)) {
+                    syncGroupPort();
+                }
+            }
+
+            /**
+             * makes the state of the enclosing port to reflect the state of child ports.
+             * Repeats until the state observed after the change is the same as before,
+             * so concurrent block/unblock of child ports cannot leave the enclosing port in a wrong state.
+             */
+            private void syncGroupPort() {
+                for (;;) {
+                    if (canFire()) {
+                        PortGroup.this.unblock();
+                        if (canFire()) {
+                            return;
+                        }
+                    } else {
+                        PortGroup.this.block();
+                        if (!canFire()) {
+                            return;
+                        }
+                    }
                 }
             }
         }
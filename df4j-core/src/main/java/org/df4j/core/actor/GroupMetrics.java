@@ -0,0 +1,94 @@
+package org.df4j.core.actor;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runtime statistics of the children of an {@link ActorGroup}, see {@link ActorGroup#setMetricsEnabled(boolean)}.
+ * Totals include the children which have already completed; {@link #getActors()} lists only live ones.
+ */
+public class GroupMetrics implements ActorGroupMXBean {
+    private final ActorGroup group;
+    private final Set<ActorMetrics> actors = ConcurrentHashMap.newKeySet();
+    private final LongAdder fireCount = new LongAdder();
+    private final LongAdder actionCount = new LongAdder();
+    private final LongAdder runNanos = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+
+    GroupMetrics(ActorGroup group) {
+        this.group = group;
+    }
+
+    void add(ActorMetrics metrics) {
+        actors.add(metrics);
+    }
+
+    void remove(ActorMetrics metrics) {
+        actors.remove(metrics);
+    }
+
+    void fired() {
+        fireCount.increment();
+    }
+
+    void waited(long nanos) {
+        waitNanos.add(nanos);
+    }
+
+    void actionDone(long nanos) {
+        actionCount.increment();
+        runNanos.add(nanos);
+    }
+
+    @Override
+    public long getChildCount() {
+        return group.getChildCount();
+    }
+
+    @Override
+    public long getTotalChildCount() {
+        return group.getTotalChildCount();
+    }
+
+    @Override
+    public int getActorCount() {
+        return actors.size();
+    }
+
+    @Override
+    public long getFireCount() {
+        return fireCount.sum();
+    }
+
+    @Override
+    public long getActionCount() {
+        return actionCount.sum();
+    }
+
+    @Override
+    public long getRunNanos() {
+        return runNanos.sum();
+    }
+
+    @Override
+    public long getWaitNanos() {
+        return waitNanos.sum();
+    }
+
+    @Override
+    public List<ActorMetrics> getActors() {
+        List<ActorMetrics> res = new ArrayList<>(actors);
+        res.sort(Comparator.comparingLong(ActorMetrics::getRunNanos).reversed());
+        return res;
+    }
+
+    @Override
+    public String toString() {
+        return "GroupMetrics[actors = " + actors.size() + ", fires = " + getFireCount() + ", actions = " + getActionCount()
+                + ", run = " + getRunNanos() / 1000 + "us, wait = " + getWaitNanos() / 1000 + "us]";
+    }
+}
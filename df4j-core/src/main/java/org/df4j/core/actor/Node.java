@@ -10,10 +10,15 @@
 package org.df4j.core.actor;
 
 import org.df4j.core.connector.Completion;
+import org.df4j.core.timer.HashedWheelTimer;
+import org.df4j.core.timer.TimerService;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.Iterator;
+import java.util.ServiceLoader;
 import java.util.Timer;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 /**
  * A node in dataflow graph.
@@ -22,8 +27,11 @@ import java.util.concurrent.*;
  */
 public abstract class Node<T extends Node<T>> implements Activity {
     protected Completion completion = createCompletion();
-    protected final ActorGroup actorGroup; // parent node
+    protected volatile ActorGroup actorGroup; // parent node
     private Executor executor;
+    private TimerService timerService;
+    /** 1 when this node has left its parent group */
+    private volatile int left = 0;
 
     protected Node() {
         this.actorGroup = null;
@@ -61,6 +69,13 @@ public abstract class Node<T extends Node<T>> implements Activity {
         return actorGroup;
     }
 
+    /**
+     * @return true if this node has not left its parent group before
+     */
+    boolean markLeft() {
+        return leftUpdater.compareAndSet(this, 0, 1);
+    }
+
     protected void leaveParent(Throwable ex) {
         if (actorGroup != null) {
             actorGroup.leave(this, ex);
@@ -79,6 +94,8 @@ public abstract class Node<T extends Node<T>> implements Activity {
                 Thread currentThread = Thread.currentThread();
                 if (currentThread instanceof ForkJoinWorkerThread) {
                     executor = ((ForkJoinWorkerThread) currentThread).getPool();
+                } else if (ActorScheduler.currentScheduler() != null) {
+                    executor = ActorScheduler.currentScheduler();
                 } else {
                     executor = ForkJoinPool.commonPool();
                 }
@@ -87,8 +104,62 @@ public abstract class Node<T extends Node<T>> implements Activity {
         return executor;
     }
 
+    public synchronized void setTimerService(TimerService timerService) {
+        this.timerService = timerService;
+    }
+
+    /**
+     * @return timer service of this node, or of the parent node, or the default one
+     */
+    public synchronized TimerService getTimerService() {
+        if (timerService == null) {
+            if (actorGroup != null) {
+                timerService = actorGroup.getTimerService();
+            } else {
+                timerService = getDefaultTimerService();
+            }
+        }
+        return timerService;
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<Node> leftUpdater = AtomicIntegerFieldUpdater.newUpdater(Node.class, "left");
+
+    private static volatile TimerService defaultTimerService;
+
+    /**
+     * @return the first {@link TimerService} found by {@link ServiceLoader}, or {@link HashedWheelTimer} if none found
+     */
+    @NotNull
+    public static TimerService getDefaultTimerService() {
+        TimerService res = defaultTimerService;
+        if (res == null) {
+            synchronized (Node.class) {
+                res = defaultTimerService;
+                if (res == null) {
+                    Iterator<TimerService> providers = ServiceLoader.load(TimerService.class).iterator();
+                    res = providers.hasNext() ? providers.next() : new HashedWheelTimer();
+                    defaultTimerService = res;
+                }
+            }
+        }
+        return res;
+    }
+
+    public static void setDefaultTimerService(TimerService timerService) {
+        if (timerService == null) {
+            throw new NullPointerException();
+        }
+        defaultTimerService = timerService;
+    }
+
     private static Timer singletonTimer;
 
+    /**
+     * @return global {@link Timer}
+     * @deprecated is not used by df4j anymore; use {@link #getTimerService()}
+     */
+    @Deprecated
     @NotNull
     public static Timer getTimer() {
         Timer res = singletonTimer;
@@ -0,0 +1,113 @@
+package org.df4j.core.actor;
+
+import java.util.ArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * Runs actors with inline firing directly on the current thread, keeping track of the nesting depth per thread.
+ * When the depth bound is reached, or when the current thread does not belong to the executor,
+ * the actor is submitted to the executor.
+ * <p>
+ * An actor is never run while the current thread holds the lock of the port which fired it:
+ * such a firing is deferred until the current run returns, and then the actor is run from a loop
+ * instead of a nested call. If there is no current run, the actor is submitted to the executor.
+ */
+final class Trampoline {
+    private static final ThreadLocal<Trampoline> current = ThreadLocal.withInitial(Trampoline::new);
+
+    /** number of nested runs */
+    private int depth = 0;
+    /** the current thread holds the lock of the port being unblocked */
+    private boolean locked = false;
+    /** deferred actors are being run */
+    private boolean draining = false;
+    private final ArrayList<AsyncProc> deferred = new ArrayList<>();
+
+    private Trampoline() {}
+
+    /**
+     * Only executors whose threads are known are supported; for other executors, even a single-thread one,
+     * the current thread cannot be proved to belong to the executor.
+     * @param executor executor of the task
+     * @return true if the task can be run by the current thread
+     */
+    static boolean canRunInline(Executor executor) {
+        if (executor instanceof ActorScheduler) {
+            return ActorScheduler.currentScheduler() == executor;
+        }
+        if (!(executor instanceof ForkJoinPool)) {
+            return false;
+        }
+        Thread currentThread = Thread.currentThread();
+        return currentThread instanceof ForkJoinWorkerThread
+                && ((ForkJoinWorkerThread) currentThread).getPool() == executor;
+    }
+
+    /**
+     * marks that the current thread holds the lock of the port it unblocks
+     * @return previous mark, to be passed to {@link #exitLocked(boolean)}
+     */
+    static boolean enterLocked() {
+        Trampoline trampoline = current.get();
+        boolean saved = trampoline.locked;
+        trampoline.locked = true;
+        return saved;
+    }
+
+    static void exitLocked(boolean saved) {
+        current.get().locked = saved;
+    }
+
+    /**
+     * @param proc actor to run
+     * @param maxDepth max number of nested runs
+     */
+    static void fire(AsyncProc proc, int maxDepth) {
+        current.get().fire0(proc, maxDepth);
+    }
+
+    /**
+     * runs the actor as a submitted task, so that actors deferred by it are run by this thread
+     * @param proc actor to run
+     */
+    static void runSubmitted(AsyncProc proc) {
+        current.get().run(proc);
+    }
+
+    private void fire0(AsyncProc proc, int maxDepth) {
+        Executor executor = proc.getExecutor();
+        if (depth >= maxDepth || !canRunInline(executor)) {
+            executor.execute(proc.submittedTask());
+        } else if (!locked) {
+            run(proc);
+        } else if (depth > 0) {
+            deferred.add(proc);
+        } else {
+            executor.execute(proc.submittedTask());
+        }
+    }
+
+    private void run(AsyncProc proc) {
+        depth++;
+        try {
+            proc.run();
+        } finally {
+            depth--;
+        }
+        if (draining) {
+            return; // an outer loop runs the deferred actors
+        }
+        draining = true;
+        try {
+            for (int k = 0; k < deferred.size(); k++) {
+                AsyncProc next = deferred.get(k);
+                fire0(next, next.getInlineFiring());
+            }
+        } finally {
+            deferred.clear();
+            draining = false;
+        }
+    }
+}
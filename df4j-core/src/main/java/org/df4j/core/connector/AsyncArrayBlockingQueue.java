@@ -8,7 +8,6 @@ import org.reactivestreams.Publisher;
 import org.reactivestreams.Subscriber;
 
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.CompletionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -116,41 +115,30 @@ public class AsyncArrayBlockingQueue<T> extends Actor implements
         return inp.poll();
     }
 
+    /**
+     * extracts next token
+     * blocks when the buffer is empty
+     * @param timeout max time to wait
+     * @param unit time unit of timeout
+     * @return  token
+     * @throws TimeoutException when the timeout elapsed
+     */
     public T poll(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
-        long targetTime=System.nanoTime()+unit.toNanos(timeout);
-        synchronized (inp) {
-            for (;;) {
-                T res = inp.poll();
-                if (res != null) {
-                    return res;
-                }
-                long timeoutNanos=targetTime-System.nanoTime();
-                if (timeoutNanos <= 0) {
-                    throw new TimeoutException();
-                }
-                inp.wait(timeoutNanos/1000000, (int) (timeoutNanos%1000000));
-            }
+        T res = inp.poll(timeout, unit);
+        if (res == null) {
+            throw new TimeoutException();
         }
+        return res;
     }
 
     /**
      * extracts next token
-     * blocks when the buffer is empty
+     * blocks when the buffer is empty.
+     * The waiting thread is parked, so a virtual thread releases its carrier.
      * @return  token
      */
     public T take() throws InterruptedException {
-        synchronized(inp)  {
-            for (;;) {
-                if (inp.isCompleted()) {
-                    throw new CompletionException(inp.getCompletionException());
-                }
-                T res = inp.poll();
-                if (res != null) {
-                    return res;
-                }
-                inp.wait();
-            }
-        }
+        return inp.take();
     }
 
     public void onComplete() {
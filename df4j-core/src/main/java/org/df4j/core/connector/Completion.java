@@ -14,7 +14,8 @@ import java.util.concurrent.TimeUnit;
  */
 public class Completion implements Completable.Source {
     protected Throwable completionException;
-    protected LinkedList<CompletionSubscription> subscriptions = new LinkedList<>();
+    /** created when the first subscriber comes; null after completion */
+    protected LinkedList<CompletionSubscription> subscriptions;
     protected boolean completed;
 
     public void setCompletionException(Throwable completionException) {
@@ -29,7 +30,14 @@ public class Completion implements Completable.Source {
         return completionException;
     }
 
+    /**
+     * must be called under the lock of this {@link Completion}
+     * @return list of subscriptions, created if necessary; or null if completed
+     */
     protected LinkedList<CompletionSubscription> getSubscriptions() {
+        if (subscriptions == null && !completed) {
+            subscriptions = new LinkedList<>();
+        }
         return subscriptions;
     }
 
@@ -53,7 +61,7 @@ public class Completion implements Completable.Source {
         synchronized(this) {
             if (!completed) {
                 CompletionSubscription subscription = new CompletionSubscription(this, co);
-                subscriptions.add(subscription);
+                getSubscriptions().add(subscription);
                 co.onSubscribe(subscription);
                 return;
             }
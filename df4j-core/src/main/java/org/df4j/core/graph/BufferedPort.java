@@ -0,0 +1,21 @@
+package org.df4j.core.graph;
+
+/**
+ * A port with a token buffer, whose occupancy is shown in {@link GraphSnapshot}.
+ */
+public interface BufferedPort {
+    /**
+     * @return number of tokens in the buffer
+     */
+    int getBufferedCount();
+
+    /**
+     * @return max number of tokens in the buffer
+     */
+    int getCapacity();
+
+    /**
+     * @return number of tokens requested from the publisher but not yet received, or -1 if the port does not request tokens
+     */
+    long getRequestedCount();
+}
@@ -0,0 +1,467 @@
+package org.df4j.core.graph;
+
+import org.df4j.core.actor.ActorGroup;
+import org.df4j.core.actor.AsyncProc;
+import org.df4j.core.actor.Node;
+import org.df4j.core.port.CompletablePort;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A snapshot of a live dataflow graph: actors with the states of their ports, and subscription edges between ports.
+ * Each actor and port is read separately, without stopping the graph, so the snapshot is not atomic.
+ * <p>
+ * Subscribers which do not belong to the actors of the snapshot are shown as external nodes.
+ */
+public class GraphSnapshot {
+    private final List<NodeInfo> nodes = new ArrayList<>();
+    private final List<EdgeInfo> edges = new ArrayList<>();
+    private final Map<AsyncProc, NodeInfo> actorNodes = new IdentityHashMap<>();
+    private final Map<AsyncProc.Port, PortInfo> portInfos = new IdentityHashMap<>();
+    private final Map<Object, NodeInfo> externalNodes = new IdentityHashMap<>();
+
+    protected GraphSnapshot(Collection<? extends AsyncProc> actors) {
+        for (AsyncProc actor: actors) {
+            NodeInfo node = new NodeInfo("a" + actorNodes.size(), nameOf(actor), actor.getState().toString(), actor);
+            actorNodes.put(actor, node);
+            nodes.add(node);
+            for (AsyncProc.Port port: actor.getPorts()) {
+                addPort(node, port, Integer.toString(port.getPortNum()));
+            }
+            for (AsyncProc.Port port: actor.getBlockedPorts()) {
+                if (port.isActive()) {
+                    node.blockedBy.add(portInfos.get(port));
+                }
+            }
+        }
+        for (AsyncProc actor: actors) {
+            for (AsyncProc.Port port: actor.getPorts()) {
+                addEdges(actorNodes.get(actor), port);
+            }
+        }
+    }
+
+    /**
+     * @param actors actors to include
+     * @return snapshot of the given actors
+     */
+    public static GraphSnapshot of(Collection<? extends AsyncProc> actors) {
+        return new GraphSnapshot(actors);
+    }
+
+    /**
+     * @param group the group, which must have child tracking turned on, see {@link ActorGroup#setChildTracking(boolean)}
+     * @return snapshot of the live actors of the group and of its nested groups
+     * @throws IllegalStateException if child tracking of the group is off
+     */
+    public static GraphSnapshot of(ActorGroup group) {
+        if (!group.isChildTracking()) {
+            throw new IllegalStateException("child tracking is off");
+        }
+        List<AsyncProc> actors = new ArrayList<>();
+        collectActors(group, actors);
+        return new GraphSnapshot(actors);
+    }
+
+    static void collectActors(ActorGroup group, Collection<AsyncProc> actors) {
+        for (Node<?> node: group.getChildNodes()) {
+            if (node instanceof AsyncProc) {
+                actors.add((AsyncProc) node);
+            } else if (node instanceof ActorGroup) {
+                collectActors((ActorGroup) node, actors);
+            }
+        }
+    }
+
+    static String nameOf(Object object) {
+        String name = object.getClass().getSimpleName();
+        return name.isEmpty() ? object.getClass().getName() : name;
+    }
+
+    private void addPort(NodeInfo node, AsyncProc.Port port, String path) {
+        PortInfo info = new PortInfo(path, port);
+        portInfos.put(port, info);
+        node.ports.add(info);
+        if (port instanceof AsyncProc.PortGroup) {
+            for (AsyncProc.Port child: ((AsyncProc.PortGroup) port).getPorts()) {
+                addPort(node, child, path + "." + child.getPortNum());
+            }
+        }
+    }
+
+    private void addEdges(NodeInfo node, AsyncProc.Port port) {
+        if (port instanceof PublisherPort) {
+            PortInfo from = portInfos.get(port);
+            for (Object subscriber: ((PublisherPort) port).getSubscribers()) {
+                addEdge(node, from, subscriber);
+            }
+        }
+        if (port instanceof AsyncProc.PortGroup) {
+            for (AsyncProc.Port child: ((AsyncProc.PortGroup) port).getPorts()) {
+                addEdges(node, child);
+            }
+        }
+    }
+
+    private void addEdge(NodeInfo fromNode, PortInfo fromPort, Object subscriber) {
+        AsyncProc.Port toPort = null;
+        if (subscriber instanceof AsyncProc.Port) {
+            toPort = (AsyncProc.Port) subscriber;
+        } else if (subscriber instanceof PortSubscriber) {
+            toPort = ((PortSubscriber) subscriber).getPort();
+        }
+        if (toPort != null) {
+            NodeInfo toNode = actorNodes.get(toPort.getParentActor());
+            if (toNode != null) {
+                edges.add(new EdgeInfo(fromNode, fromPort, toNode, portInfos.get(toPort)));
+                return;
+            }
+        }
+        Object external = toPort == null ? subscriber : toPort.getParentActor();
+        NodeInfo toNode = externalNodes.get(external);
+        if (toNode == null) {
+            toNode = new NodeInfo("x" + externalNodes.size(), nameOf(external), null, null);
+            externalNodes.put(external, toNode);
+            nodes.add(toNode);
+        }
+        edges.add(new EdgeInfo(fromNode, fromPort, toNode, null));
+    }
+
+    public List<NodeInfo> getNodes() {
+        return Collections.unmodifiableList(nodes);
+    }
+
+    public List<EdgeInfo> getEdges() {
+        return Collections.unmodifiableList(edges);
+    }
+
+    /**
+     * @param actor an actor
+     * @return the node of the actor, or null if the actor is not in this snapshot
+     */
+    public NodeInfo getNode(AsyncProc actor) {
+        return actorNodes.get(actor);
+    }
+
+    /**
+     * Exports this snapshot in the Graphviz DOT language.
+     * Blocked actors list their blocking ports; edges into full buffers are red.
+     * @return the graph in DOT format
+     */
+    public String toDot() {
+        StringBuilder sb = new StringBuilder("digraph df4j {\n  rankdir=LR;\n");
+        for (NodeInfo node: nodes) {
+            sb.append("  ").append(node.id).append(" [label=\"").append(dotEscape(node.name));
+            if (node.external) {
+                sb.append("\", shape=box, style=dashed];\n");
+                continue;
+            }
+            sb.append("\\n").append(node.state);
+            for (PortInfo port: node.blockedBy) {
+                sb.append("\\nblocked by ").append(port.path).append(' ').append(dotEscape(port.kind));
+                if (port.capacity >= 0) {
+                    sb.append(' ').append(port.buffered).append('/').append(port.capacity);
+                }
+            }
+            sb.append("\", shape=box");
+            if (!node.blockedBy.isEmpty()) {
+                sb.append(", color=orange");
+            }
+            sb.append("];\n");
+        }
+        for (EdgeInfo edge: edges) {
+            sb.append("  ").append(edge.from.id).append(" -> ").append(edge.to.id).append(" [label=\"")
+                    .append(edge.fromPort.path);
+            PortInfo toPort = edge.toPort;
+            if (toPort != null) {
+                sb.append("->").append(toPort.path);
+                if (toPort.capacity >= 0) {
+                    sb.append(' ').append(toPort.buffered).append('/').append(toPort.capacity);
+                }
+                if (toPort.requested >= 0) {
+                    sb.append(" req=").append(toPort.requested);
+                }
+            }
+            sb.append('"');
+            if (toPort != null && toPort.isFull()) {
+                sb.append(", color=red");
+            }
+            sb.append("];\n");
+        }
+        return sb.append("}\n").toString();
+    }
+
+    /**
+     * @return the snapshot as a JSON object with arrays "nodes" and "edges"
+     */
+    public String toJson() {
+        StringBuilder sb = new StringBuilder("{\"nodes\":[");
+        for (int k = 0; k < nodes.size(); k++) {
+            if (k > 0) {
+                sb.append(',');
+            }
+            NodeInfo node = nodes.get(k);
+            sb.append("{\"id\":").append(jsonString(node.id))
+                    .append(",\"name\":").append(jsonString(node.name))
+                    .append(",\"external\":").append(node.external);
+            if (!node.external) {
+                sb.append(",\"state\":").append(jsonString(node.state)).append(",\"blockedBy\":[");
+                for (int p = 0; p < node.blockedBy.size(); p++) {
+                    if (p > 0) {
+                        sb.append(',');
+                    }
+                    sb.append(jsonString(node.blockedBy.get(p).path));
+                }
+                sb.append("],\"ports\":[");
+                for (int p = 0; p < node.ports.size(); p++) {
+                    if (p > 0) {
+                        sb.append(',');
+                    }
+                    PortInfo port = node.ports.get(p);
+                    sb.append("{\"port\":").append(jsonString(port.path))
+                            .append(",\"kind\":").append(jsonString(port.kind))
+                            .append(",\"ready\":").append(port.ready)
+                            .append(",\"completed\":").append(port.completed)
+                            .append(",\"buffered\":").append(port.buffered)
+                            .append(",\"capacity\":").append(port.capacity)
+                            .append(",\"requested\":").append(port.requested)
+                            .append('}');
+                }
+                sb.append(']');
+            }
+            sb.append('}');
+        }
+        sb.append("],\"edges\":[");
+        for (int k = 0; k < edges.size(); k++) {
+            if (k > 0) {
+                sb.append(',');
+            }
+            EdgeInfo edge = edges.get(k);
+            sb.append("{\"from\":").append(jsonString(edge.from.id))
+                    .append(",\"fromPort\":").append(jsonString(edge.fromPort.path))
+                    .append(",\"to\":").append(jsonString(edge.to.id));
+            if (edge.toPort != null) {
+                sb.append(",\"toPort\":").append(jsonString(edge.toPort.path));
+            }
+            sb.append('}');
+        }
+        return sb.append("]}").toString();
+    }
+
+    private static String dotEscape(String s) {
+        return s.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    private static String jsonString(String s) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (int k = 0; k < s.length(); k++) {
+            char ch = s.charAt(k);
+            switch (ch) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                default:
+                    if (ch < ' ') {
+                        sb.append(String.format("\\u%04x", (int) ch));
+                    } else {
+                        sb.append(ch);
+                    }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    @Override
+    public String toString() {
+        return toDot();
+    }
+
+    /**
+     * An actor, or an external subscriber.
+     */
+    public static class NodeInfo {
+        private final String id;
+        private final String name;
+        private final String state;
+        private final boolean external;
+        /** the actor, or null for an external node */
+        final AsyncProc actor;
+        private final List<PortInfo> ports = new ArrayList<>();
+        private final List<PortInfo> blockedBy = new ArrayList<>();
+
+        NodeInfo(String id, String name, String state, AsyncProc actor) {
+            this.id = id;
+            this.name = name;
+            this.state = state;
+            this.actor = actor;
+            this.external = actor == null;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return state of the actor, see {@link AsyncProc.ActorState}, or null for an external node
+         */
+        public String getState() {
+            return state;
+        }
+
+        public boolean isExternal() {
+            return external;
+        }
+
+        /**
+         * @return the ports, including the ports of port groups
+         */
+        public List<PortInfo> getPorts() {
+            return Collections.unmodifiableList(ports);
+        }
+
+        /**
+         * @return the ports which blocked the actor, not including the control port
+         */
+        public List<PortInfo> getBlockedBy() {
+            return Collections.unmodifiableList(blockedBy);
+        }
+
+        @Override
+        public String toString() {
+            return id + ":" + name + (external ? "" : "/" + state);
+        }
+    }
+
+    /**
+     * State of a port.
+     * Values which the port does not provide are -1.
+     */
+    public static class PortInfo {
+        private final String path;
+        private final String kind;
+        private final boolean ready;
+        private final boolean active;
+        private final boolean completed;
+        private final int buffered;
+        private final int capacity;
+        private final long requested;
+
+        PortInfo(String path, AsyncProc.Port port) {
+            this.path = path;
+            this.kind = nameOf(port);
+            this.ready = port.isReady();
+            this.active = port.isActive();
+            this.completed = port instanceof CompletablePort && ((CompletablePort) port).isCompleted();
+            if (port instanceof BufferedPort) {
+                BufferedPort bufferedPort = (BufferedPort) port;
+                buffered = bufferedPort.getBufferedCount();
+                capacity = bufferedPort.getCapacity();
+                requested = bufferedPort.getRequestedCount();
+            } else {
+                buffered = -1;
+                capacity = -1;
+                requested = -1;
+            }
+        }
+
+        /**
+         * @return number of the port; ports of a port group have the number of the group as a prefix, e.g. "2.0"
+         */
+        public String getPath() {
+            return path;
+        }
+
+        public String getKind() {
+            return kind;
+        }
+
+        public boolean isReady() {
+            return ready;
+        }
+
+        /**
+         * @return false if the actor did not wait for the port, see {@link AsyncProc.Port#isActive()}
+         */
+        public boolean isActive() {
+            return active;
+        }
+
+        public boolean isCompleted() {
+            return completed;
+        }
+
+        public int getBuffered() {
+            return buffered;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public long getRequested() {
+            return requested;
+        }
+
+        public boolean isFull() {
+            return capacity > 0 && buffered >= capacity;
+        }
+
+        @Override
+        public String toString() {
+            return path + ":" + kind + (ready ? "/ready" : "/blocked");
+        }
+    }
+
+    /**
+     * A subscription: tokens flow from a publisher port to a subscriber.
+     */
+    public static class EdgeInfo {
+        private final NodeInfo from;
+        private final PortInfo fromPort;
+        private final NodeInfo to;
+        private final PortInfo toPort;
+
+        EdgeInfo(NodeInfo from, PortInfo fromPort, NodeInfo to, PortInfo toPort) {
+            this.from = from;
+            this.fromPort = fromPort;
+            this.to = to;
+            this.toPort = toPort;
+        }
+
+        public NodeInfo getFrom() {
+            return from;
+        }
+
+        public PortInfo getFromPort() {
+            return fromPort;
+        }
+
+        public NodeInfo getTo() {
+            return to;
+        }
+
+        /**
+         * @return the receiving port, or null if the subscriber is external
+         */
+        public PortInfo getToPort() {
+            return toPort;
+        }
+
+        @Override
+        public String toString() {
+            return from.id + ":" + fromPort.path + " -> " + to.id + (toPort == null ? "" : ":" + toPort.path);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package org.df4j.core.graph;
+
+import org.df4j.core.actor.AsyncProc;
+
+/**
+ * A subscriber which is not a port itself, but delivers tokens to a port.
+ */
+public interface PortSubscriber {
+    /**
+     * @return the port which receives tokens from this subscriber
+     */
+    AsyncProc.Port getPort();
+}
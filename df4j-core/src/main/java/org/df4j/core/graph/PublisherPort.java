@@ -0,0 +1,13 @@
+package org.df4j.core.graph;
+
+import java.util.List;
+
+/**
+ * A port which publishes tokens to subscribers; its subscriptions are the edges of {@link GraphSnapshot}.
+ */
+public interface PublisherPort {
+    /**
+     * @return current subscribers, which are usually ports or {@link PortSubscriber}s
+     */
+    List<Object> getSubscribers();
+}
@@ -0,0 +1,321 @@
+package org.df4j.core.graph;
+
+import org.df4j.core.actor.ActorGroup;
+import org.df4j.core.actor.AsyncProc;
+import org.df4j.core.actor.Node;
+import org.df4j.core.timer.TimerService;
+import org.df4j.core.util.LoggerFactory;
+import org.df4j.protocol.SimpleSubscription;
+import org.slf4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Watchdog which finds actors that stopped making progress.
+ * Blocked actors hold no threads, so thread dumps do not show them.
+ * <p>
+ * Each scan looks at the registered actors and at the live actors of the registered groups
+ * (which need child tracking, see {@link ActorGroup#setChildTracking(boolean)}).
+ * An actor is stalled when it has stayed in {@link AsyncProc.ActorState#Blocked} state without firing
+ * for longer than the threshold, as observed by the scans, so a stall is detected within threshold plus the scan period.
+ * <p>
+ * A stalled actor waits for the actors which can unblock its blocked ports:
+ * the publishers of its blocked input ports, the subscribers of its blocked output ports,
+ * and the actors declared with {@link #addDependency(AsyncProc, AsyncProc)}, for dependencies which are not subscriptions,
+ * e.g. a philosopher which holds a fork.
+ * Wait-for cycles are reported as groups of stalled actors which wait for each other.
+ */
+public class StallDetector {
+    protected final Logger logger = LoggerFactory.getLogger(this);
+    private final long thresholdNanos;
+    private final Set<AsyncProc> actors = ConcurrentHashMap.newKeySet();
+    private final Set<ActorGroup> groups = ConcurrentHashMap.newKeySet();
+    private final Map<AsyncProc, Set<AsyncProc>> dependencies = new ConcurrentHashMap<>();
+    /** actors seen blocked by previous scans; guarded by this */
+    private final Map<AsyncProc, Observation> observations = new IdentityHashMap<>();
+    private TimerService timerService = Node.getDefaultTimerService();
+    private Executor executor = ForkJoinPool.commonPool();
+    /** guarded by this */
+    private SimpleSubscription timeout;
+    private long periodNanos;
+    private Consumer<StallReport> listener;
+
+    /**
+     * @param threshold min time an actor is blocked without firing to be reported
+     * @param unit time unit of the threshold
+     */
+    public StallDetector(long threshold, TimeUnit unit) {
+        thresholdNanos = unit.toNanos(threshold);
+    }
+
+    public void register(AsyncProc actor) {
+        actors.add(actor);
+    }
+
+    public void unregister(AsyncProc actor) {
+        actors.remove(actor);
+    }
+
+    /**
+     * @param group group whose live actors are scanned. Its child tracking is turned on if it was off,
+     *              but the children which entered the group before are not seen.
+     */
+    public void register(ActorGroup group) {
+        if (!group.isChildTracking()) {
+            group.setChildTracking(true);
+        }
+        groups.add(group);
+    }
+
+    public void unregister(ActorGroup group) {
+        groups.remove(group);
+    }
+
+    /**
+     * declares that the waiter, when blocked, can be unblocked by the provider
+     * @param waiter the waiting actor
+     * @param provider the actor the waiter waits for
+     */
+    public void addDependency(AsyncProc waiter, AsyncProc provider) {
+        dependencies.computeIfAbsent(waiter, (k)->ConcurrentHashMap.newKeySet()).add(provider);
+    }
+
+    public synchronized void setTimerService(TimerService timerService) {
+        this.timerService = timerService;
+    }
+
+    /**
+     * @param executor executor of periodic scans, so they do not occupy the timer thread
+     */
+    public synchronized void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * starts periodic scans.
+     * @param period time between scans, positive
+     * @param unit time unit of the period
+     * @param listener receives non-empty reports
+     */
+    public synchronized void start(long period, TimeUnit unit, Consumer<StallReport> listener) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("period must be positive: " + period);
+        }
+        stop();
+        this.periodNanos = unit.toNanos(period);
+        this.listener = listener;
+        schedule();
+    }
+
+    /**
+     * starts periodic scans, which log non-empty reports as warnings
+     * @param period time between scans, positive
+     * @param unit time unit of the period
+     */
+    public void start(long period, TimeUnit unit) {
+        start(period, unit, (report)->logger.warn(report.toString()));
+    }
+
+    public synchronized void stop() {
+        if (timeout != null) {
+            timeout.cancel();
+            timeout = null;
+        }
+        listener = null;
+    }
+
+    private void schedule() {
+        timeout = timerService.schedule(()->executor.execute(this::periodicScan), periodNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void periodicScan() {
+        Consumer<StallReport> listener;
+        synchronized (this) {
+            listener = this.listener;
+            if (listener == null) {
+                return;
+            }
+        }
+        try {
+            StallReport report = scan();
+            if (!report.isEmpty()) {
+                listener.accept(report);
+            }
+        } catch (Throwable e) {
+            logger.error("stall scan failed", e);
+        }
+        synchronized (this) {
+            if (this.listener == listener) {
+                schedule();
+            }
+        }
+    }
+
+    /**
+     * scans the registered actors once.
+     * @return the stalled actors and wait-for cycles among them
+     */
+    public synchronized StallReport scan() {
+        long now = System.nanoTime();
+        Set<AsyncProc> liveActors = new LinkedHashSet<>();
+        for (AsyncProc actor: actors) {
+            if (actor.isCompleted()) {
+                actors.remove(actor);
+            } else {
+                liveActors.add(actor);
+            }
+        }
+        for (ActorGroup group: groups) {
+            GraphSnapshot.collectActors(group, liveActors);
+        }
+        observations.keySet().retainAll(liveActors);
+        dependencies.keySet().removeIf(AsyncProc::isCompleted);
+        List<AsyncProc> stalled = new ArrayList<>();
+        for (AsyncProc actor: liveActors) {
+            if (actor.getState() != AsyncProc.ActorState.Blocked) {
+                observations.remove(actor);
+                continue;
+            }
+            int fireCount = actor.getFireCount();
+            Observation observation = observations.get(actor);
+            if (observation == null || observation.fireCount != fireCount) {
+                observations.put(actor, new Observation(fireCount, now));
+            } else if (now - observation.since >= thresholdNanos) {
+                stalled.add(actor);
+            }
+        }
+        if (stalled.isEmpty()) {
+            return new StallReport(Collections.emptyList(), Collections.emptyList());
+        }
+        Map<AsyncProc, List<AsyncProc>> waitsFor = waitsFor(liveActors);
+        List<StallReport.Stall> stalls = new ArrayList<>();
+        for (AsyncProc actor: stalled) {
+            List<AsyncProc> providers = waitsFor.get(actor);
+            List<AsyncProc.Port> blockedPorts = new ArrayList<>();
+            for (AsyncProc.Port port: actor.getBlockedPorts()) {
+                if (port.isActive()) {
+                    blockedPorts.add(port);
+                }
+            }
+            stalls.add(new StallReport.Stall(actor, now - observations.get(actor).since, blockedPorts,
+                    providers == null ? Collections.emptyList() : providers));
+        }
+        return new StallReport(stalls, findCycles(stalled, waitsFor));
+    }
+
+    /**
+     * @param liveActors all actors under watch
+     * @return for each actor, the actors which can unblock its blocked ports
+     */
+    private Map<AsyncProc, List<AsyncProc>> waitsFor(Set<AsyncProc> liveActors) {
+        GraphSnapshot snapshot = GraphSnapshot.of(liveActors);
+        Map<AsyncProc, List<AsyncProc>> res = new IdentityHashMap<>();
+        for (GraphSnapshot.EdgeInfo edge: snapshot.getEdges()) {
+            AsyncProc publisher = edge.getFrom().actor;
+            AsyncProc subscriber = edge.getTo().actor;
+            if (subscriber == null || edge.getToPort() == null) {
+                continue;
+            }
+            if (!edge.getToPort().isReady() && edge.getToPort().isActive()) {
+                addWaiting(res, subscriber, publisher);
+            }
+            if (!edge.getFromPort().isReady() && edge.getFromPort().isActive()) {
+                addWaiting(res, publisher, subscriber);
+            }
+        }
+        for (Map.Entry<AsyncProc, Set<AsyncProc>> entry: dependencies.entrySet()) {
+            for (AsyncProc provider: entry.getValue()) {
+                addWaiting(res, entry.getKey(), provider);
+            }
+        }
+        return res;
+    }
+
+    private static void addWaiting(Map<AsyncProc, List<AsyncProc>> waitsFor, AsyncProc waiter, AsyncProc provider) {
+        List<AsyncProc> providers = waitsFor.computeIfAbsent(waiter, (k)->new ArrayList<>());
+        if (!providers.contains(provider)) {
+            providers.add(provider);
+        }
+    }
+
+    /**
+     * Finds strongly connected components of the wait-for graph restricted to stalled actors (Tarjan's algorithm).
+     * @return components with more than one actor, or with an actor which waits for itself
+     */
+    private static List<List<AsyncProc>> findCycles(List<AsyncProc> stalled, Map<AsyncProc, List<AsyncProc>> waitsFor) {
+        Set<AsyncProc> stalledSet = Collections.newSetFromMap(new IdentityHashMap<>());
+        stalledSet.addAll(stalled);
+        Map<AsyncProc, int[]> indexes = new IdentityHashMap<>(); // {index, lowlink}
+        ArrayDeque<AsyncProc> stack = new ArrayDeque<>();
+        Set<AsyncProc> onStack = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<List<AsyncProc>> res = new ArrayList<>();
+        for (AsyncProc actor: stalled) {
+            if (!indexes.containsKey(actor)) {
+                strongConnect(actor, stalledSet, waitsFor, indexes, stack, onStack, res);
+            }
+        }
+        return res;
+    }
+
+    private static void strongConnect(AsyncProc actor, Set<AsyncProc> stalled, Map<AsyncProc, List<AsyncProc>> waitsFor,
+                                      Map<AsyncProc, int[]> indexes, ArrayDeque<AsyncProc> stack,
+                                      Set<AsyncProc> onStack, List<List<AsyncProc>> res) {
+        int[] actorIndex = {indexes.size(), indexes.size()};
+        indexes.put(actor, actorIndex);
+        stack.push(actor);
+        onStack.add(actor);
+        List<AsyncProc> providers = waitsFor.getOrDefault(actor, Collections.emptyList());
+        boolean selfLoop = false;
+        for (AsyncProc provider: providers) {
+            if (!stalled.contains(provider)) {
+                continue;
+            }
+            if (provider == actor) {
+                selfLoop = true;
+            }
+            int[] providerIndex = indexes.get(provider);
+            if (providerIndex == null) {
+                strongConnect(provider, stalled, waitsFor, indexes, stack, onStack, res);
+                actorIndex[1] = Math.min(actorIndex[1], indexes.get(provider)[1]);
+            } else if (onStack.contains(provider)) {
+                actorIndex[1] = Math.min(actorIndex[1], providerIndex[0]);
+            }
+        }
+        if (actorIndex[1] != actorIndex[0]) {
+            return;
+        }
+        List<AsyncProc> component = new ArrayList<>();
+        AsyncProc member;
+        do {
+            member = stack.pop();
+            onStack.remove(member);
+            component.add(member);
+        } while (member != actor);
+        if (component.size() > 1 || selfLoop) {
+            Collections.reverse(component);
+            res.add(component);
+        }
+    }
+
+    private static class Observation {
+        final int fireCount;
+        final long since;
+
+        Observation(int fireCount, long since) {
+            this.fireCount = fireCount;
+            this.since = since;
+        }
+    }
+}
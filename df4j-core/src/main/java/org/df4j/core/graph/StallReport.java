@@ -0,0 +1,108 @@
+package org.df4j.core.graph;
+
+import org.df4j.core.actor.AsyncProc;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Result of a scan by {@link StallDetector}: actors blocked for too long, and wait-for cycles among them.
+ */
+public class StallReport {
+    private final List<Stall> stalls;
+    private final List<List<AsyncProc>> cycles;
+
+    StallReport(List<Stall> stalls, List<List<AsyncProc>> cycles) {
+        this.stalls = Collections.unmodifiableList(stalls);
+        this.cycles = Collections.unmodifiableList(cycles);
+    }
+
+    /**
+     * @return true if no stalled actors were found
+     */
+    public boolean isEmpty() {
+        return stalls.isEmpty();
+    }
+
+    public List<Stall> getStalls() {
+        return stalls;
+    }
+
+    /**
+     * @return groups of stalled actors, each actor of a group waiting for another actor of the same group
+     */
+    public List<List<AsyncProc>> getCycles() {
+        return cycles;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(stalls.size()).append(" stalled actor(s)");
+        for (Stall stall: stalls) {
+            sb.append("\n  ").append(stall);
+        }
+        for (List<AsyncProc> cycle: cycles) {
+            sb.append("\n  wait-for cycle:");
+            for (AsyncProc actor: cycle) {
+                sb.append(' ').append(GraphSnapshot.nameOf(actor)).append('@')
+                        .append(Integer.toHexString(System.identityHashCode(actor)));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * An actor in {@link AsyncProc.ActorState#Blocked} state which has not fired for too long.
+     */
+    public static class Stall {
+        private final AsyncProc actor;
+        private final long blockedNanos;
+        private final List<AsyncProc.Port> blockedPorts;
+        private final List<AsyncProc> waitsFor;
+
+        Stall(AsyncProc actor, long blockedNanos, List<AsyncProc.Port> blockedPorts, List<AsyncProc> waitsFor) {
+            this.actor = actor;
+            this.blockedNanos = blockedNanos;
+            this.blockedPorts = Collections.unmodifiableList(blockedPorts);
+            this.waitsFor = Collections.unmodifiableList(waitsFor);
+        }
+
+        public AsyncProc getActor() {
+            return actor;
+        }
+
+        /**
+         * @return time since the actor was first seen blocked without firing
+         */
+        public long getBlockedNanos() {
+            return blockedNanos;
+        }
+
+        /**
+         * @return the ports which were blocked during the scan
+         */
+        public List<AsyncProc.Port> getBlockedPorts() {
+            return blockedPorts;
+        }
+
+        /**
+         * @return the actors which can unblock the blocked ports, as far as known
+         */
+        public List<AsyncProc> getWaitsFor() {
+            return waitsFor;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(GraphSnapshot.nameOf(actor)).append('@').append(Integer.toHexString(System.identityHashCode(actor)))
+                    .append(" blocked for ").append(TimeUnit.NANOSECONDS.toMillis(blockedNanos)).append(" ms by");
+            for (AsyncProc.Port port: blockedPorts) {
+                sb.append(' ').append(port.getPortNum()).append(':').append(GraphSnapshot.nameOf(port));
+            }
+            return sb.toString();
+        }
+    }
+}
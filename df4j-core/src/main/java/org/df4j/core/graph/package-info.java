@@ -0,0 +1,9 @@
+/**
+ * Introspection of live dataflow graphs: snapshots of actors, their ports and subscription edges,
+ * exported as DOT or JSON to find backpressure hot spots,
+ * and {@link org.df4j.core.graph.StallDetector}, which reports actors blocked for too long and wait-for cycles.
+ *
+ * Ports take part in the snapshot by implementing {@link org.df4j.core.graph.BufferedPort},
+ * {@link org.df4j.core.graph.PublisherPort} and {@link org.df4j.core.graph.PortSubscriber}.
+ */
+package org.df4j.core.graph;
@@ -0,0 +1,235 @@
+package org.df4j.core.port;
+
+import org.df4j.core.actor.AsyncProc;
+import org.df4j.core.graph.BufferedPort;
+import org.df4j.protocol.ByteFlow;
+import org.reactivestreams.Subscription;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Input port for bytes. Capacity and demand are counted in bytes.
+ * Received buffers are stored as they are, without copying, and are taken out as a whole or in slices.
+ * Is ready when has at least one byte or is completed.
+ */
+public class InpBytes extends CompletablePort implements ByteFlow.Subscriber, BufferedPort {
+    public static final int DEFAULT_CAPACITY = 8192;
+    private final int capacity;
+    /** guarded by this */
+    private final ArrayDeque<ByteBuffer> buffers = new ArrayDeque<>();
+    /** guarded by this */
+    private int bufferedBytes = 0;
+    protected Subscription subscription;
+    private long requestedCount;
+    private int requestThreshold = 1;
+
+    /**
+     * creates a port which is subscribed to the {@code #ByteFlow.Publisher}
+     *
+     * @param parent   {@link AsyncProc} to wich this port belongs
+     * @param capacity max number of buffered bytes
+     */
+    public InpBytes(AsyncProc parent, int capacity) {
+        super(parent);
+        if (capacity <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.capacity = capacity;
+    }
+
+    public InpBytes(AsyncProc parent) {
+        this(parent, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * see {@link InpFlow#setRequestThreshold(int)}
+     * @param threshold the number of bytes, from 1 (request after each extraction, the default) to the capacity
+     */
+    public synchronized void setRequestThreshold(int threshold) {
+        if (threshold <= 0 || threshold > capacity) {
+            throw new IllegalArgumentException();
+        }
+        requestThreshold = threshold;
+    }
+
+    public synchronized boolean isCompleted() {
+        return completed && buffers.isEmpty();
+    }
+
+    /**
+     * @return number of buffered bytes
+     */
+    @Override
+    public synchronized int getBufferedCount() {
+        return bufferedBytes;
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public synchronized long getRequestedCount() {
+        return subscription == null ? -1 : requestedCount;
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+        long n;
+        synchronized (this) {
+            if (this.subscription != null) {
+                subscription.cancel(); // this is dictated by the spec.
+                return;
+            }
+            this.subscription = subscription;
+            n = capacity - bufferedBytes;
+            requestedCount = n;
+        }
+        if (n > 0) {
+            subscription.request(n);
+        }
+    }
+
+    /**
+     * normally this method is called by ByteFlow.Publisher.
+     * But before the port is subscribed, this method can be called directly.
+     * A writable buffer is stored as a read-only view.
+     *
+     * @param buffer bytes to store, from the position to the limit
+     * @throws IllegalStateException    if no room left to store all the bytes
+     */
+    @Override
+    public synchronized void onNext(ByteBuffer buffer) {
+        int n = buffer.remaining();
+        if (n > capacity - bufferedBytes) {
+            throw new IllegalStateException();
+        }
+        if (completed || n == 0) {
+            return;
+        }
+        if (subscription != null) {
+            requestedCount -= n;
+        }
+        buffers.add(buffer.isReadOnly() ? buffer : buffer.asReadOnlyBuffer());
+        bufferedBytes += n;
+        unblock();
+    }
+
+    /**
+     * must be called under the lock, after bytes are extracted
+     * @return number of bytes to request from the subscription, or 0 if the request is postponed
+     */
+    private long _toRequest() {
+        if (buffers.isEmpty() && !completed) {
+            block();
+        }
+        if (subscription == null) {
+            return 0;
+        }
+        long n = capacity - bufferedBytes - requestedCount;
+        if (n < requestThreshold) {
+            return 0;
+        }
+        requestedCount += n;
+        return n;
+    }
+
+    /**
+     * takes bytes as they were received, in one buffer
+     * @return the first buffer, or null if none is available
+     */
+    public ByteBuffer poll() {
+        return poll(Integer.MAX_VALUE);
+    }
+
+    /**
+     * takes bytes as they were received, in one buffer or a slice of it
+     * @param maxBytes max number of bytes to take
+     * @return the first buffer or its head slice, or null if no bytes are available
+     */
+    public ByteBuffer poll(int maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException();
+        }
+        ByteBuffer res;
+        long n;
+        synchronized (this) {
+            ByteBuffer head = buffers.peek();
+            if (head == null) {
+                return null;
+            }
+            int remaining = head.remaining();
+            if (remaining <= maxBytes) {
+                res = buffers.poll();
+                bufferedBytes -= remaining;
+            } else {
+                res = OutBytes.split(head, maxBytes);
+                bufferedBytes -= maxBytes;
+            }
+            n = _toRequest();
+        }
+        if (n > 0) {
+            subscription.request(n);
+        }
+        return res;
+    }
+
+    /**
+     * @return the first buffer
+     * @throws CompletionException if the port is completed and has no bytes
+     * @throws IllegalStateException if the port has no bytes and is not completed
+     */
+    public ByteBuffer remove() {
+        ByteBuffer res = poll();
+        if (res == null) {
+            synchronized (this) {
+                if (completed) {
+                    throw new CompletionException(completionException);
+                }
+            }
+            throw new IllegalStateException();
+        }
+        return res;
+    }
+
+    /**
+     * Copies available bytes to the destination, for consumers which need contiguous bytes,
+     * and requests the freed room at once.
+     * @param dst buffer to copy bytes to, up to its limit
+     * @return number of bytes copied
+     */
+    public int drainTo(ByteBuffer dst) {
+        int count = 0;
+        long n;
+        synchronized (this) {
+            while (dst.hasRemaining()) {
+                ByteBuffer head = buffers.peek();
+                if (head == null) {
+                    break;
+                }
+                int remaining = head.remaining();
+                if (remaining <= dst.remaining()) {
+                    dst.put(head);
+                    buffers.poll();
+                    count += remaining;
+                } else {
+                    int k = dst.remaining();
+                    dst.put(OutBytes.split(head, k));
+                    count += k;
+                }
+            }
+            if (count == 0) {
+                return 0;
+            }
+            bufferedBytes -= count;
+            n = _toRequest();
+        }
+        if (n > 0) {
+            subscription.request(n);
+        }
+        return count;
+    }
+}
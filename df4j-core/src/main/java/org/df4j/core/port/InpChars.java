@@ -3,98 +3,73 @@ package org.df4j.core.port;
 import org.df4j.core.actor.AsyncProc;
 import org.df4j.core.util.CharBuffer;
 import org.df4j.protocol.CharFlow;
-import org.reactivestreams.Subscription;
 
-import java.util.concurrent.CompletionException;
-
-public class InpChars extends CompletablePort implements CharFlow.Subscriber {
-
-    private CharBuffer charBuffer;
-    protected Subscription subscription;
-    private long requestedCount;
+/**
+ * Input port for characters; tokens are not boxed.
+ */
+public class InpChars extends InpPrimitives implements CharFlow.Subscriber {
+    private final CharBuffer buffer;
 
     /**
-     * creates a port which is subscribed to the {@code #Flow.Publisher}
+     * creates a port which is subscribed to the {@code #CharFlow.Publisher}
      *
      * @param parent   {@link AsyncProc} to wich this port belongs
      * @param capacity required capacity
      */
     public InpChars(AsyncProc parent, int capacity) {
-        super(parent);
-        if (capacity <= 0) {
-            throw new IllegalArgumentException();
-        }
-        charBuffer = new CharBuffer(capacity);
+        this(parent, new CharBuffer(capacity));
     }
 
-    public InpChars(AsyncProc parent) {
-        this(parent, 16);
+    private InpChars(AsyncProc parent, CharBuffer buffer) {
+        super(parent, buffer);
+        this.buffer = buffer;
     }
 
-    public boolean isCompleted() {
-        synchronized (transition) {
-            return completed && charBuffer.isEmpty();
-        }
+    public InpChars(AsyncProc parent) {
+        this(parent, 16);
     }
 
+    /**
+     * normally this method is called by CharFlow.Publisher.
+     * But before the port is subscribed, this method can be called directly.
+     *
+     * @param ch token to store
+     * @throws IllegalStateException    if no room left to store argument
+     */
     @Override
-    public void onSubscribe(Subscription subscription) {
+    public void onNext(char ch) {
         synchronized (transition) {
-            if (this.subscription != null) {
-                subscription.cancel(); // this is dictated by the spec.
+            if (!_beforeStore(1)) {
                 return;
             }
-            this.subscription = subscription;
-            requestedCount = charBuffer.remainingCapacity() - requestedCount;
-            if (charBuffer.isEmpty()) {
-                block();
-            }
+            buffer.add(ch);
+            unblock();
         }
-        subscription.request(requestedCount);
     }
 
     /**
-     * normally this method is called by Flow.Publisher.
-     * But before the port is subscribed, this method can be called directly.
+     * stores several characters under one lock
      *
-     * @param ch token to store
-     * @throws IllegalArgumentException when argument is null
-     * @throws IllegalStateException    if no room left to store argument
+     * @param buf array with characters
+     * @param off index of the first character
+     * @param len number of characters
+     * @throws IllegalStateException    if no room left to store all the characters
      */
     @Override
-    public void onNext(char ch) {
+    public void onNext(char[] buf, int off, int len) {
         synchronized (transition) {
-            if (charBuffer.buffIsFull()) {
-                throw new IllegalStateException();
-            }
-            if (isCompleted()) {
+            if (!_beforeStore(len)) {
                 return;
             }
-            if (subscription != null) {
-                requestedCount--;
-            }
-            charBuffer.add(ch);
-            long toRequest = charBuffer.remainingCapacity() - requestedCount;
-            if (toRequest > 0) {
-                requestedCount += toRequest;
-                subscription.request(toRequest);
-            }
+            buffer.add(buf, off, len);
             unblock();
         }
     }
 
     public char current() {
         synchronized (transition) {
-            if (!isReady()) {
-                throw new IllegalStateException();
-            }
-            if (charBuffer.isEmpty()) {
-                if (isCompleted()) {
-                    throw new CompletionException(completionException);
-                }
-                throw new IllegalStateException();
-            }
-            return charBuffer.current();
+            _checkNotEmpty();
+            return buffer.current();
         }
     }
 
@@ -102,27 +77,32 @@ public class InpChars extends CompletablePort implements CharFlow.Subscriber {
         long n;
         char res;
         synchronized (transition) {
-            if (!isReady()) {
-                throw new IllegalStateException();
-            }
-            if (isCompleted()) {
-                throw new CompletionException(completionException);
-            }
-            if (charBuffer.isEmpty()) {
-                throw new IllegalStateException();
-            }
-            res = charBuffer.remove();
-            if (charBuffer.isEmpty() && !completed) {
-                block();
-            }
-            if (subscription == null) {
-                return res;
-            }
-            n = charBuffer.remainingCapacity();
-            requestedCount += n;
+            _checkNotEmpty();
+            res = buffer.remove();
+            n = _afterRemove();
         }
-        subscription.request(n);
+        request(n);
         return res;
     }
 
+    /**
+     * Moves available characters to the array under one lock, and requests the freed room at once.
+     * @param dst array to move characters to
+     * @param off index in the array
+     * @param len max number of characters to move
+     * @return number of characters moved, 0 if none is available
+     */
+    public int drainTo(char[] dst, int off, int len) {
+        long n;
+        int count;
+        synchronized (transition) {
+            count = buffer.remove(dst, off, len);
+            if (count == 0) {
+                return 0;
+            }
+            n = _afterRemove();
+        }
+        request(n);
+        return count;
+    }
 }
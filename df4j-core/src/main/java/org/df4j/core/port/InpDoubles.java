@@ -0,0 +1,108 @@
+package org.df4j.core.port;
+
+import org.df4j.core.actor.AsyncProc;
+import org.df4j.core.util.DoubleBuffer;
+import org.df4j.protocol.DoubleFlow;
+
+/**
+ * Input port for primitive doubles, like {@link InpChars}; tokens are not boxed.
+ */
+public class InpDoubles extends InpPrimitives implements DoubleFlow.Subscriber {
+    private final DoubleBuffer buffer;
+
+    /**
+     * creates a port which is subscribed to the {@code #DoubleFlow.Publisher}
+     *
+     * @param parent   {@link AsyncProc} to wich this port belongs
+     * @param capacity required capacity
+     */
+    public InpDoubles(AsyncProc parent, int capacity) {
+        this(parent, new DoubleBuffer(capacity));
+    }
+
+    private InpDoubles(AsyncProc parent, DoubleBuffer buffer) {
+        super(parent, buffer);
+        this.buffer = buffer;
+    }
+
+    public InpDoubles(AsyncProc parent) {
+        this(parent, 16);
+    }
+
+    /**
+     * normally this method is called by DoubleFlow.Publisher.
+     * But before the port is subscribed, this method can be called directly.
+     *
+     * @param value token to store
+     * @throws IllegalStateException    if no room left to store argument
+     */
+    @Override
+    public void onNext(double value) {
+        synchronized (transition) {
+            if (!_beforeStore(1)) {
+                return;
+            }
+            buffer.add(value);
+            unblock();
+        }
+    }
+
+    /**
+     * stores several doubles under one lock
+     *
+     * @param buf array with doubles
+     * @param off index of the first double
+     * @param len number of doubles
+     * @throws IllegalStateException    if no room left to store all the doubles
+     */
+    @Override
+    public void onNext(double[] buf, int off, int len) {
+        synchronized (transition) {
+            if (!_beforeStore(len)) {
+                return;
+            }
+            buffer.add(buf, off, len);
+            unblock();
+        }
+    }
+
+    public double current() {
+        synchronized (transition) {
+            _checkNotEmpty();
+            return buffer.current();
+        }
+    }
+
+    public double remove() {
+        long n;
+        double res;
+        synchronized (transition) {
+            _checkNotEmpty();
+            res = buffer.remove();
+            n = _afterRemove();
+        }
+        request(n);
+        return res;
+    }
+
+    /**
+     * Moves available doubles to the array under one lock, and requests the freed room at once.
+     * @param dst array to move doubles to
+     * @param off index in the array
+     * @param len max number of doubles to move
+     * @return number of doubles moved, 0 if none is available
+     */
+    public int drainTo(double[] dst, int off, int len) {
+        long n;
+        int count;
+        synchronized (transition) {
+            count = buffer.remove(dst, off, len);
+            if (count == 0) {
+                return 0;
+            }
+            n = _afterRemove();
+        }
+        request(n);
+        return count;
+    }
+}
@@ -2,23 +2,34 @@ package org.df4j.core.port;
 
 import org.df4j.core.actor.AsyncProc;
 import org.df4j.core.actor.TransitionHolder;
+import org.df4j.core.graph.BufferedPort;
+import org.df4j.core.util.Waiters;
 import org.reactivestreams.Subscriber;
 import org.reactivestreams.Subscription;
 
 import java.nio.BufferOverflowException;
 import java.util.ArrayDeque;
+import java.util.Collection;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Token storage with standard Subscriber&lt;T&gt; interface.
+ * <p>
+ * By default, the free room is requested from the publisher after each extracted token.
+ * With {@link #setRequestThreshold(int)}, requests are postponed until enough room accumulates,
+ * which saves request round-trips with publishers running on other threads.
  *
  * @param <T> type of accepted tokens.
  */
-public class InpFlow<T> extends CompletablePort implements InpMessagePort<T>, Subscriber<T> {
+public class InpFlow<T> extends CompletablePort implements InpMessagePort<T>, Subscriber<T>, BufferedPort {
     private int bufferCapacity;
     private ArrayDeque<T> tokens;
     protected Subscription subscription;
     private long requestedCount;
+    /** min number of free places to request from the publisher */
+    private int requestThreshold = 1;
+    private final Waiters waiters = new Waiters();
 
     /**
      * creates a port which is subscribed to the {@code #Flow.Publisher}
@@ -46,6 +57,24 @@ public class InpFlow<T> extends CompletablePort implements InpMessagePort<T>, Su
         }
         bufferCapacity = capacity;
         tokens = new ArrayDeque<>(capacity);
+        requestThreshold = Math.min(requestThreshold, capacity);
+    }
+
+    /**
+     * Sets how many places must be free in the buffer before they are requested from the publisher.
+     * For example, {@code capacity*3/4} means that the publisher is asked for more tokens
+     * only when 75% of the buffer has drained.
+     * @param threshold the number of places, from 1 (request after each token, the default) to the capacity
+     */
+    public synchronized void setRequestThreshold(int threshold) {
+        if (threshold <= 0 || threshold > bufferCapacity) {
+            throw new IllegalArgumentException();
+        }
+        requestThreshold = threshold;
+    }
+
+    public synchronized int getRequestThreshold() {
+        return requestThreshold;
     }
 
     private boolean buffIsFull() {
@@ -67,6 +96,21 @@ public class InpFlow<T> extends CompletablePort implements InpMessagePort<T>, Su
         return completed && tokens.isEmpty();
     }
 
+    @Override
+    public synchronized int getBufferedCount() {
+        return tokens.size();
+    }
+
+    @Override
+    public synchronized int getCapacity() {
+        return bufferCapacity;
+    }
+
+    @Override
+    public synchronized long getRequestedCount() {
+        return subscription == null ? -1 : requestedCount;
+    }
+
     public synchronized T current() {
         return tokens.peek();
     }
@@ -111,29 +155,110 @@ public class InpFlow<T> extends CompletablePort implements InpMessagePort<T>, Su
         }
         tokens.add(message);
         unblock();
+        waiters.signalAll();
+    }
+
+    @Override
+    protected synchronized void _onComplete(Throwable throwable) {
+        super._onComplete(throwable);
+        waiters.signalAll();
     }
 
     public T poll() {
+        return poll(true);
+    }
+
+    /**
+     * @param mustBeReady if true, the port must be ready; if false, the port may be empty
+     * @return next token, or null if the port is completed (mustBeReady) or empty (!mustBeReady)
+     * @throws IllegalStateException if mustBeReady and the port is not ready
+     * @throws CompletionException if !mustBeReady and the port is completed and empty
+     */
+    private T poll(boolean mustBeReady) {
+        Subscription sub;
         long n;
         T res;
         synchronized(this) {
-            if (!isReady()) {
-                throw new IllegalStateException();
+            if (mustBeReady) {
+                if (!isReady()) {
+                    throw new IllegalStateException();
+                }
+            } else if (tokens.isEmpty()) {
+                if (completed) {
+                    throw new CompletionException(completionException);
+                }
+                return null;
             }
             res = tokens.poll();
             if (tokens.isEmpty() && !completed) {
                 block();
             }
-            if (subscription == null) {
-                return res;
-            }
-            n = remainingCapacity();
-            requestedCount += n;
+            sub = subscription;
+            n = _toRequest();
+        }
+        if (n > 0) {
+            sub.request(n);
         }
-        subscription.request(n);
         return res;
     }
 
+    /**
+     * must be called under the lock, after tokens are extracted
+     * @return number of tokens to request from the subscription, or 0 if the request is postponed
+     */
+    private long _toRequest() {
+        if (subscription == null) {
+            return 0;
+        }
+        long n = remainingCapacity();
+        if (n < requestThreshold) {
+            return 0;
+        }
+        requestedCount += n;
+        return n;
+    }
+
+    /**
+     * Moves all available tokens to the collection, see {@link #drainTo(Collection, int)}.
+     * @param c the collection to add tokens to
+     * @return number of tokens moved
+     */
+    public int drainTo(Collection<? super T> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Moves available tokens to the collection under a single lock, and requests the freed room at once,
+     * so an action can consume a batch of tokens per firing.
+     * Like {@link #poll()}, it does not wait for tokens; unlike {@link #poll()}, it does not require the port to be ready.
+     * @param c the collection to add tokens to
+     * @param maxElements max number of tokens to move
+     * @return number of tokens moved
+     */
+    public int drainTo(Collection<? super T> c, int maxElements) {
+        Subscription sub;
+        long n;
+        int count = 0;
+        synchronized(this) {
+            while (count < maxElements && !tokens.isEmpty()) {
+                c.add(tokens.poll());
+                count++;
+            }
+            if (count == 0) {
+                return 0;
+            }
+            if (tokens.isEmpty() && !completed) {
+                block();
+            }
+            sub = subscription;
+            n = _toRequest();
+        }
+        if (n > 0) {
+            sub.request(n);
+        }
+        return count;
+    }
+
     @Override
     public T remove() throws CompletionException {
         T res = poll();
@@ -143,6 +268,33 @@ public class InpFlow<T> extends CompletablePort implements InpMessagePort<T>, Su
         return res;
     }
 
+    /**
+     * Extracts next token, blocking the current thread while the port is empty.
+     * Waiting thread is parked, not waiting on a monitor, so a virtual thread releases its carrier.
+     * This method is for threads which consume tokens directly, and not for {@link AsyncProc#runAction()},
+     * which is called only when the port is ready.
+     *
+     * @return next token
+     * @throws CompletionException when the port is completed and empty
+     * @throws InterruptedException when the current thread is interrupted
+     */
+    public T take() throws InterruptedException {
+        return waiters.await(()->poll(false));
+    }
+
+    /**
+     * Extracts next token, blocking the current thread while the port is empty, see {@link #take()}.
+     *
+     * @param timeout max time to wait
+     * @param unit time unit of timeout
+     * @return next token, or null if the timeout elapsed
+     * @throws CompletionException when the port is completed and empty
+     * @throws InterruptedException when the current thread is interrupted
+     */
+    public T poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return waiters.await(()->poll(false), unit.toNanos(timeout));
+    }
+
     public void cancel() {
         Subscription sub;
         synchronized (transition) {
@@ -0,0 +1,108 @@
+package org.df4j.core.port;
+
+import org.df4j.core.actor.AsyncProc;
+import org.df4j.core.util.IntBuffer;
+import org.df4j.protocol.IntFlow;
+
+/**
+ * Input port for primitive ints, like {@link InpChars}; tokens are not boxed.
+ */
+public class InpInts extends InpPrimitives implements IntFlow.Subscriber {
+    private final IntBuffer buffer;
+
+    /**
+     * creates a port which is subscribed to the {@code #IntFlow.Publisher}
+     *
+     * @param parent   {@link AsyncProc} to wich this port belongs
+     * @param capacity required capacity
+     */
+    public InpInts(AsyncProc parent, int capacity) {
+        this(parent, new IntBuffer(capacity));
+    }
+
+    private InpInts(AsyncProc parent, IntBuffer buffer) {
+        super(parent, buffer);
+        this.buffer = buffer;
+    }
+
+    public InpInts(AsyncProc parent) {
+        this(parent, 16);
+    }
+
+    /**
+     * normally this method is called by IntFlow.Publisher.
+     * But before the port is subscribed, this method can be called directly.
+     *
+     * @param value token to store
+     * @throws IllegalStateException    if no room left to store argument
+     */
+    @Override
+    public void onNext(int value) {
+        synchronized (transition) {
+            if (!_beforeStore(1)) {
+                return;
+            }
+            buffer.add(value);
+            unblock();
+        }
+    }
+
+    /**
+     * stores several ints under one lock
+     *
+     * @param buf array with ints
+     * @param off index of the first int
+     * @param len number of ints
+     * @throws IllegalStateException    if no room left to store all the ints
+     */
+    @Override
+    public void onNext(int[] buf, int off, int len) {
+        synchronized (transition) {
+            if (!_beforeStore(len)) {
+                return;
+            }
+            buffer.add(buf, off, len);
+            unblock();
+        }
+    }
+
+    public int current() {
+        synchronized (transition) {
+            _checkNotEmpty();
+            return buffer.current();
+        }
+    }
+
+    public int remove() {
+        long n;
+        int res;
+        synchronized (transition) {
+            _checkNotEmpty();
+            res = buffer.remove();
+            n = _afterRemove();
+        }
+        request(n);
+        return res;
+    }
+
+    /**
+     * Moves available ints to the array under one lock, and requests the freed room at once.
+     * @param dst array to move ints to
+     * @param off index in the array
+     * @param len max number of ints to move
+     * @return number of ints moved, 0 if none is available
+     */
+    public int drainTo(int[] dst, int off, int len) {
+        long n;
+        int count;
+        synchronized (transition) {
+            count = buffer.remove(dst, off, len);
+            if (count == 0) {
+                return 0;
+            }
+            n = _afterRemove();
+        }
+        request(n);
+        return count;
+    }
+}
@@ -0,0 +1,154 @@
+package org.df4j.core.port;
+
+import org.df4j.core.actor.AsyncProc;
+import org.df4j.core.actor.TransitionHolder;
+import org.df4j.core.graph.BufferedPort;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Conflating input port, which keeps only the most recent token.
+ * <p>
+ * Requests unbounded demand from the publisher, and stores each token in a single slot,
+ * overwriting the token which was not yet extracted; such stale tokens are dropped.
+ * So the parent actor fires at most once per new token, and the processing rate is governed by the actor,
+ * not by the publisher.
+ * <p>
+ * The slot is changed atomically, and the port is blocked and unblocked under the port lock,
+ * which is taken only by the action which empties the slot, and by a publisher which finds the port blocked.
+ * Tokens must be extracted by the parent actor only.
+ *
+ * @param <T> type of accepted tokens.
+ */
+public class InpLatest<T> extends CompletablePort implements InpMessagePort<T>, Subscriber<T>, BufferedPort {
+    private final AtomicReference<T> slot = new AtomicReference<>();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile Subscription subscription;
+
+    /**
+     * @param parent {@link AsyncProc} to which this port belongs
+     */
+    public InpLatest(TransitionHolder parent) {
+        super(parent);
+    }
+
+    /**
+     * @return number of tokens overwritten before they were extracted
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    @Override
+    public int getBufferedCount() {
+        return slot.get() == null ? 0 : 1;
+    }
+
+    @Override
+    public int getCapacity() {
+        return 1;
+    }
+
+    /**
+     * @return {@link Long#MAX_VALUE} as the demand is unbounded, or -1 if not subscribed
+     */
+    @Override
+    public long getRequestedCount() {
+        return subscription == null ? -1 : Long.MAX_VALUE;
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+        synchronized (this) {
+            if (this.subscription != null) {
+                subscription.cancel(); // this is dictated by the spec.
+                return;
+            }
+            this.subscription = subscription;
+        }
+        subscription.request(Long.MAX_VALUE);
+    }
+
+    /**
+     * normally this method is called by Flow.Publisher.
+     * But before the port is subscribed, this method can be called directly, also from several threads.
+     * @param message token to store
+     */
+    @Override
+    public void onNext(T message) {
+        if (message == null) {
+            throw new NullPointerException();
+        }
+        if (completed) {
+            return;
+        }
+        if (slot.getAndSet(message) != null) {
+            dropped.incrementAndGet();
+        } else if (!isReady()) {
+            synchronized (this) {
+                // the consumer could take the token and block the port after it was stored
+                if (slot.get() != null) {
+                    unblock();
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean isCompleted() {
+        return completed && slot.get() == null;
+    }
+
+    @Override
+    public T current() {
+        return slot.get();
+    }
+
+    @Override
+    public T poll() {
+        T res = slot.getAndSet(null);
+        if (res == null) {
+            return null;
+        }
+        if (slot.get() == null) {
+            synchronized (this) {
+                if (slot.get() == null && !completed) {
+                    block();
+                    // a token could come before the port was blocked, and its publisher could find the port ready
+                    if (slot.get() != null) {
+                        unblock();
+                    }
+                }
+            }
+        }
+        return res;
+    }
+
+    @Override
+    public T remove() throws CompletionException {
+        T res = poll();
+        if (res == null) {
+            if (!completed) {
+                throw new IllegalStateException();
+            }
+            throw new CompletionException(completionException);
+        }
+        return res;
+    }
+
+    public void cancel() {
+        Subscription sub;
+        synchronized (this) {
+            sub = subscription;
+            subscription = null;
+        }
+        onComplete();
+        if (sub != null) {
+            sub.cancel();
+        }
+    }
+}
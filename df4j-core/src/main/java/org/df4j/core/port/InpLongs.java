@@ -0,0 +1,108 @@
+package org.df4j.core.port;
+
+import org.df4j.core.actor.AsyncProc;
+import org.df4j.core.util.LongBuffer;
+import org.df4j.protocol.LongFlow;
+
+/**
+ * Input port for primitive longs, like {@link InpChars}; tokens are not boxed.
+ */
+public class InpLongs extends InpPrimitives implements LongFlow.Subscriber {
+    private final LongBuffer buffer;
+
+    /**
+     * creates a port which is subscribed to the {@code #LongFlow.Publisher}
+     *
+     * @param parent   {@link AsyncProc} to wich this port belongs
+     * @param capacity required capacity
+     */
+    public InpLongs(AsyncProc parent, int capacity) {
+        this(parent, new LongBuffer(capacity));
+    }
+
+    private InpLongs(AsyncProc parent, LongBuffer buffer) {
+        super(parent, buffer);
+        this.buffer = buffer;
+    }
+
+    public InpLongs(AsyncProc parent) {
+        this(parent, 16);
+    }
+
+    /**
+     * normally this method is called by LongFlow.Publisher.
+     * But before the port is subscribed, this method can be called directly.
+     *
+     * @param value token to store
+     * @throws IllegalStateException    if no room left to store argument
+     */
+    @Override
+    public void onNext(long value) {
+        synchronized (transition) {
+            if (!_beforeStore(1)) {
+                return;
+            }
+            buffer.add(value);
+            unblock();
+        }
+    }
+
+    /**
+     * stores several longs under one lock
+     *
+     * @param buf array with longs
+     * @param off index of the first long
+     * @param len number of longs
+     * @throws IllegalStateException    if no room left to store all the longs
+     */
+    @Override
+    public void onNext(long[] buf, int off, int len) {
+        synchronized (transition) {
+            if (!_beforeStore(len)) {
+                return;
+            }
+            buffer.add(buf, off, len);
+            unblock();
+        }
+    }
+
+    public long current() {
+        synchronized (transition) {
+            _checkNotEmpty();
+            return buffer.current();
+        }
+    }
+
+    public long remove() {
+        long n;
+        long res;
+        synchronized (transition) {
+            _checkNotEmpty();
+            res = buffer.remove();
+            n = _afterRemove();
+        }
+        request(n);
+        return res;
+    }
+
+    /**
+     * Moves available longs to the array under one lock, and requests the freed room at once.
+     * @param dst array to move longs to
+     * @param off index in the array
+     * @param len max number of longs to move
+     * @return number of longs moved, 0 if none is available
+     */
+    public int drainTo(long[] dst, int off, int len) {
+        long n;
+        int count;
+        synchronized (transition) {
+            count = buffer.remove(dst, off, len);
+            if (count == 0) {
+                return 0;
+            }
+            n = _afterRemove();
+        }
+        request(n);
+        return count;
+    }
+}
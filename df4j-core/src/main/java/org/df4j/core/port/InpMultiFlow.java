@@ -1,7 +1,10 @@
 package org.df4j.core.port;
 
 import org.df4j.core.actor.AsyncProc;
+import org.df4j.core.graph.BufferedPort;
+import org.df4j.core.graph.PortSubscriber;
 import org.df4j.core.util.LinkedQueue;
+import org.df4j.core.util.Waiters;
 import org.df4j.protocol.SimpleSubscription;
 import org.reactivestreams.Publisher;
 import org.reactivestreams.Subscriber;
@@ -9,17 +12,20 @@ import org.reactivestreams.Subscription;
 
 import java.util.ArrayDeque;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * An input port capable to subscribe to multiple Publishers
  */
-public class InpMultiFlow<T> extends CompletablePort {//}, InpMessagePort<T> {
+public class InpMultiFlow<T> extends CompletablePort implements BufferedPort {//}, InpMessagePort<T> {
     protected int capacity;
     protected ArrayDeque<T> tokens;
     /** receivers with value but buffer is full */
     private AtomicInteger receiverCounter= new AtomicInteger(0);
     private LinkedQueue<Receiver> pendingReceivers = new LinkedQueue<>();
+    /** threads blocked in {@link #put(Object)}, {@link #take()} and {@link #poll(long, TimeUnit)} */
+    private final Waiters waiters = new Waiters();
 
     /**
      * @param parent {@link AsyncProc} to which this port belongs
@@ -82,23 +88,34 @@ public class InpMultiFlow<T> extends CompletablePort {//}, InpMessagePort<T> {
         }
         tokens.add(token);
         unblock();
-        notifyAll();
+        waiters.signalAll();
         return true;
     }
 
-    public synchronized void put(T token) throws InterruptedException {
+    @Override
+    protected synchronized void _onComplete(Throwable throwable) {
+        super._onComplete(throwable);
+        waiters.signalAll();
+    }
+
+    /**
+     * Inserts next token, blocking the current thread while the buffer is full.
+     * Waiting thread is parked, so a virtual thread releases its carrier.
+     * @param token token to insert
+     * @throws InterruptedException when the current thread is interrupted
+     */
+    public void put(T token) throws InterruptedException {
         if (token == null) {
             throw new NullPointerException();
         }
-        for (;;) {
-            if (completed) {
-                throw new IllegalStateException();
-            }
-            if (offer(token)) {
-                return;
+        waiters.await(()->{
+            synchronized (this) {
+                if (completed) {
+                    throw new IllegalStateException();
+                }
+                return offer(token) ? Boolean.TRUE : null;
             }
-            wait();
-        }
+        });
     }
 
     /**
@@ -123,7 +140,7 @@ public class InpMultiFlow<T> extends CompletablePort {//}, InpMessagePort<T> {
             if (res == null) {
                 return null;
             }
-            notifyAll();
+            waiters.signalAll();
             receiver = pendingReceivers.poll();
             if (receiver == null) {
                 return res;
@@ -133,6 +150,29 @@ public class InpMultiFlow<T> extends CompletablePort {//}, InpMessagePort<T> {
         return res;
     }
 
+    /**
+     * Extracts next token, blocking the current thread while the buffer is empty.
+     * Waiting thread is parked, so a virtual thread releases its carrier.
+     * @return next token
+     * @throws CompletionException when the port is completed and empty
+     * @throws InterruptedException when the current thread is interrupted
+     */
+    public T take() throws InterruptedException {
+        return waiters.await(this::poll);
+    }
+
+    /**
+     * Extracts next token, blocking the current thread while the buffer is empty, see {@link #take()}.
+     * @param timeout max time to wait
+     * @param unit time unit of timeout
+     * @return next token, or null if the timeout elapsed
+     * @throws CompletionException when the port is completed and empty
+     * @throws InterruptedException when the current thread is interrupted
+     */
+    public T poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return waiters.await(this::poll, unit.toNanos(timeout));
+    }
+
     /**
      * @return the value received from a subscriber
      * @throws IllegalStateException if no value has been received yet or that value has been removed.
@@ -149,7 +189,25 @@ public class InpMultiFlow<T> extends CompletablePort {//}, InpMessagePort<T> {
         return tokens.size();
     }
 
-    class Receiver implements Subscriber<T>, SimpleSubscription {
+    @Override
+    public synchronized int getBufferedCount() {
+        return tokens.size();
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return -1, as each receiver requests tokens one by one
+     */
+    @Override
+    public long getRequestedCount() {
+        return -1;
+    }
+
+    class Receiver implements Subscriber<T>, SimpleSubscription, PortSubscriber {
         Subscription subscription;
         T token = null;
         boolean completed;
@@ -157,6 +215,11 @@ public class InpMultiFlow<T> extends CompletablePort {//}, InpMessagePort<T> {
         private boolean cancelled;
         {        receiverCounter.addAndGet(1);
         }
+        @Override
+        public AsyncProc.Port getPort() {
+            return InpMultiFlow.this;
+        }
+
         @Override
         public void onSubscribe(Subscription s) {
             subscription = s;
@@ -174,6 +237,7 @@ public class InpMultiFlow<T> extends CompletablePort {//}, InpMessagePort<T> {
                     tokens.add(t);
                 }
             }
+            waiters.signalAll();
             subscription.request(1);
         }
 
@@ -0,0 +1,163 @@
+package org.df4j.core.port;
+
+import org.df4j.core.actor.AsyncProc;
+import org.df4j.core.graph.BufferedPort;
+import org.df4j.core.util.PrimitiveBuffer;
+import org.reactivestreams.Subscription;
+
+import java.util.concurrent.CompletionException;
+
+/**
+ * Buffer and demand logic of the input ports of primitive tokens, like {@link InpChars} and {@link InpLongs},
+ * which differ only by the type of tokens.
+ * Subclasses store and extract tokens under lock of the transition,
+ * and call {@link #_beforeStore(int)}, {@link #_checkNotEmpty()} and {@link #_afterRemove()} under the same lock.
+ */
+public abstract class InpPrimitives extends CompletablePort implements BufferedPort {
+    private final PrimitiveBuffer buffer;
+    protected Subscription subscription;
+    private long requestedCount;
+    private int requestThreshold = 1;
+
+    /**
+     * @param parent {@link AsyncProc} to which this port belongs
+     * @param buffer empty buffer of the subclass
+     */
+    protected InpPrimitives(AsyncProc parent, PrimitiveBuffer buffer) {
+        super(parent);
+        this.buffer = buffer;
+    }
+
+    /**
+     * see {@link InpFlow#setRequestThreshold(int)}
+     * @param threshold the number of places, from 1 (request after each token, the default) to the capacity
+     */
+    public void setRequestThreshold(int threshold) {
+        if (threshold <= 0 || threshold > buffer.bufferCapacity) {
+            throw new IllegalArgumentException();
+        }
+        synchronized (transition) {
+            requestThreshold = threshold;
+        }
+    }
+
+    public boolean isCompleted() {
+        synchronized (transition) {
+            return completed && buffer.isEmpty();
+        }
+    }
+
+    /**
+     * under the same lock as {@link #_afterRemove()}, which blocks the port when the buffer becomes empty
+     */
+    @Override
+    protected void _onComplete(Throwable throwable) {
+        synchronized (transition) {
+            super._onComplete(throwable);
+        }
+    }
+
+    @Override
+    public int getBufferedCount() {
+        synchronized (transition) {
+            return buffer.size();
+        }
+    }
+
+    @Override
+    public int getCapacity() {
+        return buffer.bufferCapacity;
+    }
+
+    @Override
+    public long getRequestedCount() {
+        synchronized (transition) {
+            return subscription == null ? -1 : requestedCount;
+        }
+    }
+
+    public void onSubscribe(Subscription subscription) {
+        long n;
+        synchronized (transition) {
+            if (this.subscription != null) {
+                subscription.cancel(); // this is dictated by the spec.
+                return;
+            }
+            this.subscription = subscription;
+            n = buffer.remainingCapacity();
+            requestedCount = n;
+        }
+        if (n > 0) {
+            subscription.request(n);
+        }
+    }
+
+    /**
+     * must be called under the lock, before tokens are stored.
+     * Tokens which come after completion are ignored.
+     * @param len number of tokens to store
+     * @return true if the tokens are to be stored
+     * @throws IllegalStateException if there is no room for all the tokens
+     */
+    protected boolean _beforeStore(int len) {
+        if (completed) {
+            return false;
+        }
+        if (len > buffer.remainingCapacity()) {
+            throw new IllegalStateException();
+        }
+        if (len == 0) {
+            return false;
+        }
+        if (subscription != null) {
+            requestedCount -= len;
+        }
+        return true;
+    }
+
+    /**
+     * must be called under the lock, before a token is taken
+     * @throws CompletionException if the port is completed and the buffer is empty
+     * @throws IllegalStateException if the port is not ready or the buffer is empty
+     */
+    protected void _checkNotEmpty() {
+        if (!isReady()) {
+            throw new IllegalStateException();
+        }
+        if (buffer.isEmpty()) {
+            if (completed) {
+                throw new CompletionException(completionException);
+            }
+            throw new IllegalStateException();
+        }
+    }
+
+    /**
+     * must be called under the lock, after tokens are extracted
+     * @return number of tokens to request from the subscription with {@link #request(long)}, or 0 if the request is postponed
+     */
+    protected long _afterRemove() {
+        if (buffer.isEmpty() && !completed) {
+            block();
+        }
+        if (subscription == null) {
+            return 0;
+        }
+        long n = buffer.remainingCapacity() - requestedCount;
+        if (n < requestThreshold) {
+            return 0;
+        }
+        requestedCount += n;
+        return n;
+    }
+
+    /**
+     * must be called out of the lock
+     * @param n the result of {@link #_afterRemove()}
+     */
+    protected void request(long n) {
+        if (n > 0) {
+            subscription.request(n);
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package org.df4j.core.port;
+
+import org.df4j.core.actor.AsyncProc;
+import org.df4j.core.actor.TransitionHolder;
+import org.df4j.core.graph.BufferedPort;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.nio.BufferOverflowException;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.concurrent.CompletionException;
+import java.util.function.ToIntFunction;
+
+/**
+ * Token storage like {@link InpFlow}, but tokens are extracted in the order of priority.
+ * <p>
+ * The priority of a token is a level from 0 (the lowest) to levels-1 (the highest), computed by the priority extractor.
+ * Each level is a FIFO queue, so tokens of the same priority keep their order,
+ * and a token of a higher priority overtakes all the buffered tokens of lower priorities.
+ * All levels share the capacity of the port, and the demand is requested from the publisher as in {@link InpFlow}.
+ *
+ * @param <T> type of accepted tokens.
+ */
+public class InpPriorityFlow<T> extends CompletablePort implements InpMessagePort<T>, Subscriber<T>, BufferedPort {
+    private final ToIntFunction<? super T> priority;
+    private final ArrayDeque<T>[] queues;
+    private final int bufferCapacity;
+    private int size = 0;
+    /** the highest level which can be non-empty */
+    private int topLevel = 0;
+    protected Subscription subscription;
+    private long requestedCount;
+    /** min number of free places to request from the publisher */
+    private int requestThreshold = 1;
+
+    /**
+     * @param parent {@link AsyncProc} to which this port belongs
+     * @param levels number of priority levels
+     * @param priority computes the level of a token, from 0 to levels-1
+     * @param capacity capacity of the buffer, shared by all levels
+     */
+    public InpPriorityFlow(TransitionHolder parent, int levels, ToIntFunction<? super T> priority, int capacity) {
+        super(parent);
+        if (levels <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.priority = priority;
+        this.bufferCapacity = capacity;
+        @SuppressWarnings("unchecked")
+        ArrayDeque<T>[] queues = (ArrayDeque<T>[]) new ArrayDeque<?>[levels];
+        for (int k = 0; k < levels; k++) {
+            queues[k] = new ArrayDeque<>();
+        }
+        this.queues = queues;
+    }
+
+    public InpPriorityFlow(TransitionHolder parent, int levels, ToIntFunction<? super T> priority) {
+        this(parent, levels, priority, 16);
+    }
+
+    /**
+     * see {@link InpFlow#setRequestThreshold(int)}
+     * @param threshold the number of places, from 1 (request after each token, the default) to the capacity
+     */
+    public synchronized void setRequestThreshold(int threshold) {
+        if (threshold <= 0 || threshold > bufferCapacity) {
+            throw new IllegalArgumentException();
+        }
+        requestThreshold = threshold;
+    }
+
+    public synchronized boolean isCompleted() {
+        return completed && size == 0;
+    }
+
+    @Override
+    public synchronized int getBufferedCount() {
+        return size;
+    }
+
+    /**
+     * @param level priority level
+     * @return number of buffered tokens of the level
+     */
+    public synchronized int getBufferedCount(int level) {
+        return queues[level].size();
+    }
+
+    @Override
+    public int getCapacity() {
+        return bufferCapacity;
+    }
+
+    @Override
+    public synchronized long getRequestedCount() {
+        return subscription == null ? -1 : requestedCount;
+    }
+
+    @Override
+    public synchronized void onSubscribe(Subscription subscription) {
+        if (this.subscription != null) {
+            subscription.cancel(); // this is dictated by the spec.
+            return;
+        }
+        this.subscription = subscription;
+        requestedCount = bufferCapacity - size;
+        if (requestedCount == 0) {
+            return;
+        }
+        subscription.request(requestedCount);
+    }
+
+    /**
+     * normally this method is called by Flow.Publisher.
+     * But before the port is subscribed, this method can be called directly.
+     * @param message token to store
+     * @throws IllegalArgumentException if the priority of the token is out of range
+     * @throws BufferOverflowException if no room left to store the token
+     */
+    @Override
+    public synchronized void onNext(T message) {
+        if (message == null) {
+            throw new NullPointerException();
+        }
+        if (completed) {
+            return;
+        }
+        int level = priority.applyAsInt(message);
+        if (level < 0 || level >= queues.length) {
+            throw new IllegalArgumentException("priority out of range: " + level);
+        }
+        if (size == bufferCapacity) {
+            throw new BufferOverflowException();
+        }
+        if (subscription != null) {
+            requestedCount--;
+        }
+        queues[level].add(message);
+        size++;
+        if (level > topLevel) {
+            topLevel = level;
+        }
+        unblock();
+    }
+
+    /**
+     * must be called under the lock
+     * @return the queue of the highest non-empty level, or null if all are empty
+     */
+    private ArrayDeque<T> _topQueue() {
+        if (size == 0) {
+            return null;
+        }
+        while (queues[topLevel].isEmpty()) {
+            topLevel--;
+        }
+        return queues[topLevel];
+    }
+
+    @Override
+    public synchronized T current() {
+        ArrayDeque<T> queue = _topQueue();
+        return queue == null ? null : queue.peek();
+    }
+
+    /**
+     * must be called under the lock, after tokens are extracted
+     * @return number of tokens to request from the subscription, or 0 if the request is postponed
+     */
+    private long _toRequest() {
+        if (subscription == null) {
+            return 0;
+        }
+        long n = bufferCapacity - size - requestedCount;
+        if (n < requestThreshold) {
+            return 0;
+        }
+        requestedCount += n;
+        return n;
+    }
+
+    @Override
+    public T poll() {
+        Subscription sub;
+        long n;
+        T res;
+        synchronized(this) {
+            ArrayDeque<T> queue = _topQueue();
+            if (queue == null) {
+                return null;
+            }
+            res = queue.poll();
+            size--;
+            if (size == 0 && !completed) {
+                block();
+            }
+            sub = subscription;
+            n = _toRequest();
+        }
+        if (n > 0) {
+            sub.request(n);
+        }
+        return res;
+    }
+
+    @Override
+    public T remove() throws CompletionException {
+        T res = poll();
+        if (res == null) {
+            if (!isCompleted()) {
+                throw new IllegalStateException();
+            }
+            throw new CompletionException(completionException);
+        }
+        return res;
+    }
+
+    /**
+     * Moves available tokens to the collection in the order of priority under a single lock,
+     * and requests the freed room at once.
+     * @param c the collection to add tokens to
+     * @param maxElements max number of tokens to move
+     * @return number of tokens moved
+     */
+    public int drainTo(Collection<? super T> c, int maxElements) {
+        Subscription sub;
+        long n;
+        int count = 0;
+        synchronized(this) {
+            while (count < maxElements) {
+                ArrayDeque<T> queue = _topQueue();
+                if (queue == null) {
+                    break;
+                }
+                c.add(queue.poll());
+                size--;
+                count++;
+            }
+            if (count == 0) {
+                return 0;
+            }
+            if (size == 0 && !completed) {
+                block();
+            }
+            sub = subscription;
+            n = _toRequest();
+        }
+        if (n > 0) {
+            sub.request(n);
+        }
+        return count;
+    }
+
+    public int drainTo(Collection<? super T> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    public void cancel() {
+        Subscription sub;
+        synchronized (this) {
+            sub = subscription;
+            subscription = null;
+        }
+        onComplete();
+        if (sub != null) {
+            sub.cancel();
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package org.df4j.core.port;
+
+import org.df4j.core.actor.AsyncProc;
+import org.df4j.core.actor.TransitionHolder;
+import org.df4j.core.graph.BufferedPort;
+import org.df4j.core.util.RingBuffer;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.nio.BufferOverflowException;
+import java.util.Collection;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Input port like {@link InpFlow}, but with a lock-free {@link RingBuffer} instead of a synchronized queue.
+ * While the buffer is not empty, neither the publisher nor the consuming action takes a lock.
+ * The port is blocked and unblocked under the port lock, which is taken only by the action which empties the buffer,
+ * and by the publisher which finds the port blocked; so a late publisher cannot leave an empty port unblocked.
+ * <p>
+ * When subscribed, tokens come from the single subscription, whose calls to {@link #onNext(Object)} are serialized
+ * by the Reactive Streams rules, so the buffer is used in single-producer mode.
+ * Before subscription, {@link #onNext(Object)} can be called by several threads, and the buffer is used in multi-producer mode.
+ * Tokens must be extracted by the parent actor only.
+ *
+ * @param <T> type of accepted tokens.
+ */
+public class InpRing<T> extends CompletablePort implements InpMessagePort<T>, Subscriber<T>, BufferedPort {
+    private final RingBuffer<T> ring;
+    private volatile Subscription subscription;
+    /** min number of tokens extracted before they are requested again */
+    private volatile int requestThreshold = 1;
+    /** tokens extracted and not yet requested; changed by the consumer only */
+    private long extracted = 0;
+
+    /**
+     * @param parent {@link AsyncProc} to which this port belongs
+     * @param capacity capacity of the buffer
+     */
+    public InpRing(TransitionHolder parent, int capacity) {
+        super(parent);
+        ring = new RingBuffer<>(capacity);
+    }
+
+    public InpRing(TransitionHolder parent) {
+        this(parent, 16);
+    }
+
+    /**
+     * see {@link InpFlow#setRequestThreshold(int)}
+     * @param threshold the number of places, from 1 (request after each token, the default) to the capacity
+     */
+    public void setRequestThreshold(int threshold) {
+        if (threshold <= 0 || threshold > ring.capacity()) {
+            throw new IllegalArgumentException();
+        }
+        requestThreshold = threshold;
+    }
+
+    @Override
+    public int getBufferedCount() {
+        return ring.size();
+    }
+
+    @Override
+    public int getCapacity() {
+        return ring.capacity();
+    }
+
+    /**
+     * @return approximate number of requested tokens which have not arrived yet, or -1 if not subscribed
+     */
+    @Override
+    public long getRequestedCount() {
+        if (subscription == null) {
+            return -1;
+        }
+        return Math.max(0, ring.capacity() - ring.size() - extracted);
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+        synchronized (this) {
+            if (this.subscription != null) {
+                subscription.cancel(); // this is dictated by the spec.
+                return;
+            }
+            this.subscription = subscription;
+        }
+        long n = ring.capacity() - ring.size();
+        if (n > 0) {
+            subscription.request(n);
+        }
+    }
+
+    /**
+     * normally this method is called by Flow.Publisher.
+     * But before the port is subscribed, this method can be called directly, also from several threads.
+     * @param message token to store
+     * @throws BufferOverflowException if no room left to store the token
+     */
+    @Override
+    public void onNext(T message) {
+        if (message == null) {
+            throw new NullPointerException();
+        }
+        if (completed) {
+            return;
+        }
+        boolean stored = subscription == null ? ring.offerShared(message) : ring.offer(message);
+        if (!stored) {
+            throw new BufferOverflowException();
+        }
+        if (!isReady()) {
+            synchronized (this) {
+                // the consumer could take the token and block the port after it was stored
+                if (!ring.isEmpty()) {
+                    unblock();
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean isCompleted() {
+        return completed && ring.isEmpty();
+    }
+
+    @Override
+    public T current() {
+        return ring.peek();
+    }
+
+    /**
+     * blocks the port if the buffer became empty, and requests extracted tokens when there are enough of them
+     * @param count number of tokens just extracted
+     */
+    private void extracted(int count) {
+        if (ring.isEmpty()) {
+            synchronized (this) {
+                if (ring.isEmpty() && !completed) {
+                    block();
+                    // a token could come before the port was blocked, and its publisher could find the port ready
+                    if (!ring.isEmpty()) {
+                        unblock();
+                    }
+                }
+            }
+        }
+        Subscription sub = subscription;
+        if (sub == null) {
+            return;
+        }
+        extracted += count;
+        if (extracted >= requestThreshold) {
+            long n = extracted;
+            extracted = 0;
+            sub.request(n);
+        }
+    }
+
+    @Override
+    public T poll() {
+        T res = ring.poll();
+        if (res == null) {
+            return null;
+        }
+        extracted(1);
+        return res;
+    }
+
+    @Override
+    public T remove() throws CompletionException {
+        T res = poll();
+        if (res == null) {
+            if (!completed) {
+                throw new IllegalStateException();
+            }
+            throw new CompletionException(completionException);
+        }
+        return res;
+    }
+
+    /**
+     * Moves available tokens to the collection, and requests the freed room at once.
+     * @param c the collection to add tokens to
+     * @param maxElements max number of tokens to move
+     * @return number of tokens moved
+     */
+    public int drainTo(Collection<? super T> c, int maxElements) {
+        int count = 0;
+        while (count < maxElements) {
+            T token = ring.poll();
+            if (token == null) {
+                break;
+            }
+            c.add(token);
+            count++;
+        }
+        if (count > 0) {
+            extracted(count);
+        }
+        return count;
+    }
+
+    public int drainTo(Collection<? super T> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    public void cancel() {
+        Subscription sub;
+        synchronized (this) {
+            sub = subscription;
+            subscription = null;
+        }
+        onComplete();
+        if (sub != null) {
+            sub.cancel();
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package org.df4j.core.port;
+
+import org.df4j.core.actor.AsyncProc;
+import org.df4j.core.graph.BufferedPort;
+import org.df4j.protocol.SimpleSubscription;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.nio.BufferOverflowException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Input port which passes tokens to the actor in batches (windows).
+ * <p>
+ * Is ready when a full window of tokens has accumulated, or when the window time has elapsed
+ * since the first token of the window arrived, whichever comes first, or when completed.
+ * The window time is measured with the {@link org.df4j.core.timer.TimerService} of the parent actor,
+ * and the timeout resumes the actor on its executor, so no thread is taken per port.
+ * <p>
+ * The batch is returned in a list owned by the port, which is reused by the next call to {@link #removeWindow()}.
+ * Tokens must be extracted by the parent actor only.
+ *
+ * @param <T> type of accepted tokens.
+ */
+public class InpWindow<T> extends CompletablePort implements Subscriber<T>, BufferedPort {
+    private final int windowSize;
+    private final long windowNanos;
+    private final int capacity;
+    private final ArrayDeque<T> tokens;
+    private final ArrayList<T> batch;
+    protected Subscription subscription;
+    private long requestedCount;
+    /** timer of the current window; guarded by this */
+    private SimpleSubscription timer;
+    /** number of the current window, to recognize stale timeouts; guarded by this */
+    private int windowNum = 0;
+    /** the time of the current window has elapsed; guarded by this */
+    private boolean timedOut = false;
+
+    /**
+     * @param parent {@link AsyncProc} to which this port belongs
+     * @param windowSize max number of tokens in a window
+     * @param windowTime max time from the first token of a window until the window is passed to the actor
+     * @param unit time unit of windowTime
+     * @param capacity capacity of the buffer, not less than windowSize
+     */
+    public InpWindow(AsyncProc parent, int windowSize, long windowTime, TimeUnit unit, int capacity) {
+        super(parent);
+        if (windowSize <= 0 || windowTime <= 0 || capacity < windowSize) {
+            throw new IllegalArgumentException();
+        }
+        this.windowSize = windowSize;
+        this.windowNanos = unit.toNanos(windowTime);
+        this.capacity = capacity;
+        tokens = new ArrayDeque<>(capacity);
+        batch = new ArrayList<>(windowSize);
+    }
+
+    /**
+     * creates a port with the capacity of two windows, so the publisher can fill the next window
+     * while the actor processes the current one
+     */
+    public InpWindow(AsyncProc parent, int windowSize, long windowTime, TimeUnit unit) {
+        this(parent, windowSize, windowTime, unit, 2 * windowSize);
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    public synchronized boolean isCompleted() {
+        return completed && tokens.isEmpty();
+    }
+
+    @Override
+    public synchronized int getBufferedCount() {
+        return tokens.size();
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public synchronized long getRequestedCount() {
+        return subscription == null ? -1 : requestedCount;
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+        long n;
+        synchronized (this) {
+            if (this.subscription != null) {
+                subscription.cancel(); // this is dictated by the spec.
+                return;
+            }
+            this.subscription = subscription;
+            n = capacity - tokens.size();
+            requestedCount = n;
+        }
+        if (n > 0) {
+            subscription.request(n);
+        }
+    }
+
+    /**
+     * normally this method is called by Flow.Publisher.
+     * But before the port is subscribed, this method can be called directly.
+     * @param message token to store
+     * @throws BufferOverflowException if no room left to store the token
+     */
+    @Override
+    public synchronized void onNext(T message) {
+        if (message == null) {
+            throw new NullPointerException();
+        }
+        if (completed) {
+            return;
+        }
+        if (tokens.size() == capacity) {
+            throw new BufferOverflowException();
+        }
+        if (subscription != null) {
+            requestedCount--;
+        }
+        tokens.add(message);
+        if (tokens.size() == windowSize) {
+            _cancelTimer();
+            _updateState();
+        } else if (tokens.size() == 1) {
+            _startWindow();
+        }
+    }
+
+    @Override
+    protected synchronized void _onComplete(Throwable throwable) {
+        _cancelTimer();
+        super._onComplete(throwable);
+    }
+
+    /**
+     * must be called under the lock, when the first token of a window is buffered
+     */
+    private void _startWindow() {
+        _cancelTimer();
+        timedOut = false;
+        int num = ++windowNum;
+        AsyncProc parent = getParentActor();
+        timer = parent.getTimerService().schedule(()->parent.getExecutor().execute(()->onTimeout(num)),
+                windowNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void _cancelTimer() {
+        if (timer != null) {
+            timer.cancel();
+            timer = null;
+        }
+    }
+
+    private synchronized void onTimeout(int num) {
+        if (num != windowNum || timer == null) {
+            return; // the window was taken before this timeout
+        }
+        timer = null;
+        timedOut = true;
+        _updateState();
+    }
+
+    /**
+     * must be called under the lock
+     */
+    private void _updateState() {
+        if (completed || tokens.size() >= windowSize || (timedOut && !tokens.isEmpty())) {
+            unblock();
+        } else {
+            block();
+        }
+    }
+
+    /**
+     * Moves the tokens of the current window, at most {@link #getWindowSize()}, to the batch list,
+     * and requests the freed room from the publisher at once.
+     * If tokens remain in the buffer, they start the next window.
+     *
+     * @return the batch list, owned by this port and reused by the next call
+     * @throws IllegalStateException if the port is not ready
+     * @throws CompletionException if the port is completed and empty
+     */
+    public List<T> removeWindow() {
+        Subscription sub;
+        long n = 0;
+        synchronized (this) {
+            if (!isReady()) {
+                throw new IllegalStateException();
+            }
+            if (tokens.isEmpty()) {
+                throw new CompletionException(completionException);
+            }
+            batch.clear();
+            while (batch.size() < windowSize && !tokens.isEmpty()) {
+                batch.add(tokens.poll());
+            }
+            _cancelTimer();
+            timedOut = false;
+            if (!tokens.isEmpty() && tokens.size() < windowSize) {
+                _startWindow();
+            }
+            _updateState();
+            sub = subscription;
+            if (sub != null) {
+                n = capacity - tokens.size() - requestedCount;
+                requestedCount += n;
+            }
+        }
+        if (n > 0) {
+            sub.request(n);
+        }
+        return batch;
+    }
+
+    public void cancel() {
+        Subscription sub;
+        synchronized (this) {
+            sub = subscription;
+            subscription = null;
+        }
+        onComplete();
+        if (sub != null) {
+            sub.cancel();
+        }
+    }
+}
@@ -0,0 +1,342 @@
+package org.df4j.core.port;
+
+import org.df4j.core.actor.AsyncProc;
+import org.df4j.core.graph.BufferedPort;
+import org.df4j.core.graph.PublisherPort;
+import org.df4j.protocol.Flow;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A passive source of messages which passes each token to all subscribers (multicast),
+ * unlike {@link OutFlow} which passes each token to one of them.
+ * <p>
+ * Tokens are stored once, in a pre-allocated ring shared by all subscribers.
+ * Each subscription has its own cursor, the sequence number of the next token to deliver,
+ * which advances as the subscriber requests tokens.
+ * A token keeps its slot until all the cursors have passed it, so the slowest subscriber governs the publisher.
+ * Blocked initially.
+ * Is ready when has subscribers and the ring has room for at least one token.
+ * Subscribers receive the tokens published after they subscribed.
+ * <p>
+ * Tokens must be published by the parent actor only.
+ * A slot is cleared as soon as all the cursors have passed it, so consumed tokens are not kept reachable.
+ *
+ * @param <T> type of emitted tokens
+ */
+public class OutBroadcast<T> extends CompletablePort implements OutMessagePort<T>, Flow.Publisher<T>, PublisherPort, BufferedPort {
+    public static final int DEFAULT_CAPACITY = 16;
+
+    private final int capacity;
+    private final int mask;
+    private final Object[] ring;
+    /** number of tokens published; written under lock of this */
+    private volatile long published = 0;
+    /** all slots of tokens with lesser sequence numbers are cleared; written under lock of this */
+    private volatile long cleared = 0;
+    /** copied on write under lock of this */
+    private volatile SubscriptionImpl[] subscriptions = newSubscriptions(0);
+
+    /**
+     * @param parent {@link AsyncProc} to which this port belongs
+     * @param capacity max number of tokens which the fastest subscriber can be ahead of the slowest one
+     */
+    public OutBroadcast(AsyncProc parent, int capacity) {
+        super(parent);
+        if (capacity <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.capacity = capacity;
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        mask = size - 1;
+        ring = new Object[size];
+    }
+
+    public OutBroadcast(AsyncProc parent) {
+        this(parent, DEFAULT_CAPACITY);
+    }
+
+    @SuppressWarnings("unchecked")
+    private SubscriptionImpl[] newSubscriptions(int length) {
+        return (SubscriptionImpl[]) new OutBroadcast<?>.SubscriptionImpl[length];
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super T> subscriber) {
+        SubscriptionImpl subscription = new SubscriptionImpl(subscriber);
+        synchronized(this) {
+            subscription.cursor = published;
+            SubscriptionImpl[] subs = subscriptions;
+            SubscriptionImpl[] newSubs = newSubscriptions(subs.length + 1);
+            System.arraycopy(subs, 0, newSubs, 0, subs.length);
+            newSubs[subs.length] = subscription;
+            subscriptions = newSubs;
+            _updateState();
+        }
+        subscriber.onSubscribe(subscription);
+        if (completed) {
+            subscription.drain();
+        }
+    }
+
+    private synchronized void removeSubscription(SubscriptionImpl subscription) {
+        SubscriptionImpl[] subs = subscriptions;
+        for (int k = 0; k < subs.length; k++) {
+            if (subs[k] == subscription) {
+                SubscriptionImpl[] newSubs = newSubscriptions(subs.length - 1);
+                System.arraycopy(subs, 0, newSubs, 0, k);
+                System.arraycopy(subs, k + 1, newSubs, k, subs.length - k - 1);
+                subscriptions = newSubs;
+                _clearConsumed();
+                _updateState();
+                return;
+            }
+        }
+    }
+
+    @Override
+    public List<Object> getSubscribers() {
+        List<Object> res = new ArrayList<>();
+        for (SubscriptionImpl subscription: subscriptions) {
+            res.add(subscription.subscriber);
+        }
+        return res;
+    }
+
+    /**
+     * @return sequence number of the oldest token not yet delivered to all subscribers
+     */
+    private long minCursor(SubscriptionImpl[] subs) {
+        long min = published;
+        for (SubscriptionImpl sub: subs) {
+            long cursor = sub.cursor;
+            if (cursor < min) {
+                min = cursor;
+            }
+        }
+        return min;
+    }
+
+    /**
+     * must be called under lock of this, and before a slot is reused
+     */
+    private void _clearConsumed() {
+        long min = minCursor(subscriptions);
+        for (long seq = cleared; seq < min; seq++) {
+            ring[(int) seq & mask] = null;
+        }
+        cleared = min;
+    }
+
+    private boolean _hasRoom() {
+        SubscriptionImpl[] subs = subscriptions;
+        return subs.length > 0 && published - minCursor(subs) < capacity;
+    }
+
+    /**
+     * must be called under lock of this
+     */
+    private void _updateState() {
+        if (_hasRoom()) {
+            unblock();
+        } else {
+            block();
+            // a subscriber could advance its cursor before the port was blocked
+            if (_hasRoom()) {
+                unblock();
+            }
+        }
+    }
+
+    /**
+     *
+     * @param token token to insert
+     */
+    @Override
+    public void onNext(T token) {
+        if (!offer(token)) {
+            throw new IllegalStateException("buffer overflow");
+        }
+    }
+
+    /**
+     *
+     * @param token token to insert
+     * @return true if token inserted
+     */
+    public boolean offer(T token) {
+        if (token == null) {
+            throw new NullPointerException();
+        }
+        SubscriptionImpl[] subs;
+        synchronized(this) {
+            if (completed || !_hasRoom()) {
+                return false;
+            }
+            _clearConsumed();
+            long seq = published;
+            ring[(int) seq & mask] = token;
+            published = seq + 1;
+            if (seq + 1 - minCursor(subscriptions) >= capacity) {
+                _updateState();
+            }
+            subs = subscriptions;
+        }
+        for (SubscriptionImpl sub: subs) {
+            sub.drain();
+        }
+        return true;
+    }
+
+    @Override
+    protected void _onComplete(Throwable cause) {
+        SubscriptionImpl[] subs;
+        synchronized(this) {
+            if (completed) {
+                return;
+            }
+            completionException = cause;
+            completed = true;
+            subs = subscriptions;
+        }
+        for (SubscriptionImpl sub: subs) {
+            sub.drain();
+        }
+    }
+
+    /**
+     * called by a subscription after its cursor advanced; clears the slots passed by all cursors
+     */
+    private void cursorMoved() {
+        if (!isReady() || cleared < minCursor(subscriptions)) {
+            synchronized(this) {
+                _clearConsumed();
+                if (_hasRoom()) {
+                    unblock();
+                }
+            }
+        }
+    }
+
+    @Override
+    public synchronized int getBufferedCount() {
+        return (int) (published - minCursor(subscriptions));
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return -1, as the demand of subscribers is not summed up
+     */
+    @Override
+    public long getRequestedCount() {
+        return -1;
+    }
+
+    /**
+     * Tokens are delivered by the thread which published a token, requested tokens or completed the port,
+     * whichever comes first; {@link #wip} serializes the delivery.
+     * A cancelled subscription is removed by the delivering thread,
+     * so that the slots it still reads are not cleared or reused by the publisher.
+     */
+    protected class SubscriptionImpl implements Subscription {
+        protected final Subscriber<? super T> subscriber;
+        private final AtomicLong requested = new AtomicLong();
+        /** number of threads which want to deliver tokens */
+        private final AtomicInteger wip = new AtomicInteger();
+        /** sequence number of the next token to deliver; written by the delivering thread only */
+        private volatile long cursor;
+        private volatile boolean cancelled = false;
+
+        SubscriptionImpl(Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        /**
+         *
+         * @param n the increment of demand
+         */
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                subscriber.onError(new IllegalArgumentException());
+                return;
+            }
+            for (;;) {
+                long r = requested.get();
+                long newR = r + n;
+                if (newR < 0) {
+                    newR = Long.MAX_VALUE;
+                }
+                if (requested.compareAndSet(r, newR)) {
+                    break;
+                }
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            drain();
+        }
+
+        void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            for (;;) {
+                if (cancelled) {
+                    // wip is left non-zero, so that no other thread delivers anymore
+                    removeSubscription(this);
+                    return;
+                }
+                boolean done = completed;
+                long limit = published;
+                long r = requested.get();
+                long c = cursor;
+                long delivered = 0;
+                while (c < limit && delivered < r && !cancelled) {
+                    @SuppressWarnings("unchecked")
+                    T token = (T) ring[(int) c & mask];
+                    subscriber.onNext(token);
+                    cursor = ++c;
+                    delivered++;
+                }
+                if (delivered > 0) {
+                    if (r != Long.MAX_VALUE) {
+                        requested.addAndGet(-delivered);
+                    }
+                    cursorMoved();
+                }
+                if (done && c == limit && !cancelled) {
+                    cancelled = true;
+                    removeSubscription(this);
+                    Throwable ex = completionException;
+                    if (ex == null) {
+                        subscriber.onComplete();
+                    } else {
+                        subscriber.onError(ex);
+                    }
+                    return;
+                }
+                missed = wip.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package org.df4j.core.port;
+
+import org.df4j.core.actor.AsyncProc;
+import org.df4j.core.graph.BufferedPort;
+import org.df4j.core.graph.PublisherPort;
+import org.df4j.protocol.ByteFlow;
+import org.reactivestreams.Subscription;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A passive source of bytes (like a server).
+ * Inserted buffers are not copied: their content is passed to subscribers as read-only views,
+ * split into slices when a subscriber requested less bytes than a buffer has,
+ * so the content must not be modified after insertion.
+ * Unblocked initially.
+ * Blocked when the number of buffered bytes reaches the capacity.
+ * Is ready when has room to store at least one byte; then a buffer of any size can be inserted.
+ */
+public class OutBytes extends CompletablePort implements ByteFlow.Publisher, PublisherPort, BufferedPort {
+    public static final int DEFAULT_CAPACITY = 8192;
+    protected final int capacity;
+    /** read-only views of inserted buffers; guarded by this */
+    private final ArrayDeque<ByteBuffer> buffers = new ArrayDeque<>();
+    /** guarded by this */
+    private int bufferedBytes = 0;
+    /** subscriptions with positive demand; guarded by this, as well as the fields of subscriptions */
+    private final ArrayDeque<SubscriptionImpl> activeSubscribtions = new ArrayDeque<>();
+    /** guarded by this */
+    private final ArrayDeque<SubscriptionImpl> passiveSubscribtions = new ArrayDeque<>();
+
+    /**
+     * @param parent {@link AsyncProc} to which this port belongs
+     * @param capacity max number of buffered bytes
+     */
+    public OutBytes(AsyncProc parent, int capacity) {
+        super(parent, true);
+        if (capacity <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.capacity = capacity;
+    }
+
+    public OutBytes(AsyncProc parent) {
+        this(parent, DEFAULT_CAPACITY);
+    }
+
+    @Override
+    public void subscribe(ByteFlow.Subscriber subscriber) {
+        SubscriptionImpl subscription = new SubscriptionImpl(subscriber);
+        synchronized(this) {
+            passiveSubscribtions.add(subscription);
+        }
+        subscriber.onSubscribe(subscription);
+        synchronized(this) {
+            if (isCompleted()) {
+                subscription.onComplete();
+            }
+        }
+    }
+
+    /**
+     *
+     * @param buffer bytes to insert, from the position to the limit
+     */
+    public void onNext(ByteBuffer buffer) {
+        if (!offer(buffer)) {
+            throw new IllegalStateException("buffer overflow");
+        }
+    }
+
+    public synchronized boolean isCompleted() {
+        return completed && buffers.isEmpty();
+    }
+
+    /**
+     * Inserts the bytes from the position to the limit of the buffer, without copying.
+     * The position of the buffer is not changed.
+     * @param buffer bytes to insert
+     * @return true if the bytes inserted
+     */
+    public synchronized boolean offer(ByteBuffer buffer) {
+        if (completed || bufferedBytes >= capacity) {
+            return false;
+        }
+        int remaining = buffer.remaining();
+        if (remaining == 0) {
+            return true;
+        }
+        ByteBuffer data = buffer.asReadOnlyBuffer();
+        // subscriptions are active only when no bytes are buffered, so the order is kept
+        while (remaining > 0) {
+            SubscriptionImpl sub = activeSubscribtions.poll();
+            if (sub == null) {
+                break;
+            }
+            int n = (int) Math.min(sub.remainedRequests, remaining);
+            remaining -= n;
+            boolean subIsActive = sub.onNext(remaining == 0 ? data : split(data, n), n);
+            if (subIsActive) {
+                activeSubscribtions.add(sub);
+            } else {
+                passiveSubscribtions.add(sub);
+            }
+        }
+        if (remaining > 0) {
+            buffers.add(data);
+            bufferedBytes += remaining;
+            if (bufferedBytes >= capacity) {
+                block();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param data buffer to split
+     * @param n number of bytes to split off, less than remaining
+     * @return view of the first n remaining bytes; the position of data is moved past them
+     */
+    static ByteBuffer split(ByteBuffer data, int n) {
+        ByteBuffer head = data.duplicate();
+        int position = data.position();
+        // Buffer methods, so that the code runs on Java 8 when compiled by a later JDK
+        ((Buffer) head).limit(position + n);
+        ((Buffer) data).position(position + n);
+        return head;
+    }
+
+    @Override
+    public synchronized List<Object> getSubscribers() {
+        List<Object> res = new ArrayList<>();
+        for (SubscriptionImpl subscription: activeSubscribtions) {
+            res.add(subscription.subscriber);
+        }
+        for (SubscriptionImpl subscription: passiveSubscribtions) {
+            res.add(subscription.subscriber);
+        }
+        return res;
+    }
+
+    /**
+     * @return number of buffered bytes
+     */
+    @Override
+    public synchronized int getBufferedCount() {
+        return bufferedBytes;
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return -1, as this port does not request bytes
+     */
+    @Override
+    public long getRequestedCount() {
+        return -1;
+    }
+
+    private void completAllSubscriptions() {
+        for (;;) {
+            SubscriptionImpl sub = activeSubscribtions.poll();
+            if (sub == null) {
+                break;
+            }
+            sub.onComplete();
+        }
+        for (;;) {
+            SubscriptionImpl sub = passiveSubscribtions.poll();
+            if (sub == null) {
+                break;
+            }
+            sub.onComplete();
+        }
+    }
+
+    public synchronized void _onComplete(Throwable cause) {
+        if (completed) {
+            return;
+        }
+        completed = true;
+        completionException = cause;
+        notifyAll();
+        if (!buffers.isEmpty()) {
+            return;
+        }
+        completAllSubscriptions();
+    }
+
+    protected class SubscriptionImpl implements Subscription {
+        protected final ByteFlow.Subscriber subscriber;
+        /** demand in bytes */
+        private long remainedRequests = 0;
+        private boolean cancelled = false;
+
+        SubscriptionImpl(ByteFlow.Subscriber subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        /**
+         *
+         * @param n the increment of demand, in bytes
+         */
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                subscriber.onError(new IllegalArgumentException());
+                return;
+            }
+            synchronized (OutBytes.this) {
+                if (cancelled) {
+                    return;
+                }
+                boolean wasPassive = remainedRequests == 0;
+                remainedRequests += n;
+                if (remainedRequests < 0) {
+                    remainedRequests = Long.MAX_VALUE;
+                }
+                if (!wasPassive) {
+                    return;
+                }
+                passiveSubscribtions.remove(this);
+                boolean subIsActive = true;
+                while (subIsActive && !buffers.isEmpty()) {
+                    ByteBuffer head = buffers.peek();
+                    int remaining = head.remaining();
+                    int k = (int) Math.min(remainedRequests, remaining);
+                    if (k == remaining) {
+                        buffers.poll();
+                    } else {
+                        head = split(head, k);
+                    }
+                    bufferedBytes -= k;
+                    subIsActive = onNext(head, k);
+                }
+                if (subIsActive) {
+                    activeSubscribtions.add(this);
+                } else {
+                    passiveSubscribtions.add(this);
+                }
+                if (bufferedBytes < capacity) {
+                    unblock();
+                }
+                if (isCompleted()) {
+                    completAllSubscriptions();
+                }
+            }
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (OutBytes.this) {
+                if (cancelled) {
+                    return;
+                }
+                cancelled = true;
+                if (remainedRequests > 0) {
+                    activeSubscribtions.remove(this);
+                } else {
+                    passiveSubscribtions.remove(this);
+                }
+            }
+        }
+
+        /**
+         * must be unlinked
+         * @param buffer bytes to pass
+         * @param n number of remaining bytes in the buffer
+         * @return true if the subscription is still active
+         */
+        private boolean onNext(ByteBuffer buffer, int n) {
+            subscriber.onNext(buffer);
+            remainedRequests -= n;
+            return remainedRequests > 0;
+        }
+
+        /**
+         * must be unlinked
+         */
+        private void onComplete() {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            if (completionException == null) {
+                subscriber.onComplete();
+            } else {
+                subscriber.onError(completionException);
+            }
+        }
+    }
+}
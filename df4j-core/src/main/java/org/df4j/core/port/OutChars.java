@@ -2,9 +2,7 @@ package org.df4j.core.port;
 
 import org.df4j.core.actor.AsyncProc;
 import org.df4j.core.util.CharBuffer;
-import org.df4j.core.util.LinkedQueue;
 import org.df4j.protocol.CharFlow;
-import org.reactivestreams.Subscription;
 
 import java.util.concurrent.CompletionException;
 
@@ -12,18 +10,18 @@ import java.util.concurrent.CompletionException;
  * A passive source of characters (like a server).
  * Unblocked initially.
  * Blocked when overflow.
- * Is ready when has room to store at least one toke
+ * Is ready when has room to store at least one token
  */
-public class OutChars extends CompletablePort implements CharFlow.Publisher {
-    protected final int capacity;
-    private CharBuffer charBuffer;
-    private LinkedQueue<SubscriptionImpl> activeSubscribtions = new LinkedQueue<>();
-    private LinkedQueue<SubscriptionImpl> passiveSubscribtions = new LinkedQueue<>();
+public class OutChars extends OutPrimitives implements CharFlow.Publisher {
+    private final CharBuffer buffer;
 
     public OutChars(AsyncProc parent, int capacity) {
-        super(parent, true);
-        this.capacity = capacity;
-        charBuffer = new CharBuffer(capacity);
+        this(parent, new CharBuffer(capacity));
+    }
+
+    private OutChars(AsyncProc parent, CharBuffer buffer) {
+        super(parent, buffer, new char[buffer.bufferCapacity]);
+        this.buffer = buffer;
     }
 
     public OutChars(AsyncProc parent) {
@@ -32,18 +30,7 @@ public class OutChars extends CompletablePort implements CharFlow.Publisher {
 
     @Override
     public void subscribe(CharFlow.Subscriber subscriber) {
-        SubscriptionImpl subscription = new SubscriptionImpl(subscriber);
-        synchronized(this) {
-            if (passiveSubscribtions != null) {
-                passiveSubscribtions.add(subscription);
-            }
-        }
-        subscriber.onSubscribe(subscription);
-        synchronized(this) {
-            if (isCompleted()) {
-                subscription.onComplete();
-            }
-        }
+        subscribe(new SubscriptionImpl(subscriber));
     }
 
     /**
@@ -56,8 +43,15 @@ public class OutChars extends CompletablePort implements CharFlow.Publisher {
         }
     }
 
-    public synchronized boolean isCompleted() {
-        return completed && charBuffer.isEmpty();
+    /**
+     * inserts all the characters, or none of them
+     * @param buf array with characters
+     * @param off index of the first character
+     * @param len number of characters
+     * @throws IllegalStateException if there is no room for all the characters
+     */
+    public synchronized void onNext(char[] buf, int off, int len) {
+        _onNextAll(buf, off, len);
     }
 
     /**
@@ -66,168 +60,76 @@ public class OutChars extends CompletablePort implements CharFlow.Publisher {
      * @return true if the character inserted
      */
     public synchronized boolean offer(char ch) {
-        SubscriptionImpl sub;
         if (completed) {
             return false;
         }
-        sub = activeSubscribtions.poll();
-        if (sub == null) {
-            if (charBuffer.remainingCapacity() == 0) {
-                return false;
-            }
-            charBuffer.add(ch);
-            notifyAll();
-            if (charBuffer.remainingCapacity() == 0) {
-                block();
-            }
-        } else {
-            boolean subIsActive = sub.onNext(ch);
-            if (subIsActive) {
-                activeSubscribtions.add(sub);
-            } else {
-                passiveSubscribtions.add(sub);
-            }
-        }
-        return true;
-    }
-
-    private void completAllSubscriptions() {
-        for (;;) {
-            SubscriptionImpl sub = activeSubscribtions.poll();
-            if (sub == null) {
-                break;
-            }
-            sub.onComplete();
+        SubscriptionImpl sub = (SubscriptionImpl) _pollActive();
+        if (sub != null) {
+            sub.subscriber.onNext(ch);
+            _delivered(sub, 1);
+            return true;
         }
-        for (;;) {
-            SubscriptionImpl sub = passiveSubscribtions.poll();
-            if (sub == null) {
-                break;
-            }
-            sub.onComplete();
+        if (buffer.buffIsFull()) {
+            return false;
         }
+        buffer.add(ch);
+        _afterAdd();
+        return true;
     }
 
-    public void _onComplete(Throwable cause) {
-        if (completed) {
-            return;
-        }
-        completed = true;
-        completionException = cause;
-        notifyAll();
-        if (!charBuffer.isEmpty()) {
-            return;
-        }
-        completAllSubscriptions();
+    /**
+     * Inserts several characters under one lock.
+     * Subscribers with demand receive them in bulk, the rest is buffered as far as there is room.
+     * @param buf array with characters
+     * @param off index of the first character
+     * @param len number of characters
+     * @return number of inserted characters, which form the head of the given ones
+     */
+    public synchronized int offer(char[] buf, int off, int len) {
+        return _offerAll(buf, off, len);
     }
 
+    /**
+     * takes a character from the buffer, bypassing subscribers
+     * @return the first buffered character
+     * @throws CompletionException if the port is completed and the buffer is empty
+     * @throws IllegalStateException if the buffer is empty
+     */
     public synchronized char poll() {
-        for (;;) {
-            if (!charBuffer.isEmpty()) {
-                char res = charBuffer.remove();
-                unblock();
-                return res;
-            }
-            if (completed) {
-                throw new CompletionException(completionException);
-            }
-        }
+        _checkNotEmpty();
+        char res = buffer.remove();
+        unblock();
+        return res;
     }
 
-    protected class SubscriptionImpl implements Subscription {
+    protected class SubscriptionImpl extends SubscriptionBase {
         protected final CharFlow.Subscriber subscriber;
-        private long remainedRequests = 0;
-        private boolean cancelled = false;
 
         SubscriptionImpl(CharFlow.Subscriber subscriber) {
             this.subscriber = subscriber;
         }
 
-        /**
-         *
-         * @param n the increment of demand
-         */
         @Override
-        public synchronized void request(long n) {
-            if (n <= 0) {
-                subscriber.onError(new IllegalArgumentException());
-                return;
-            }
-            if (cancelled) {
-                return;
-            }
-            remainedRequests += n;
-            if (remainedRequests > n) {
-                return;
-            }
-            if (isCompleted()) {
-                this.onComplete();
-                return;
-            }
-            // remainedRequests was 0, so this subscription was passive
-            passiveSubscribtions.remove(this);
-            for (;;) {
-                if (charBuffer.isEmpty()) {
-                    activeSubscribtions.add(this);
-                    break;
-                }
-                char ch = charBuffer.remove();
-                boolean subIsActive = this.onNext(ch);
-                if (!subIsActive) {
-                    passiveSubscribtions.add(this);
-                    break;
-                }
-            }
-            if (isCompleted()) {
-                completAllSubscriptions();
-            }
+        protected Object getSubscriber() {
+            return subscriber;
         }
 
         @Override
-        public synchronized void cancel() {
-            if (cancelled) {
-                return;
-            }
-            cancelled = true;
-            if (remainedRequests > 0) {
-                if (activeSubscribtions != null) {
-                    activeSubscribtions.remove(this);
-                }
-            } else {
-                if (passiveSubscribtions != null) {
-                    passiveSubscribtions.remove(this);
-                }
-            }
+        protected void signalSubscribe() {
+            subscriber.onSubscribe(this);
         }
 
-        /**
-         * must be unlinked
-         * @param ch ch to pass
-         * @return
-         */
-        private boolean onNext(char ch) {
-            subscriber.onNext(ch);
-            synchronized(this) {
-                remainedRequests--;
-                return remainedRequests > 0;
-            }
+        @Override
+        protected void signalNext(Object buf, int off, int len) {
+            subscriber.onNext((char[]) buf, off, len);
         }
 
-        /**
-         * must be unlinked
-         * @param cause error
-         */
-        private synchronized void onComplete() {
-            synchronized(this) {
-                if (cancelled) {
-                    return;
-                }
-                cancelled = true;
-            }
-            if (completionException == null) {
+        @Override
+        protected void signalComplete(Throwable ex) {
+            if (ex == null) {
                 subscriber.onComplete();
             } else {
-                subscriber.onError(completionException);
+                subscriber.onError(ex);
             }
         }
     }
@@ -0,0 +1,136 @@
+package org.df4j.core.port;
+
+import org.df4j.core.actor.AsyncProc;
+import org.df4j.core.util.DoubleBuffer;
+import org.df4j.protocol.DoubleFlow;
+
+import java.util.concurrent.CompletionException;
+
+/**
+ * A passive source of primitive doubles, like {@link OutChars}; tokens are not boxed.
+ * Unblocked initially.
+ * Blocked when overflow.
+ * Is ready when has room to store at least one token
+ */
+public class OutDoubles extends OutPrimitives implements DoubleFlow.Publisher {
+    private final DoubleBuffer buffer;
+
+    public OutDoubles(AsyncProc parent, int capacity) {
+        this(parent, new DoubleBuffer(capacity));
+    }
+
+    private OutDoubles(AsyncProc parent, DoubleBuffer buffer) {
+        super(parent, buffer, new double[buffer.bufferCapacity]);
+        this.buffer = buffer;
+    }
+
+    public OutDoubles(AsyncProc parent) {
+        this(parent, 16);
+    }
+
+    @Override
+    public void subscribe(DoubleFlow.Subscriber subscriber) {
+        subscribe(new SubscriptionImpl(subscriber));
+    }
+
+    /**
+     *
+     * @param value double to insert
+     */
+    public void onNext(double value) {
+        if (!offer(value)) {
+            throw new IllegalStateException("buffer overflow");
+        }
+    }
+
+    /**
+     * inserts all the doubles, or none of them
+     * @param buf array with doubles
+     * @param off index of the first double
+     * @param len number of doubles
+     * @throws IllegalStateException if there is no room for all the doubles
+     */
+    public synchronized void onNext(double[] buf, int off, int len) {
+        _onNextAll(buf, off, len);
+    }
+
+    /**
+     *
+     * @param value double to insert
+     * @return true if the double inserted
+     */
+    public synchronized boolean offer(double value) {
+        if (completed) {
+            return false;
+        }
+        SubscriptionImpl sub = (SubscriptionImpl) _pollActive();
+        if (sub != null) {
+            sub.subscriber.onNext(value);
+            _delivered(sub, 1);
+            return true;
+        }
+        if (buffer.buffIsFull()) {
+            return false;
+        }
+        buffer.add(value);
+        _afterAdd();
+        return true;
+    }
+
+    /**
+     * Inserts several doubles under one lock.
+     * Subscribers with demand receive them in bulk, the rest is buffered as far as there is room.
+     * @param buf array with doubles
+     * @param off index of the first double
+     * @param len number of doubles
+     * @return number of inserted doubles, which form the head of the given ones
+     */
+    public synchronized int offer(double[] buf, int off, int len) {
+        return _offerAll(buf, off, len);
+    }
+
+    /**
+     * takes a double from the buffer, bypassing subscribers
+     * @return the first buffered double
+     * @throws CompletionException if the port is completed and the buffer is empty
+     * @throws IllegalStateException if the buffer is empty
+     */
+    public synchronized double poll() {
+        _checkNotEmpty();
+        double res = buffer.remove();
+        unblock();
+        return res;
+    }
+
+    protected class SubscriptionImpl extends SubscriptionBase {
+        protected final DoubleFlow.Subscriber subscriber;
+
+        SubscriptionImpl(DoubleFlow.Subscriber subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        protected Object getSubscriber() {
+            return subscriber;
+        }
+
+        @Override
+        protected void signalSubscribe() {
+            subscriber.onSubscribe(this);
+        }
+
+        @Override
+        protected void signalNext(Object buf, int off, int len) {
+            subscriber.onNext((double[]) buf, off, len);
+        }
+
+        @Override
+        protected void signalComplete(Throwable ex) {
+            if (ex == null) {
+                subscriber.onComplete();
+            } else {
+                subscriber.onError(ex);
+            }
+        }
+    }
+}
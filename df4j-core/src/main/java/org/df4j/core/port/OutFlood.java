@@ -1,11 +1,15 @@
 package org.df4j.core.port;
 
 import org.df4j.core.actor.AsyncProc;
+import org.df4j.core.graph.BufferedPort;
+import org.df4j.core.graph.PublisherPort;
 import org.df4j.core.util.LinkedQueue;
 import org.df4j.protocol.Flood;
 import org.df4j.protocol.SimpleSubscription;
 
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.TimeUnit;
 
@@ -16,7 +20,7 @@ import java.util.concurrent.TimeUnit;
  * Is ready when has room to store at least one toke
  * @param <T> type of emitted tokens
  */
-public class OutFlood<T> extends CompletablePort implements OutMessagePort<T>, Flood.Publisher<T> {
+public class OutFlood<T> extends CompletablePort implements OutMessagePort<T>, Flood.Publisher<T>, PublisherPort, BufferedPort {
     public static final int DEFAULT_CAPACITY = 16;
     protected final int capacity;
     protected ArrayDeque<T> tokens;
@@ -186,6 +190,33 @@ public class OutFlood<T> extends CompletablePort implements OutMessagePort<T>, F
         return tokens.size();
     }
 
+    @Override
+    public synchronized int getBufferedCount() {
+        return tokens.size();
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return -1, as subscribers of this port do not request tokens
+     */
+    @Override
+    public long getRequestedCount() {
+        return -1;
+    }
+
+    @Override
+    public List<Object> getSubscribers() {
+        List<Object> res = new ArrayList<>();
+        for (SubscriptionImpl subscription: activeSubscribtions.toList()) {
+            res.add(subscription.subscriber);
+        }
+        return res;
+    }
+
     protected class SubscriptionImpl implements SimpleSubscription {
         protected final Flood.Subscriber subscriber;
         private boolean cancelled = false;
@@ -1,44 +1,88 @@
 package org.df4j.core.port;
 
 import org.df4j.core.actor.AsyncProc;
+import org.df4j.core.graph.BufferedPort;
+import org.df4j.core.graph.PublisherPort;
 import org.df4j.core.util.LinkedQueue;
 import org.df4j.protocol.Flow;
 import org.reactivestreams.Subscription;
 import org.reactivestreams.Subscriber;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A passive source of messages (like a server).
- * Blocked initially.
- * It has no buffer memory
+ * By default, it has no buffer memory, is blocked initially, and is ready when has active subscribers.
+ * With positive capacity, it stores tokens while no subscriber has demand,
+ * and is ready when has active subscribers or room in the buffer.
  * Blocked when overflow.
- * Is ready when has active subscribers
+ * Buffered tokens are passed to subscribers as soon as they request them, and
+ * completion is passed after the buffered tokens.
  * @param <T> type of emitted tokens
  */
-public class OutFlow<T> extends CompletablePort implements OutMessagePort<T>, Flow.Publisher<T> {
+public class OutFlow<T> extends CompletablePort implements OutMessagePort<T>, Flow.Publisher<T>, PublisherPort, BufferedPort {
     public static final int DEFAULT_CAPACITY = 16;
+    private final int capacity;
+    /** tokens waiting for demand; guarded by this */
+    private final ArrayDeque<T> tokens;
+    /** number of tokens being passed to subscribers outside the lock; guarded by this */
+    private int deliveries = 0;
     private LinkedQueue<SubscriptionImpl> allSubscribtions = new LinkedQueue<>();
-    private LinkedQueue<SubscriptionImpl> activeSubscribtions = new LinkedQueue<>();
+    /** subscriptions with positive demand; guarded by this. Each subscription is present at most once. */
+    private ArrayDeque<SubscriptionImpl> activeSubscribtions = new ArrayDeque<>();
+
+    /**
+     * @param parent {@link AsyncProc} to which this port belongs
+     * @param capacity max number of tokens stored while no subscriber has demand; 0 means no buffer
+     */
+    public OutFlow(AsyncProc parent, int capacity) {
+        super(parent, capacity > 0);
+        if (capacity < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.capacity = capacity;
+        tokens = new ArrayDeque<>(capacity);
+    }
 
     public OutFlow(AsyncProc parent) {
-        super(parent);
+        this(parent, 0);
     }
 
     @Override
     public void subscribe(Subscriber<? super T> subscriber) {
         SubscriptionImpl subscription = new SubscriptionImpl(subscriber);
         synchronized(this) {
-            allSubscribtions.add(subscription);
+            if (allSubscribtions != null) {
+                allSubscribtions.add(subscription);
+            }
         }
         subscriber.onSubscribe(subscription);
         synchronized(this) {
-            if (isCompleted()) {
+            if (allSubscribtions == null) {
                 subscription.onComplete(getCompletionException());
             }
         }
     }
 
+    @Override
+    public List<Object> getSubscribers() {
+        LinkedQueue<SubscriptionImpl> subscriptions;
+        synchronized(this) {
+            subscriptions = allSubscribtions;
+        }
+        List<Object> res = new ArrayList<>();
+        if (subscriptions != null) {
+            for (SubscriptionImpl subscription: subscriptions.toList()) {
+                res.add(subscription.subscriber);
+            }
+        }
+        return res;
+    }
+
     /**
      *
      * @param token token to insert
@@ -65,28 +109,150 @@ public class OutFlow<T> extends CompletablePort implements OutMessagePort<T>, Fl
                 return false;
             }
             sub = activeSubscribtions.poll();
-            if (sub == null) {
-                return false;
+            if (sub == null || !tokens.isEmpty()) {
+                // buffered tokens go first
+                if (sub == null && tokens.size() == capacity) {
+                    return false;
+                }
+                tokens.add(token);
+                if (sub == null) {
+                    _updateState();
+                    return true;
+                }
+                token = tokens.poll();
             }
-            if (activeSubscribtions.size() == 0) {
-                block();
+            deliveries++;
+            _updateState();
+        }
+        deliver(sub, token);
+        drain();
+        return true;
+    }
+
+    /**
+     * Passes a batch of tokens, taking the lock once per subscriber which receives a part of the batch,
+     * rather than once per token. Tokens which do not fit into the demand of subscribers are buffered.
+     * @param batch tokens to insert
+     * @return number of inserted tokens, which form the head of the batch
+     */
+    public int offerAll(List<? extends T> batch) {
+        int size = batch.size();
+        for (int k = 0; k < size; k++) {
+            if (batch.get(k) == null) {
+                throw new NullPointerException();
             }
         }
+        int accepted = 0;
+        while (accepted < size) {
+            SubscriptionImpl sub;
+            int from;
+            synchronized (this) {
+                if (completed) {
+                    break;
+                }
+                sub = tokens.isEmpty() ? activeSubscribtions.poll() : null;
+                if (sub == null) {
+                    int count = Math.min(capacity - tokens.size(), size - accepted);
+                    for (int k = 0; k < count; k++) {
+                        tokens.add(batch.get(accepted++));
+                    }
+                    _updateState();
+                    break;
+                }
+                from = accepted;
+                accepted += (int) Math.min(sub.remainedRequests.get(), size - accepted);
+                deliveries++;
+                _updateState();
+            }
+            boolean active = sub.onNextAll(batch, from, accepted);
+            _delivered(sub, active);
+        }
+        drain();
+        return accepted;
+    }
+
+    /**
+     * see {@link #offerAll(List)}
+     * @param batch tokens to insert
+     * @return number of inserted tokens, which form the head of the batch
+     */
+    public int offerAll(T[] batch) {
+        return offerAll(Arrays.asList(batch));
+    }
+
+    /**
+     * passes a token to a subscription taken from {@link #activeSubscribtions}
+     * @param sub the subscription
+     * @param token token to pass
+     */
+    private void deliver(SubscriptionImpl sub, T token) {
         boolean active = sub.onNext(token);
+        _delivered(sub, active);
+    }
+
+    private synchronized void _delivered(SubscriptionImpl sub, boolean active) {
+        deliveries--;
+        if (activeSubscribtions == null) {
+            return;
+        }
         if (active) {
+            activeSubscribtions.add(sub);
+        }
+        _updateState();
+        _completeIfDrained();
+    }
+
+    /**
+     * passes buffered tokens to active subscriptions
+     */
+    private void drain() {
+        if (capacity == 0) {
+            return;
+        }
+        for (;;) {
+            SubscriptionImpl sub;
+            T token;
             synchronized (this) {
-                activeSubscribtions.add(sub);
-                unblock();
+                if (tokens.isEmpty() || activeSubscribtions == null) {
+                    return;
+                }
+                sub = activeSubscribtions.poll();
+                if (sub == null) {
+                    return;
+                }
+                token = tokens.poll();
+                deliveries++;
+                _updateState();
             }
+            deliver(sub, token);
+        }
+    }
 
+    /**
+     * must be called under lock of this
+     */
+    private void _updateState() {
+        if (activeSubscribtions == null) {
+            return;
+        }
+        if (tokens.size() < capacity || !activeSubscribtions.isEmpty()) {
+            unblock();
+        } else {
+            block();
+        }
+    }
+
+    private void _completeIfDrained() {
+        if (completed && tokens.isEmpty() && deliveries == 0 && allSubscribtions != null) {
+            completAllSubscriptions();
         }
-        return true;
     }
 
     private void completAllSubscriptions() {
         Throwable ex = getCompletionException();
         allSubscribtions.forEach(sub->sub.onComplete(ex));
-        allSubscribtions = activeSubscribtions = null;
+        allSubscribtions = null;
+        activeSubscribtions = null;
     }
 
     public synchronized void _onComplete(Throwable cause) {
@@ -96,19 +262,42 @@ public class OutFlow<T> extends CompletablePort implements OutMessagePort<T>, Fl
         completed = true;
         completionException = cause;
         notifyAll();
-        completAllSubscriptions();
+        _completeIfDrained();
     }
 
+    @Override
+    public synchronized int getBufferedCount() {
+        return tokens.size();
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return -1, as this port does not request tokens
+     */
+    @Override
+    public long getRequestedCount() {
+        return -1;
+    }
+
+    /**
+     * Subscription is active when its demand is positive.
+     * An active subscription is either in {@link #activeSubscribtions}, or is used by {@link #offer(Object)}.
+     * Subscription's own lock is never held while taking the lock of the port.
+     */
     protected class SubscriptionImpl implements Subscription {
-        protected final Subscriber subscriber;
+        protected final Subscriber<? super T> subscriber;
         private AtomicLong remainedRequests = new AtomicLong(0);
-        private boolean cancelled = false;
+        private volatile boolean cancelled = false;
 
-        SubscriptionImpl(Subscriber subscriber) {
+        SubscriptionImpl(Subscriber<? super T> subscriber) {
             this.subscriber = subscriber;
         }
 
-        public synchronized boolean isCancelled() {
+        public boolean isCancelled() {
             return cancelled;
         }
 
@@ -117,7 +306,7 @@ public class OutFlow<T> extends CompletablePort implements OutMessagePort<T>, Fl
          * @param n the increment of demand
          */
         @Override
-        public synchronized void request(long n) {
+        public void request(long n) {
             if (n <= 0) {
                 subscriber.onError(new IllegalArgumentException());
                 return;
@@ -126,18 +315,33 @@ public class OutFlow<T> extends CompletablePort implements OutMessagePort<T>, Fl
                 return;
             }
             if (remainedRequests.getAndAdd(n) == 0) { // was passive
-                activeSubscribtions.add(this);
-                unblock();
+                synchronized (OutFlow.this) {
+                    if (activeSubscribtions == null || cancelled) {
+                        return;
+                    }
+                    activeSubscribtions.add(this);
+                    _updateState();
+                }
+                drain();
             }
         }
 
         @Override
-        public synchronized void cancel() {
-            cancelled = true;
-            if (remainedRequests.get() > 0) {
-                activeSubscribtions.remove(this);
+        public void cancel() {
+            synchronized (this) {
+                if (cancelled) {
+                    return;
+                }
+                cancelled = true;
+            }
+            synchronized (OutFlow.this) {
+                if (activeSubscribtions != null && activeSubscribtions.remove(this)) {
+                    _updateState();
+                }
+                if (allSubscribtions != null) {
+                    allSubscribtions.remove(this);
+                }
             }
-            allSubscribtions.remove(this);
         }
 
         /**
@@ -149,6 +353,19 @@ public class OutFlow<T> extends CompletablePort implements OutMessagePort<T>, Fl
             return remainedRequests.decrementAndGet() > 0 && !isCancelled();
         }
 
+        /**
+         * must be unlinked
+         * @param batch tokens to pass
+         * @param from index of the first token to pass
+         * @param to index after the last token to pass, not more than the demand allows
+         */
+        private boolean onNextAll(List<? extends T> batch, int from, int to) {
+            for (int k = from; k < to; k++) {
+                subscriber.onNext(batch.get(k));
+            }
+            return remainedRequests.addAndGet(from - to) > 0 && !isCancelled();
+        }
+
         /**
          * must be unlinked
          */
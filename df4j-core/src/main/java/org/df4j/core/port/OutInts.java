@@ -0,0 +1,136 @@
+package org.df4j.core.port;
+
+import org.df4j.core.actor.AsyncProc;
+import org.df4j.core.util.IntBuffer;
+import org.df4j.protocol.IntFlow;
+
+import java.util.concurrent.CompletionException;
+
+/**
+ * A passive source of primitive ints, like {@link OutChars}; tokens are not boxed.
+ * Unblocked initially.
+ * Blocked when overflow.
+ * Is ready when has room to store at least one token
+ */
+public class OutInts extends OutPrimitives implements IntFlow.Publisher {
+    private final IntBuffer buffer;
+
+    public OutInts(AsyncProc parent, int capacity) {
+        this(parent, new IntBuffer(capacity));
+    }
+
+    private OutInts(AsyncProc parent, IntBuffer buffer) {
+        super(parent, buffer, new int[buffer.bufferCapacity]);
+        this.buffer = buffer;
+    }
+
+    public OutInts(AsyncProc parent) {
+        this(parent, 16);
+    }
+
+    @Override
+    public void subscribe(IntFlow.Subscriber subscriber) {
+        subscribe(new SubscriptionImpl(subscriber));
+    }
+
+    /**
+     *
+     * @param value int to insert
+     */
+    public void onNext(int value) {
+        if (!offer(value)) {
+            throw new IllegalStateException("buffer overflow");
+        }
+    }
+
+    /**
+     * inserts all the ints, or none of them
+     * @param buf array with ints
+     * @param off index of the first int
+     * @param len number of ints
+     * @throws IllegalStateException if there is no room for all the ints
+     */
+    public synchronized void onNext(int[] buf, int off, int len) {
+        _onNextAll(buf, off, len);
+    }
+
+    /**
+     *
+     * @param value int to insert
+     * @return true if the int inserted
+     */
+    public synchronized boolean offer(int value) {
+        if (completed) {
+            return false;
+        }
+        SubscriptionImpl sub = (SubscriptionImpl) _pollActive();
+        if (sub != null) {
+            sub.subscriber.onNext(value);
+            _delivered(sub, 1);
+            return true;
+        }
+        if (buffer.buffIsFull()) {
+            return false;
+        }
+        buffer.add(value);
+        _afterAdd();
+        return true;
+    }
+
+    /**
+     * Inserts several ints under one lock.
+     * Subscribers with demand receive them in bulk, the rest is buffered as far as there is room.
+     * @param buf array with ints
+     * @param off index of the first int
+     * @param len number of ints
+     * @return number of inserted ints, which form the head of the given ones
+     */
+    public synchronized int offer(int[] buf, int off, int len) {
+        return _offerAll(buf, off, len);
+    }
+
+    /**
+     * takes a int from the buffer, bypassing subscribers
+     * @return the first buffered int
+     * @throws CompletionException if the port is completed and the buffer is empty
+     * @throws IllegalStateException if the buffer is empty
+     */
+    public synchronized int poll() {
+        _checkNotEmpty();
+        int res = buffer.remove();
+        unblock();
+        return res;
+    }
+
+    protected class SubscriptionImpl extends SubscriptionBase {
+        protected final IntFlow.Subscriber subscriber;
+
+        SubscriptionImpl(IntFlow.Subscriber subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        protected Object getSubscriber() {
+            return subscriber;
+        }
+
+        @Override
+        protected void signalSubscribe() {
+            subscriber.onSubscribe(this);
+        }
+
+        @Override
+        protected void signalNext(Object buf, int off, int len) {
+            subscriber.onNext((int[]) buf, off, len);
+        }
+
+        @Override
+        protected void signalComplete(Throwable ex) {
+            if (ex == null) {
+                subscriber.onComplete();
+            } else {
+                subscriber.onError(ex);
+            }
+        }
+    }
+}
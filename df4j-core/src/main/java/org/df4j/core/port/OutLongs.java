@@ -0,0 +1,136 @@
+package org.df4j.core.port;
+
+import org.df4j.core.actor.AsyncProc;
+import org.df4j.core.util.LongBuffer;
+import org.df4j.protocol.LongFlow;
+
+import java.util.concurrent.CompletionException;
+
+/**
+ * A passive source of primitive longs, like {@link OutChars}; tokens are not boxed.
+ * Unblocked initially.
+ * Blocked when overflow.
+ * Is ready when has room to store at least one token
+ */
+public class OutLongs extends OutPrimitives implements LongFlow.Publisher {
+    private final LongBuffer buffer;
+
+    public OutLongs(AsyncProc parent, int capacity) {
+        this(parent, new LongBuffer(capacity));
+    }
+
+    private OutLongs(AsyncProc parent, LongBuffer buffer) {
+        super(parent, buffer, new long[buffer.bufferCapacity]);
+        this.buffer = buffer;
+    }
+
+    public OutLongs(AsyncProc parent) {
+        this(parent, 16);
+    }
+
+    @Override
+    public void subscribe(LongFlow.Subscriber subscriber) {
+        subscribe(new SubscriptionImpl(subscriber));
+    }
+
+    /**
+     *
+     * @param value long to insert
+     */
+    public void onNext(long value) {
+        if (!offer(value)) {
+            throw new IllegalStateException("buffer overflow");
+        }
+    }
+
+    /**
+     * inserts all the longs, or none of them
+     * @param buf array with longs
+     * @param off index of the first long
+     * @param len number of longs
+     * @throws IllegalStateException if there is no room for all the longs
+     */
+    public synchronized void onNext(long[] buf, int off, int len) {
+        _onNextAll(buf, off, len);
+    }
+
+    /**
+     *
+     * @param value long to insert
+     * @return true if the long inserted
+     */
+    public synchronized boolean offer(long value) {
+        if (completed) {
+            return false;
+        }
+        SubscriptionImpl sub = (SubscriptionImpl) _pollActive();
+        if (sub != null) {
+            sub.subscriber.onNext(value);
+            _delivered(sub, 1);
+            return true;
+        }
+        if (buffer.buffIsFull()) {
+            return false;
+        }
+        buffer.add(value);
+        _afterAdd();
+        return true;
+    }
+
+    /**
+     * Inserts several longs under one lock.
+     * Subscribers with demand receive them in bulk, the rest is buffered as far as there is room.
+     * @param buf array with longs
+     * @param off index of the first long
+     * @param len number of longs
+     * @return number of inserted longs, which form the head of the given ones
+     */
+    public synchronized int offer(long[] buf, int off, int len) {
+        return _offerAll(buf, off, len);
+    }
+
+    /**
+     * takes a long from the buffer, bypassing subscribers
+     * @return the first buffered long
+     * @throws CompletionException if the port is completed and the buffer is empty
+     * @throws IllegalStateException if the buffer is empty
+     */
+    public synchronized long poll() {
+        _checkNotEmpty();
+        long res = buffer.remove();
+        unblock();
+        return res;
+    }
+
+    protected class SubscriptionImpl extends SubscriptionBase {
+        protected final LongFlow.Subscriber subscriber;
+
+        SubscriptionImpl(LongFlow.Subscriber subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        protected Object getSubscriber() {
+            return subscriber;
+        }
+
+        @Override
+        protected void signalSubscribe() {
+            subscriber.onSubscribe(this);
+        }
+
+        @Override
+        protected void signalNext(Object buf, int off, int len) {
+            subscriber.onNext((long[]) buf, off, len);
+        }
+
+        @Override
+        protected void signalComplete(Throwable ex) {
+            if (ex == null) {
+                subscriber.onComplete();
+            } else {
+                subscriber.onError(ex);
+            }
+        }
+    }
+}
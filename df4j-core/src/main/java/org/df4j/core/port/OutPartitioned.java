@@ -0,0 +1,366 @@
+package org.df4j.core.port;
+
+import org.df4j.core.actor.AsyncProc;
+import org.df4j.core.graph.BufferedPort;
+import org.df4j.core.graph.PublisherPort;
+import org.df4j.protocol.Flow;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A passive source of messages which routes each token by its key to one of a fixed number of partitions,
+ * each partition having at most one subscriber. Tokens with equal keys go to the same partition in order.
+ * <p>
+ * Each partition has its own buffer and its own demand, so tokens of a partition are delivered
+ * independently of other partitions, and a slow subscriber delays only the keys of its partition.
+ * <p>
+ * The port is ready while some partition has room, so a full partition does not hold back other keys,
+ * even if its subscriber has cancelled and the partition waits for a new one.
+ * Tokens are inserted with {@link #offer(Object)}, which fails for tokens of full partitions;
+ * after such a failure the port is blocked until that partition has room, so the actor can keep the token
+ * and retry it when fired again. {@link #isReady(Object)} checks a key without blocking the port.
+ * {@link #onNext(Object)} throws for tokens of full partitions.
+ * Unblocked initially.
+ *
+ * @param <K> type of keys
+ * @param <T> type of emitted tokens
+ */
+public class OutPartitioned<K, T> extends CompletablePort implements OutMessagePort<T>, Flow.Publisher<T>, PublisherPort, BufferedPort {
+    public static final int DEFAULT_CAPACITY = 16;
+    private final Function<? super T, ? extends K> keyFunction;
+    private final int capacity;
+    private final Partition[] partitions;
+    /** a flag per partition with a full buffer; guarded by this */
+    private final boolean[] full;
+    /** number of partitions with full buffers; guarded by this */
+    private int fullPartitions = 0;
+    /** the full partition which the last failed offer was for, or -1; guarded by this */
+    private int awaitedPartition = -1;
+
+    /**
+     * @param parent {@link AsyncProc} to which this port belongs
+     * @param partitionCount number of partitions
+     * @param keyFunction extracts the key of a token
+     * @param capacity capacity of the buffer of each partition
+     */
+    public OutPartitioned(AsyncProc parent, int partitionCount, Function<? super T, ? extends K> keyFunction, int capacity) {
+        super(parent, true);
+        if (partitionCount <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.keyFunction = keyFunction;
+        this.capacity = capacity;
+        @SuppressWarnings("unchecked")
+        Partition[] partitions = (Partition[]) new OutPartitioned<?, ?>.Partition[partitionCount];
+        for (int k = 0; k < partitionCount; k++) {
+            partitions[k] = new Partition(k);
+        }
+        this.partitions = partitions;
+        full = new boolean[partitionCount];
+    }
+
+    public OutPartitioned(AsyncProc parent, int partitionCount, Function<? super T, ? extends K> keyFunction) {
+        this(parent, partitionCount, keyFunction, DEFAULT_CAPACITY);
+    }
+
+    public int getPartitionCount() {
+        return partitions.length;
+    }
+
+    /**
+     * @param key key of a token
+     * @return number of the partition for the key
+     */
+    public int partitionOf(K key) {
+        int h = key == null ? 0 : key.hashCode();
+        h ^= h >>> 16; // the same spreading as in HashMap
+        return Math.floorMod(h, partitions.length);
+    }
+
+    /**
+     * subscribes to the first partition which has no subscriber
+     * @param subscriber the subscriber
+     */
+    @Override
+    public void subscribe(Subscriber<? super T> subscriber) {
+        for (int k = 0; k < partitions.length; k++) {
+            if (partitions[k].trySubscribe(subscriber)) {
+                return;
+            }
+        }
+        subscriber.onSubscribe(new Subscription() {
+            @Override
+            public void request(long n) {
+            }
+
+            @Override
+            public void cancel() {
+            }
+        });
+        subscriber.onError(new IllegalStateException("all partitions are subscribed"));
+    }
+
+    /**
+     * @param partition number of the partition
+     * @param subscriber the subscriber
+     * @throws IllegalStateException if the partition already has a subscriber
+     */
+    public void subscribe(int partition, Subscriber<? super T> subscriber) {
+        if (!partitions[partition].trySubscribe(subscriber)) {
+            throw new IllegalStateException("partition " + partition + " is subscribed");
+        }
+    }
+
+    /**
+     *
+     * @param token token to insert
+     */
+    @Override
+    public void onNext(T token) {
+        if (!offer(token)) {
+            throw new IllegalStateException("buffer overflow");
+        }
+    }
+
+    /**
+     *
+     * @param token token to insert
+     * @return true if token inserted, false if the port is completed or the partition of the token is full;
+     *         in the latter case, the port is blocked until that partition has room
+     */
+    public boolean offer(T token) {
+        if (token == null) {
+            throw new NullPointerException();
+        }
+        if (completed) {
+            return false;
+        }
+        int partition = partitionOf(keyFunction.apply(token));
+        if (partitions[partition].offer(token)) {
+            return true;
+        }
+        synchronized (this) {
+            if (!completed) {
+                awaitedPartition = partition;
+                _updateState();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param key key of a token
+     * @return true if a token with the key can be inserted
+     */
+    public boolean isReady(K key) {
+        return !completed && partitions[partitionOf(key)].hasRoom();
+    }
+
+    private synchronized void partitionFilled(int partition) {
+        full[partition] = true;
+        fullPartitions++;
+        _updateState();
+    }
+
+    private synchronized void partitionFreed(int partition) {
+        full[partition] = false;
+        fullPartitions--;
+        if (awaitedPartition == partition) {
+            awaitedPartition = -1;
+        }
+        _updateState();
+    }
+
+    /**
+     * must be called under lock of this
+     */
+    private void _updateState() {
+        if (fullPartitions == partitions.length || (awaitedPartition >= 0 && full[awaitedPartition])) {
+            block();
+        } else {
+            unblock();
+        }
+    }
+
+    @Override
+    protected void _onComplete(Throwable cause) {
+        synchronized (this) {
+            if (completed) {
+                return;
+            }
+            completionException = cause;
+            completed = true;
+            notifyAll();
+        }
+        for (Partition partition: partitions) {
+            partition.completeIfDrained();
+        }
+    }
+
+    @Override
+    public List<Object> getSubscribers() {
+        List<Object> res = new ArrayList<>();
+        for (Partition partition: partitions) {
+            Subscriber<? super T> subscriber = partition.getSubscriber();
+            if (subscriber != null) {
+                res.add(subscriber);
+            }
+        }
+        return res;
+    }
+
+    /**
+     * @param partition number of the partition
+     * @return number of tokens waiting for demand in the partition
+     */
+    public int getBufferedCount(int partition) {
+        return partitions[partition].size();
+    }
+
+    @Override
+    public int getBufferedCount() {
+        int res = 0;
+        for (Partition partition: partitions) {
+            res += partition.size();
+        }
+        return res;
+    }
+
+    /**
+     * @return total capacity of all partitions
+     */
+    @Override
+    public int getCapacity() {
+        return capacity * partitions.length;
+    }
+
+    /**
+     * @return -1, as this port does not request tokens
+     */
+    @Override
+    public long getRequestedCount() {
+        return -1;
+    }
+
+    /**
+     * A partition is the subscription of its subscriber.
+     * Its lock is taken before the lock of the port, never after.
+     */
+    protected class Partition implements Subscription {
+        private final int partitionNum;
+        private final ArrayDeque<T> tokens = new ArrayDeque<>();
+        private Subscriber<? super T> subscriber;
+        private long remainedRequests = 0;
+        private boolean completionSent = false;
+
+        Partition(int partitionNum) {
+            this.partitionNum = partitionNum;
+        }
+
+        synchronized Subscriber<? super T> getSubscriber() {
+            return subscriber;
+        }
+
+        synchronized int size() {
+            return tokens.size();
+        }
+
+        synchronized boolean hasRoom() {
+            return tokens.size() < capacity;
+        }
+
+        boolean trySubscribe(Subscriber<? super T> subscriber) {
+            synchronized (this) {
+                if (this.subscriber != null) {
+                    return false;
+                }
+                this.subscriber = subscriber;
+                remainedRequests = 0;
+                completionSent = false;
+            }
+            subscriber.onSubscribe(this);
+            completeIfDrained();
+            return true;
+        }
+
+        synchronized boolean offer(T token) {
+            if (completed) {
+                return false; // completion could be sent to the subscriber already
+            }
+            if (remainedRequests > 0 && tokens.isEmpty()) {
+                remainedRequests--;
+                subscriber.onNext(token);
+                return true;
+            }
+            if (tokens.size() == capacity) {
+                return false;
+            }
+            tokens.add(token);
+            if (tokens.size() == capacity) {
+                partitionFilled(partitionNum);
+            }
+            return true;
+        }
+
+        /**
+         *
+         * @param n the increment of demand
+         */
+        @Override
+        public void request(long n) {
+            synchronized (this) {
+                if (subscriber == null) {
+                    return;
+                }
+                if (n <= 0) {
+                    subscriber.onError(new IllegalArgumentException());
+                    return;
+                }
+                remainedRequests += n;
+                if (remainedRequests < 0) {
+                    remainedRequests = Long.MAX_VALUE;
+                }
+                while (remainedRequests > 0 && !tokens.isEmpty()) {
+                    boolean wasFull = tokens.size() == capacity;
+                    remainedRequests--;
+                    subscriber.onNext(tokens.poll());
+                    if (wasFull) {
+                        partitionFreed(partitionNum);
+                    }
+                }
+            }
+            completeIfDrained();
+        }
+
+        /**
+         * frees the partition for another subscriber; buffered tokens are kept for it
+         */
+        @Override
+        public synchronized void cancel() {
+            subscriber = null;
+            remainedRequests = 0;
+        }
+
+        void completeIfDrained() {
+            Subscriber<? super T> sub;
+            synchronized (this) {
+                if (!completed || !tokens.isEmpty() || subscriber == null || completionSent) {
+                    return;
+                }
+                completionSent = true;
+                sub = subscriber;
+            }
+            Throwable ex = completionException;
+            if (ex == null) {
+                sub.onComplete();
+            } else {
+                sub.onError(ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package org.df4j.core.port;
+
+import org.df4j.core.actor.AsyncProc;
+import org.df4j.core.graph.BufferedPort;
+import org.df4j.core.graph.PublisherPort;
+import org.df4j.core.util.PrimitiveBuffer;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Buffer and demand logic of the output ports of primitive tokens, like {@link OutChars} and {@link OutLongs},
+ * which differ only by the type of tokens.
+ * Tokens are passed to the subscribers with demand, and are buffered when there are none.
+ * Subscriptions are active only when the buffer is empty, so the order of tokens is kept.
+ * Arrays of tokens are passed as {@link Object}s, and must be of the type of the buffer.
+ * <p>
+ * Unblocked initially.
+ * Blocked when overflow.
+ * Is ready when has room to store at least one token
+ */
+public abstract class OutPrimitives extends CompletablePort implements PublisherPort, BufferedPort {
+    protected final int capacity;
+    private final PrimitiveBuffer buffer;
+    /** array of the type of the buffer, for passing buffered tokens in bulk; guarded by this */
+    private final Object scratch;
+    /** subscriptions with positive demand; guarded by this, as well as the fields of subscriptions */
+    private final ArrayDeque<SubscriptionBase> activeSubscribtions = new ArrayDeque<>();
+    /** guarded by this */
+    private final ArrayDeque<SubscriptionBase> passiveSubscribtions = new ArrayDeque<>();
+
+    /**
+     * @param parent {@link AsyncProc} to which this port belongs
+     * @param buffer empty buffer of the subclass
+     * @param scratch array of the type of the buffer, not shorter than the buffer
+     */
+    protected OutPrimitives(AsyncProc parent, PrimitiveBuffer buffer, Object scratch) {
+        super(parent, true);
+        this.capacity = buffer.bufferCapacity;
+        this.buffer = buffer;
+        this.scratch = scratch;
+    }
+
+    protected void subscribe(SubscriptionBase subscription) {
+        synchronized(this) {
+            passiveSubscribtions.add(subscription);
+        }
+        subscription.signalSubscribe();
+        synchronized(this) {
+            if (isCompleted()) {
+                subscription.complete();
+            }
+        }
+    }
+
+    public synchronized boolean isCompleted() {
+        return completed && buffer.isEmpty();
+    }
+
+    /**
+     * @return how many tokens can be inserted now
+     */
+    private long _room() {
+        long room = buffer.remainingCapacity();
+        for (SubscriptionBase sub: activeSubscribtions) {
+            room += sub.remainedRequests;
+            if (room < 0) {
+                return Long.MAX_VALUE;
+            }
+        }
+        return room;
+    }
+
+    /**
+     * must be called under lock of this, before a single token is inserted
+     * @return the subscription to pass the token to, which is given back with {@link #_delivered(SubscriptionBase, int)},
+     *         or null if the token is to be buffered
+     */
+    protected SubscriptionBase _pollActive() {
+        return activeSubscribtions.poll();
+    }
+
+    /**
+     * must be called under lock of this, after tokens are passed to a subscription from {@link #_pollActive()}
+     * @param sub the subscription
+     * @param n number of passed tokens
+     */
+    protected void _delivered(SubscriptionBase sub, int n) {
+        sub.remainedRequests -= n;
+        if (sub.remainedRequests > 0) {
+            activeSubscribtions.add(sub);
+        } else {
+            passiveSubscribtions.add(sub);
+        }
+    }
+
+    /**
+     * must be called under lock of this, after a token is buffered
+     */
+    protected void _afterAdd() {
+        if (buffer.buffIsFull()) {
+            block();
+        }
+    }
+
+    /**
+     * inserts all the tokens, or none of them; must be called under lock of this
+     * @param buf array with tokens
+     * @param off index of the first token
+     * @param len number of tokens
+     * @throws IllegalStateException if there is no room for all the tokens
+     */
+    protected void _onNextAll(Object buf, int off, int len) {
+        if (completed || len > _room()) {
+            throw new IllegalStateException("buffer overflow");
+        }
+        _offerAll(buf, off, len);
+    }
+
+    /**
+     * Inserts several tokens; must be called under lock of this.
+     * Subscribers with demand receive them in bulk, the rest is buffered as far as there is room.
+     * @param buf array with tokens
+     * @param off index of the first token
+     * @param len number of tokens
+     * @return number of inserted tokens, which form the head of the given ones
+     */
+    protected int _offerAll(Object buf, int off, int len) {
+        if (completed) {
+            return 0;
+        }
+        int done = 0;
+        while (done < len) {
+            SubscriptionBase sub = activeSubscribtions.poll();
+            if (sub == null) {
+                break;
+            }
+            int n = (int) Math.min(sub.remainedRequests, len - done);
+            sub.signalNext(buf, off + done, n);
+            done += n;
+            _delivered(sub, n);
+        }
+        int n = (int) Math.min(buffer.remainingCapacity(), len - done);
+        if (n > 0) {
+            buffer.addAll(buf, off + done, n);
+            done += n;
+            _afterAdd();
+        }
+        return done;
+    }
+
+    /**
+     * must be called under lock of this, before a token is taken from the buffer
+     * @throws CompletionException if the port is completed and the buffer is empty
+     * @throws IllegalStateException if the buffer is empty
+     */
+    protected void _checkNotEmpty() {
+        if (!buffer.isEmpty()) {
+            return;
+        }
+        if (completed) {
+            throw new CompletionException(completionException);
+        }
+        throw new IllegalStateException();
+    }
+
+    @Override
+    public synchronized List<Object> getSubscribers() {
+        List<Object> res = new ArrayList<>();
+        for (SubscriptionBase subscription: activeSubscribtions) {
+            res.add(subscription.getSubscriber());
+        }
+        for (SubscriptionBase subscription: passiveSubscribtions) {
+            res.add(subscription.getSubscriber());
+        }
+        return res;
+    }
+
+    @Override
+    public synchronized int getBufferedCount() {
+        return buffer.size();
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return -1, as this port does not request tokens
+     */
+    @Override
+    public long getRequestedCount() {
+        return -1;
+    }
+
+    private void completAllSubscriptions() {
+        for (;;) {
+            SubscriptionBase sub = activeSubscribtions.poll();
+            if (sub == null) {
+                break;
+            }
+            sub.complete();
+        }
+        for (;;) {
+            SubscriptionBase sub = passiveSubscribtions.poll();
+            if (sub == null) {
+                break;
+            }
+            sub.complete();
+        }
+    }
+
+    public synchronized void _onComplete(Throwable cause) {
+        if (completed) {
+            return;
+        }
+        completed = true;
+        completionException = cause;
+        notifyAll();
+        if (!buffer.isEmpty()) {
+            return;
+        }
+        completAllSubscriptions();
+    }
+
+    /**
+     * Subscription of a typed subscriber, which receives the tokens from the subclass methods.
+     */
+    protected abstract class SubscriptionBase implements Subscription {
+        private long remainedRequests = 0;
+        private boolean cancelled = false;
+
+        protected abstract Object getSubscriber();
+
+        /**
+         * passes this subscription to the subscriber; must be unlinked
+         */
+        protected abstract void signalSubscribe();
+
+        /**
+         * passes tokens to the subscriber; must be unlinked
+         * @param buf array of the type of the buffer
+         * @param off index of the first token
+         * @param len number of tokens, not more than the demand
+         */
+        protected abstract void signalNext(Object buf, int off, int len);
+
+        /**
+         * passes completion to the subscriber; must be unlinked
+         * @param ex the completion exception, or null
+         */
+        protected abstract void signalComplete(Throwable ex);
+
+        /**
+         *
+         * @param n the increment of demand
+         */
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                signalComplete(new IllegalArgumentException());
+                return;
+            }
+            synchronized (OutPrimitives.this) {
+                if (cancelled) {
+                    return;
+                }
+                boolean wasPassive = remainedRequests == 0;
+                remainedRequests += n;
+                if (remainedRequests < 0) {
+                    remainedRequests = Long.MAX_VALUE;
+                }
+                if (!wasPassive) {
+                    return;
+                }
+                passiveSubscribtions.remove(this);
+                if (!buffer.isEmpty()) {
+                    int count = buffer.removeAll(scratch, 0, (int) Math.min(remainedRequests, capacity));
+                    signalNext(scratch, 0, count);
+                    remainedRequests -= count;
+                    unblock();
+                }
+                if (remainedRequests > 0) {
+                    activeSubscribtions.add(this);
+                } else {
+                    passiveSubscribtions.add(this);
+                }
+                if (isCompleted()) {
+                    completAllSubscriptions();
+                }
+            }
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (OutPrimitives.this) {
+                if (cancelled) {
+                    return;
+                }
+                cancelled = true;
+                if (remainedRequests > 0) {
+                    activeSubscribtions.remove(this);
+                } else {
+                    passiveSubscribtions.remove(this);
+                }
+            }
+        }
+
+        /**
+         * must be unlinked
+         */
+        private void complete() {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            signalComplete(completionException);
+        }
+    }
+}
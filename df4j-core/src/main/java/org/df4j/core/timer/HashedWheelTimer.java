@@ -0,0 +1,319 @@
+package org.df4j.core.timer;
+
+import org.df4j.core.util.LoggerFactory;
+import org.df4j.protocol.SimpleSubscription;
+import org.slf4j.Logger;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hierarchical hashed timing wheel, the default {@link TimerService}.
+ * <p>
+ * Schedule and cancel take O(1) time and do not lock: they only put the timeout to a queue.
+ * The timer thread moves timeouts from the queues to the wheels.
+ * The lowest wheel has 256 slots, one tick each; each upper wheel has 64 slots,
+ * one slot for the whole span of the wheel below.
+ * When a lower wheel turns around, timeouts from the next slot of the upper wheel are redistributed to lower wheels.
+ * With the default tick of 1 millisecond, 5 wheels cover about 49 days; longer delays are redistributed repeatedly.
+ * <p>
+ * The timer thread sleeps until the nearest nonempty slot of the lowest wheel, or until the lowest wheel turns around,
+ * and not longer than that, so expired timeouts are run at most one tick late.
+ */
+public class HashedWheelTimer implements TimerService {
+    private static final int[] LEVEL_BITS = {8, 6, 6, 6, 6};
+    private static final int LEVELS = LEVEL_BITS.length;
+    /** max distance between current tick and a deadline in the wheels */
+    private static final long MAX_RANGE;
+    private static final int[] LEVEL_SHIFTS = new int[LEVELS];
+    private static final AtomicInteger timerCounter = new AtomicInteger();
+
+    static {
+        int shift = 0;
+        for (int level = 0; level < LEVELS; level++) {
+            LEVEL_SHIFTS[level] = shift;
+            shift += LEVEL_BITS[level];
+        }
+        MAX_RANGE = 1L << shift;
+    }
+
+    protected final Logger logger = LoggerFactory.getLogger(this);
+    private final long tickNanos;
+    private final long startNanos = System.nanoTime();
+    private final TimeoutImpl[][] wheels = new TimeoutImpl[LEVELS][];
+    private final int[] levelCounts = new int[LEVELS];
+    private final ConcurrentLinkedQueue<TimeoutImpl> scheduled = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<TimeoutImpl> cancelled = new ConcurrentLinkedQueue<>();
+    private final Thread thread;
+    /** last processed tick; accessed by the timer thread only */
+    private long currentTick = 0;
+    /** the tick the timer thread sleeps until */
+    private volatile long wakeTick = 0;
+    private volatile boolean shutdown = false;
+
+    /**
+     * @param tick duration of a tick, the resolution of the timer
+     * @param unit time unit of tick
+     * @param name name of the timer thread
+     */
+    public HashedWheelTimer(long tick, TimeUnit unit, String name) {
+        tickNanos = unit.toNanos(tick);
+        if (tickNanos <= 0) {
+            throw new IllegalArgumentException();
+        }
+        for (int level = 0; level < LEVELS; level++) {
+            TimeoutImpl[] wheel = new TimeoutImpl[1 << LEVEL_BITS[level]];
+            for (int k = 0; k < wheel.length; k++) {
+                TimeoutImpl head = new TimeoutImpl(null, 0);
+                head.prev = head.next = head;
+                wheel[k] = head;
+            }
+            wheels[level] = wheel;
+        }
+        thread = new Thread(this::runTimer, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * creates timer with 1 millisecond tick
+     */
+    public HashedWheelTimer() {
+        this(1, TimeUnit.MILLISECONDS, "df4j-timer-" + timerCounter.getAndIncrement());
+    }
+
+    @Override
+    public SimpleSubscription schedule(Runnable task, long delay, TimeUnit unit) {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        if (shutdown) {
+            throw new RejectedExecutionException();
+        }
+        long delayNanos = Math.max(0, unit.toNanos(delay));
+        long deadlineNanos = System.nanoTime() - startNanos + delayNanos;
+        long deadline = deadlineNanos / tickNanos;
+        if (deadline * tickNanos < deadlineNanos) {
+            deadline++; // never expire early
+        }
+        TimeoutImpl timeout = new TimeoutImpl(task, deadline);
+        scheduled.add(timeout);
+        if (deadline < wakeTick) {
+            LockSupport.unpark(thread);
+        }
+        return timeout;
+    }
+
+    /**
+     * Stops the timer thread. Timeouts which have not yet expired are never run.
+     */
+    public void shutdown() {
+        shutdown = true;
+        LockSupport.unpark(thread);
+    }
+
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    private long tickOf(long nanoTime) {
+        return (nanoTime - startNanos) / tickNanos;
+    }
+
+    private void runTimer() {
+        while (!shutdown) {
+            removeCancelled();
+            advance(tickOf(System.nanoTime()));
+            addScheduled();
+            long nextTick = nextTick();
+            wakeTick = nextTick;
+            // recheck, as a timeout could be scheduled before the new wakeTick became visible
+            if (!scheduled.isEmpty()) {
+                continue;
+            }
+            if (nextTick == Long.MAX_VALUE) {
+                LockSupport.park(this);
+            } else {
+                long sleepNanos = nextTick * tickNanos - (System.nanoTime() - startNanos);
+                if (sleepNanos > 0) {
+                    LockSupport.parkNanos(this, sleepNanos);
+                }
+            }
+        }
+    }
+
+    private void advance(long nowTick) {
+        while (currentTick < nowTick) {
+            if (isEmpty()) {
+                currentTick = nowTick;
+                return;
+            }
+            currentTick++;
+            processTick(currentTick);
+        }
+    }
+
+    private boolean isEmpty() {
+        for (int count: levelCounts) {
+            if (count > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void removeCancelled() {
+        TimeoutImpl timeout;
+        while ((timeout = cancelled.poll()) != null) {
+            if (timeout.next != null) {
+                unlink(timeout);
+            }
+        }
+    }
+
+    private void addScheduled() {
+        TimeoutImpl timeout;
+        while ((timeout = scheduled.poll()) != null) {
+            if (timeout.state != TimeoutImpl.PENDING) {
+                continue;
+            }
+            if (timeout.deadline <= currentTick) {
+                timeout.expire();
+            } else {
+                insert(timeout);
+            }
+        }
+    }
+
+    /**
+     * puts the timeout to the lowest wheel which spans its deadline.
+     * Deadlines beyond the highest wheel are put to its farthest slot and redistributed later.
+     */
+    private void insert(TimeoutImpl timeout) {
+        long distance = timeout.deadline - currentTick;
+        long placement = timeout.deadline;
+        if (distance >= MAX_RANGE) {
+            distance = MAX_RANGE - 1;
+            placement = currentTick + distance;
+        }
+        int level = 0;
+        while (distance >= (1L << (LEVEL_SHIFTS[level] + LEVEL_BITS[level]))) {
+            level++;
+        }
+        int slot = (int) (placement >>> LEVEL_SHIFTS[level]) & ((1 << LEVEL_BITS[level]) - 1);
+        TimeoutImpl head = wheels[level][slot];
+        timeout.level = level;
+        timeout.prev = head.prev;
+        timeout.next = head;
+        head.prev.next = timeout;
+        head.prev = timeout;
+        levelCounts[level]++;
+    }
+
+    private void unlink(TimeoutImpl timeout) {
+        timeout.prev.next = timeout.next;
+        timeout.next.prev = timeout.prev;
+        timeout.prev = timeout.next = null;
+        levelCounts[timeout.level]--;
+    }
+
+    private void processTick(long tick) {
+        // when a wheel turns around, redistribute the next slot of the upper wheel
+        for (int level = 1; level < LEVELS; level++) {
+            if ((tick & ((1L << LEVEL_SHIFTS[level]) - 1)) != 0) {
+                break;
+            }
+            if (levelCounts[level] == 0) {
+                continue;
+            }
+            TimeoutImpl head = wheels[level][(int) (tick >>> LEVEL_SHIFTS[level]) & ((1 << LEVEL_BITS[level]) - 1)];
+            while (head.next != head) {
+                TimeoutImpl timeout = head.next;
+                unlink(timeout);
+                insert(timeout);
+            }
+        }
+        if (levelCounts[0] == 0) {
+            return;
+        }
+        TimeoutImpl head = wheels[0][(int) tick & ((1 << LEVEL_BITS[0]) - 1)];
+        while (head.next != head) {
+            TimeoutImpl timeout = head.next;
+            unlink(timeout);
+            timeout.expire();
+        }
+    }
+
+    /**
+     * @return the next tick when the wheels have to be processed, or Long.MAX_VALUE if the wheels are empty
+     */
+    private long nextTick() {
+        long res = Long.MAX_VALUE;
+        for (int level = 1; level < LEVELS; level++) {
+            if (levelCounts[level] > 0) {
+                // timeouts of upper wheels are redistributed when the lowest wheel turns around
+                res = ((currentTick >>> LEVEL_BITS[0]) + 1) << LEVEL_BITS[0];
+                break;
+            }
+        }
+        if (levelCounts[0] > 0) {
+            TimeoutImpl[] wheel = wheels[0];
+            int mask = wheel.length - 1;
+            for (long tick = currentTick + 1; tick < res; tick++) {
+                TimeoutImpl head = wheel[(int) tick & mask];
+                if (head.next != head) {
+                    return tick;
+                }
+            }
+        }
+        return res;
+    }
+
+    private class TimeoutImpl implements SimpleSubscription {
+        static final int PENDING = 0;
+        static final int CANCELLED = 1;
+        static final int EXPIRED = 2;
+
+        final Runnable task;
+        final long deadline;
+        volatile int state = PENDING;
+        /** neighbours in the list of a wheel slot, null when not in a wheel; accessed by the timer thread only */
+        TimeoutImpl prev, next;
+        int level;
+
+        TimeoutImpl(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        void expire() {
+            if (!stateUpdater.compareAndSet(this, PENDING, EXPIRED)) {
+                return;
+            }
+            try {
+                task.run();
+            } catch (Throwable e) {
+                logger.error("timer task failed", e);
+            }
+        }
+
+        @Override
+        public void cancel() {
+            if (stateUpdater.compareAndSet(this, PENDING, CANCELLED)) {
+                cancelled.add(this);
+            }
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return state == CANCELLED;
+        }
+    }
+
+    private static final AtomicIntegerFieldUpdater<TimeoutImpl> stateUpdater
+            = AtomicIntegerFieldUpdater.newUpdater(TimeoutImpl.class, "state");
+}
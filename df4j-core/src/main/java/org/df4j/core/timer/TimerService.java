@@ -0,0 +1,22 @@
+package org.df4j.core.timer;
+
+import org.df4j.protocol.SimpleSubscription;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service provider interface for timers.
+ * <p>
+ * Scheduled tasks are run by the timer's own thread, so they should be short and never block.
+ * Usually, a task just submits some work to an executor.
+ */
+public interface TimerService {
+
+    /**
+     * @param task the task to run when the delay elapses
+     * @param delay the delay
+     * @param unit time unit of the delay
+     * @return handle to cancel the task. The task is not run if cancelled before the delay elapses.
+     */
+    SimpleSubscription schedule(Runnable task, long delay, TimeUnit unit);
+}
@@ -0,0 +1,7 @@
+/**
+ * Timers for delayed actions, e.g. {@link org.df4j.core.actor.Actor#delay(long)}.
+ * The default implementation is {@link org.df4j.core.timer.HashedWheelTimer};
+ * other implementations of {@link org.df4j.core.timer.TimerService} can be installed per {@link org.df4j.core.actor.Node},
+ * or globally, with {@link java.util.ServiceLoader}.
+ */
+package org.df4j.core.timer;
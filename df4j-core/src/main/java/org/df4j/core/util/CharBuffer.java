@@ -1,41 +1,50 @@
 package org.df4j.core.util;
 
-public class CharBuffer {
-    public final int bufferCapacity;
-    private final char[] charBuffer;
-    private int posWrite = 0;
-    private int count = 0;
+/**
+ * Ring buffer of characters. Not thread-safe.
+ */
+public class CharBuffer extends PrimitiveBuffer {
+    private final char[] buffer;
 
     public CharBuffer(int bufferCapacity) {
-        this.bufferCapacity = bufferCapacity;
-        charBuffer = new char[bufferCapacity];
+        this(new char[checkCapacity(bufferCapacity)]);
     }
 
-    public boolean isEmpty() {
-        return count == 0;
+    private CharBuffer(char[] buffer) {
+        super(buffer, buffer.length);
+        this.buffer = buffer;
     }
 
-    public long remainingCapacity() {
-        long res = bufferCapacity - count;
-        return res;
+    public void add(char value) {
+        buffer[posWrite()] = value;
     }
 
-    public void add(char ch) {
-        charBuffer[(posWrite++)%bufferCapacity] = ch;
-        count++;
+    /**
+     * adds characters; the caller checks that there is room for them
+     * @param buf array with characters
+     * @param off index of the first character
+     * @param len number of characters
+     */
+    public void add(char[] buf, int off, int len) {
+        addAll(buf, off, len);
     }
 
     public char remove() {
-        char res = charBuffer[(posWrite - count) % bufferCapacity];
-        count--;
-        return res;
+        return buffer[posRemove()];
     }
 
-    public char current() {
-        return charBuffer[(posWrite-count) % bufferCapacity];
+    /**
+     * removes characters into the array
+     * @param dst array to move characters to
+     * @param off index in the array
+     * @param len max number of characters to move
+     * @return number of characters moved
+     */
+    public int remove(char[] dst, int off, int len) {
+        return removeAll(dst, off, len);
     }
 
-    public boolean buffIsFull() {
-        return count == bufferCapacity;
+    public char current() {
+        return buffer[posRead];
     }
 }
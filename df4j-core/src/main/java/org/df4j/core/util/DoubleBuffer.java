@@ -0,0 +1,50 @@
+package org.df4j.core.util;
+
+/**
+ * Ring buffer of primitive doubles. Not thread-safe.
+ */
+public class DoubleBuffer extends PrimitiveBuffer {
+    private final double[] buffer;
+
+    public DoubleBuffer(int bufferCapacity) {
+        this(new double[checkCapacity(bufferCapacity)]);
+    }
+
+    private DoubleBuffer(double[] buffer) {
+        super(buffer, buffer.length);
+        this.buffer = buffer;
+    }
+
+    public void add(double value) {
+        buffer[posWrite()] = value;
+    }
+
+    /**
+     * adds doubles; the caller checks that there is room for them
+     * @param buf array with doubles
+     * @param off index of the first double
+     * @param len number of doubles
+     */
+    public void add(double[] buf, int off, int len) {
+        addAll(buf, off, len);
+    }
+
+    public double remove() {
+        return buffer[posRemove()];
+    }
+
+    /**
+     * removes doubles into the array
+     * @param dst array to move doubles to
+     * @param off index in the array
+     * @param len max number of doubles to move
+     * @return number of doubles moved
+     */
+    public int remove(double[] dst, int off, int len) {
+        return removeAll(dst, off, len);
+    }
+
+    public double current() {
+        return buffer[posRead];
+    }
+}
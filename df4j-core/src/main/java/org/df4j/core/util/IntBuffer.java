@@ -0,0 +1,50 @@
+package org.df4j.core.util;
+
+/**
+ * Ring buffer of primitive ints. Not thread-safe.
+ */
+public class IntBuffer extends PrimitiveBuffer {
+    private final int[] buffer;
+
+    public IntBuffer(int bufferCapacity) {
+        this(new int[checkCapacity(bufferCapacity)]);
+    }
+
+    private IntBuffer(int[] buffer) {
+        super(buffer, buffer.length);
+        this.buffer = buffer;
+    }
+
+    public void add(int value) {
+        buffer[posWrite()] = value;
+    }
+
+    /**
+     * adds ints; the caller checks that there is room for them
+     * @param buf array with ints
+     * @param off index of the first int
+     * @param len number of ints
+     */
+    public void add(int[] buf, int off, int len) {
+        addAll(buf, off, len);
+    }
+
+    public int remove() {
+        return buffer[posRemove()];
+    }
+
+    /**
+     * removes ints into the array
+     * @param dst array to move ints to
+     * @param off index in the array
+     * @param len max number of ints to move
+     * @return number of ints moved
+     */
+    public int remove(int[] dst, int off, int len) {
+        return removeAll(dst, off, len);
+    }
+
+    public int current() {
+        return buffer[posRead];
+    }
+}
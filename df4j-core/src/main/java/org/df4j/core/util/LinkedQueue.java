@@ -1,7 +1,9 @@
 package org.df4j.core.util;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
+import java.util.List;
 
 public class LinkedQueue<S> extends LinkedHashSet<S> {
 
@@ -10,6 +12,18 @@ public class LinkedQueue<S> extends LinkedHashSet<S> {
         return super.add(s);
     }
 
+    @Override
+    public synchronized boolean remove(Object o) {
+        return super.remove(o);
+    }
+
+    /**
+     * @return a copy of the elements in the order of insertion
+     */
+    public synchronized List<S> toList() {
+        return new ArrayList<>(this);
+    }
+
     public synchronized S remove() {
         Iterator<S> it = iterator();
         it.hasNext();
@@ -0,0 +1,50 @@
+package org.df4j.core.util;
+
+/**
+ * Ring buffer of primitive longs. Not thread-safe.
+ */
+public class LongBuffer extends PrimitiveBuffer {
+    private final long[] buffer;
+
+    public LongBuffer(int bufferCapacity) {
+        this(new long[checkCapacity(bufferCapacity)]);
+    }
+
+    private LongBuffer(long[] buffer) {
+        super(buffer, buffer.length);
+        this.buffer = buffer;
+    }
+
+    public void add(long value) {
+        buffer[posWrite()] = value;
+    }
+
+    /**
+     * adds longs; the caller checks that there is room for them
+     * @param buf array with longs
+     * @param off index of the first long
+     * @param len number of longs
+     */
+    public void add(long[] buf, int off, int len) {
+        addAll(buf, off, len);
+    }
+
+    public long remove() {
+        return buffer[posRemove()];
+    }
+
+    /**
+     * removes longs into the array
+     * @param dst array to move longs to
+     * @param off index in the array
+     * @param len max number of longs to move
+     * @return number of longs moved
+     */
+    public int remove(long[] dst, int off, int len) {
+        return removeAll(dst, off, len);
+    }
+
+    public long current() {
+        return buffer[posRead];
+    }
+}
@@ -0,0 +1,117 @@
+package org.df4j.core.util;
+
+/**
+ * Positions and bulk copying of the ring buffers of primitives,
+ * which differ only by the type of the array. Not thread-safe.
+ * <p>
+ * Subclasses store and load single elements at the positions given by {@link #posWrite()} and {@link #posRemove()};
+ * ranges of elements are copied with {@link System#arraycopy}, which takes arrays of any type.
+ */
+public abstract class PrimitiveBuffer {
+    public final int bufferCapacity;
+    /** the array of the subclass */
+    private final Object array;
+    protected int posRead = 0;
+    private int count = 0;
+
+    /**
+     * @param bufferCapacity capacity of a buffer
+     * @return the capacity
+     * @throws IllegalArgumentException if the capacity is not positive
+     */
+    protected static int checkCapacity(int bufferCapacity) {
+        if (bufferCapacity <= 0) {
+            throw new IllegalArgumentException();
+        }
+        return bufferCapacity;
+    }
+
+    /**
+     * @param array array of primitives to keep the elements in
+     * @param bufferCapacity length of the array
+     */
+    protected PrimitiveBuffer(Object array, int bufferCapacity) {
+        this.array = array;
+        this.bufferCapacity = bufferCapacity;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public long remainingCapacity() {
+        return bufferCapacity - count;
+    }
+
+    public boolean buffIsFull() {
+        return count == bufferCapacity;
+    }
+
+    /**
+     * takes a place for a new element; the caller checks that there is room for it
+     * @return position to store the new element at
+     */
+    protected int posWrite() {
+        int posWrite = posRead + count;
+        if (posWrite >= bufferCapacity) {
+            posWrite -= bufferCapacity;
+        }
+        count++;
+        return posWrite;
+    }
+
+    /**
+     * frees the place of the first element; the caller checks that the buffer is not empty
+     * @return position of the removed element, to load it from
+     */
+    protected int posRemove() {
+        int res = posRead;
+        posRead++;
+        if (posRead == bufferCapacity) {
+            posRead = 0;
+        }
+        count--;
+        return res;
+    }
+
+    /**
+     * adds elements; the caller checks that there is room for them
+     * @param src array of the same type as the buffer's one
+     * @param off index of the first element
+     * @param len number of elements
+     */
+    public void addAll(Object src, int off, int len) {
+        int posWrite = posRead + count;
+        if (posWrite >= bufferCapacity) {
+            posWrite -= bufferCapacity;
+        }
+        int first = Math.min(len, bufferCapacity - posWrite);
+        System.arraycopy(src, off, array, posWrite, first);
+        System.arraycopy(src, off + first, array, 0, len - first);
+        count += len;
+    }
+
+    /**
+     * removes elements into the array
+     * @param dst array of the same type as the buffer's one
+     * @param off index in the array
+     * @param len max number of elements to move
+     * @return number of elements moved
+     */
+    public int removeAll(Object dst, int off, int len) {
+        int n = Math.min(len, count);
+        int first = Math.min(n, bufferCapacity - posRead);
+        System.arraycopy(array, posRead, dst, off, first);
+        System.arraycopy(array, 0, dst, off + first, n - first);
+        posRead += n;
+        if (posRead >= bufferCapacity) {
+            posRead -= bufferCapacity;
+        }
+        count -= n;
+        return n;
+    }
+}
@@ -0,0 +1,158 @@
+package org.df4j.core.util;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free queue for a single consumer and one or many producers.
+ * A single producer uses {@link #offer(Object)}, concurrent producers use {@link #offerShared(Object)};
+ * the two methods must not be used concurrently.
+ * <p>
+ * Head and tail indices are padded so that the consumer and producers do not share cache lines.
+ * A slot holds null until its element is published, so the consumer needs no other signal from producers.
+ *
+ * @param <T> type of elements
+ */
+public class RingBuffer<T> extends RingBufferPad2 {
+    private static final AtomicLongFieldUpdater<RingBufferHead> headUpdater =
+            AtomicLongFieldUpdater.newUpdater(RingBufferHead.class, "head");
+    private static final AtomicLongFieldUpdater<RingBufferTail> tailUpdater =
+            AtomicLongFieldUpdater.newUpdater(RingBufferTail.class, "tail");
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<T> slots;
+
+    /**
+     * @param capacity max number of elements
+     */
+    public RingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.capacity = capacity;
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        mask = size - 1;
+        slots = new AtomicReferenceArray<>(size);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * inserts an element; must be called by a single producer thread at a time
+     * @param element element to insert
+     * @return false if the buffer is full
+     */
+    public boolean offer(T element) {
+        if (element == null) {
+            throw new NullPointerException();
+        }
+        long t = tail;
+        if (t - headCache >= capacity) {
+            headCache = head;
+            if (t - headCache >= capacity) {
+                return false;
+            }
+        }
+        slots.lazySet((int) t & mask, element);
+        tail = t + 1; // a volatile store, so that the producer can check the state of the consumer after the offer
+        return true;
+    }
+
+    /**
+     * inserts an element; can be called by several producer threads concurrently
+     * @param element element to insert
+     * @return false if the buffer is full
+     */
+    public boolean offerShared(T element) {
+        if (element == null) {
+            throw new NullPointerException();
+        }
+        for (;;) {
+            long t = tail;
+            if (t - head >= capacity) {
+                return false;
+            }
+            if (tailUpdater.compareAndSet(this, t, t + 1)) {
+                slots.lazySet((int) t & mask, element);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * removes the first element; must be called by a single consumer thread at a time
+     * @return the first element, or null if the buffer is empty
+     */
+    public T poll() {
+        long h = head;
+        int index = (int) h & mask;
+        T element = slots.get(index);
+        if (element == null) {
+            if (h == tail) {
+                return null;
+            }
+            // the slot is claimed by a concurrent producer, which is about to publish it
+            do {
+                element = slots.get(index);
+            } while (element == null);
+        }
+        slots.lazySet(index, null);
+        headUpdater.lazySet(this, h + 1);
+        return element;
+    }
+
+    /**
+     * @return the first element, or null if the buffer is empty; must be called by the consumer
+     */
+    public T peek() {
+        long h = head;
+        int index = (int) h & mask;
+        T element = slots.get(index);
+        while (element == null && h != tail) {
+            element = slots.get(index);
+        }
+        return element;
+    }
+
+    public boolean isEmpty() {
+        return head == tail;
+    }
+
+    public int size() {
+        long h = head;
+        long size = tail - h;
+        return (int) Math.max(0, Math.min(size, capacity));
+    }
+}
+
+/** padding before the head index */
+abstract class RingBufferPad0 {
+    long p00, p01, p02, p03, p04, p05, p06, p07;
+}
+
+/** the consumer's index */
+abstract class RingBufferHead extends RingBufferPad0 {
+    protected volatile long head = 0;
+}
+
+/** padding between the head and tail indices */
+abstract class RingBufferPad1 extends RingBufferHead {
+    long p10, p11, p12, p13, p14, p15, p16, p17;
+}
+
+/** the producers' index, and the head index as last seen by a single producer */
+abstract class RingBufferTail extends RingBufferPad1 {
+    protected volatile long tail = 0;
+    protected long headCache = 0;
+}
+
+/** padding after the tail index */
+abstract class RingBufferPad2 extends RingBufferTail {
+    long p20, p21, p22, p23, p24, p25, p26, p27;
+}
@@ -0,0 +1,84 @@
+package org.df4j.core.util;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Threads blocked until some attempt succeeds, e.g. until a token can be taken from a port.
+ * Unlike {@link Object#wait()}, waiting threads are parked with {@link LockSupport} and hold no monitors,
+ * so a waiting virtual thread releases its carrier thread.
+ * <p>
+ * The party which changes the state the waiters depend on must call {@link #signalAll()} afterwards.
+ */
+public class Waiters {
+    private final ConcurrentLinkedQueue<Thread> threads = new ConcurrentLinkedQueue<>();
+
+    /**
+     * wakes up all waiting threads, so that they repeat their attempts.
+     */
+    public void signalAll() {
+        if (threads.isEmpty()) {
+            return;
+        }
+        for (Thread thread: threads) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * repeats the attempt until it returns non-null value
+     * @param attempt action which returns null when it should be repeated later
+     * @param <R> type of the result
+     * @return the first non-null value returned by the attempt
+     * @throws InterruptedException when the current thread is interrupted
+     */
+    public <R> R await(Supplier<R> attempt) throws InterruptedException {
+        return await(attempt, false, 0);
+    }
+
+    /**
+     * repeats the attempt until it returns non-null value or the timeout elapses
+     * @param attempt action which returns null when it should be repeated later
+     * @param timeoutNanos max waiting time in nanoseconds
+     * @param <R> type of the result
+     * @return the first non-null value returned by the attempt, or null if the timeout elapsed
+     * @throws InterruptedException when the current thread is interrupted
+     */
+    public <R> R await(Supplier<R> attempt, long timeoutNanos) throws InterruptedException {
+        return await(attempt, true, timeoutNanos);
+    }
+
+    private <R> R await(Supplier<R> attempt, boolean timed, long timeoutNanos) throws InterruptedException {
+        R res = attempt.get();
+        if (res != null) {
+            return res;
+        }
+        long deadline = System.nanoTime() + timeoutNanos;
+        Thread currentThread = Thread.currentThread();
+        threads.add(currentThread);
+        try {
+            for (;;) {
+                // repeat after the registration, as the signal could come before this thread became visible
+                res = attempt.get();
+                if (res != null) {
+                    return res;
+                }
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                if (!timed) {
+                    LockSupport.park(this);
+                } else {
+                    long nanosLeft = deadline - System.nanoTime();
+                    if (nanosLeft <= 0) {
+                        return null;
+                    }
+                    LockSupport.parkNanos(this, nanosLeft);
+                }
+            }
+        } finally {
+            threads.remove(currentThread);
+        }
+    }
+}
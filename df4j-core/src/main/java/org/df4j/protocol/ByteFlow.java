@@ -0,0 +1,35 @@
+package org.df4j.protocol;
+
+import org.reactivestreams.Subscription;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Flow of bytes, passed in buffers. Demand is counted in bytes, not in buffers.
+ */
+public class ByteFlow {
+    private ByteFlow(){}
+
+    public interface Publisher {
+        void subscribe(Subscriber subscriber);
+    }
+
+    public interface Subscriber {
+        /**
+         * @param subscription subscription whose {@link Subscription#request(long)} counts bytes
+         */
+        void onSubscribe(Subscription subscription);
+
+        /**
+         * The bytes between the position and the limit of the buffer are passed.
+         * The buffer is usually a read-only view of the publisher's data, passed without copying;
+         * the subscriber may keep it and move its position.
+         * @param buffer buffer with no more remaining bytes than the demand allows
+         */
+        void onNext(ByteBuffer buffer);
+
+        void onComplete();
+
+        void onError(Throwable e);
+    }
+}
@@ -14,6 +14,19 @@ public class CharFlow {
 
         void onNext(char c);
 
+        /**
+         * passes several characters at once; they count against the demand as if passed one by one.
+         * The array may be reused by the publisher after the call returns.
+         * @param buf array with characters
+         * @param off index of the first character
+         * @param len number of characters, not more than the demand allows
+         */
+        default void onNext(char[] buf, int off, int len) {
+            for (int k = 0; k < len; k++) {
+                onNext(buf[off + k]);
+            }
+        }
+
         void onComplete();
 
         void onError(Throwable e);
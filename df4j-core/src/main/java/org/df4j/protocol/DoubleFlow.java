@@ -0,0 +1,37 @@
+package org.df4j.protocol;
+
+import org.reactivestreams.Subscription;
+
+/**
+ * Flow of primitive doubles, without boxing
+ */
+public class DoubleFlow {
+    private DoubleFlow(){}
+
+    public interface Publisher {
+        void subscribe(Subscriber subscriber);
+    }
+
+    public interface Subscriber {
+        void onSubscribe(Subscription subscription);
+
+        void onNext(double value);
+
+        /**
+         * passes several doubles at once; they count against the demand as if passed one by one.
+         * The array may be reused by the publisher after the call returns.
+         * @param buf array with doubles
+         * @param off index of the first one
+         * @param len number of doubles, not more than the demand allows
+         */
+        default void onNext(double[] buf, int off, int len) {
+            for (int k = 0; k < len; k++) {
+                onNext(buf[off + k]);
+            }
+        }
+
+        void onComplete();
+
+        void onError(Throwable e);
+    }
+}
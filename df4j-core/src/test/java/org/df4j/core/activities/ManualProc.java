@@ -0,0 +1,14 @@
+package org.df4j.core.activities;
+
+import org.df4j.core.actor.AsyncProc;
+
+/**
+ * A parent for ports under test. It is never started,
+ * so the test thread plays the role of its action and extracts tokens from its ports directly.
+ */
+public class ManualProc extends AsyncProc {
+
+    @Override
+    protected void runAction() {
+    }
+}
@@ -0,0 +1,42 @@
+package org.df4j.core.activities;
+
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records received signals and requests nothing by itself; the test requests tokens through {@link #subscription}.
+ *
+ * @param <T> type of tokens
+ */
+public class ManualSubscriber<T> implements Subscriber<T> {
+    public Subscription subscription;
+    public final List<T> tokens = new ArrayList<>();
+    public boolean completed = false;
+    public Throwable error;
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+        this.subscription = subscription;
+    }
+
+    @Override
+    public void onNext(T token) {
+        if (completed) {
+            throw new IllegalStateException("token after completion: " + token);
+        }
+        tokens.add(token);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        error = throwable;
+    }
+
+    @Override
+    public void onComplete() {
+        completed = true;
+    }
+}
@@ -0,0 +1,28 @@
+package org.df4j.core.activities;
+
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records the demand of a subscriber under test; tokens are passed to the subscriber by the test.
+ */
+public class ManualSubscription implements Subscription {
+    /** each request, in order */
+    public final List<Long> requests = new ArrayList<>();
+    /** total demand */
+    public long requested = 0;
+    public boolean cancelled = false;
+
+    @Override
+    public void request(long n) {
+        requests.add(n);
+        requested += n;
+    }
+
+    @Override
+    public void cancel() {
+        cancelled = true;
+    }
+}
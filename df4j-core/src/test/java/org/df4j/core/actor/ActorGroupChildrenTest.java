@@ -3,6 +3,7 @@ package org.df4j.core.actor;
 import org.df4j.core.activities.PublisherActor;
 import org.df4j.core.activities.RangeActor;
 import org.df4j.core.activities.SubscriberActor;
+import org.junit.Assert;
 import org.junit.Test;
 
 public class ActorGroupChildrenTest {
@@ -17,7 +18,27 @@ public class ActorGroupChildrenTest {
         System.out.println(ch);
     }
 
+    /** turning tracking on again does not forget the children */
+    @Test
+    public void repeatedTrackingTest() {
+        ActorGroup group = new ActorGroup();
+        group.setChildTracking(true);
+        AsyncProc proc = new AsyncProc(group) {
+            @Override
+            protected void runAction() {
+            }
+        };
+        group.setChildTracking(true);
+        Assert.assertTrue(group.getChildNodes().contains(proc));
+        group.setChildTracking(false);
+        Assert.assertTrue(group.getChildNodes().isEmpty());
+    }
+
     private class MyActorGroup extends ActorGroup {
+        {
+            setChildTracking(true);
+        }
+
         String getChildren() {
             return children.toString();
         }
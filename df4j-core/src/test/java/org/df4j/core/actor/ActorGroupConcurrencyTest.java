@@ -0,0 +1,65 @@
+package org.df4j.core.actor;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class ActorGroupConcurrencyTest {
+    static final int THREADS = 8;
+    static final int PROCS_PER_THREAD = 50000;
+
+    static class ShortProc extends AsyncProc {
+        ShortProc(ActorGroup parent) {
+            super(parent);
+        }
+
+        @Override
+        protected void runAction() {
+        }
+    }
+
+    /**
+     * Many short-lived children enter and leave concurrently.
+     * A guard child keeps the group alive until all of them are created.
+     */
+    @Test
+    public void concurrentEnterLeaveTest() throws InterruptedException {
+        ActorGroup group = new ActorGroup();
+        ShortProc guard = new ShortProc(group);
+        Thread[] threads = new Thread[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            threads[t] = new Thread(()->{
+                for (int k = 0; k < PROCS_PER_THREAD; k++) {
+                    new ShortProc(group).start();
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread: threads) {
+            thread.join();
+        }
+        Assert.assertFalse(group.await(100, TimeUnit.MILLISECONDS));
+        guard.start();
+        Assert.assertTrue(group.await(5, TimeUnit.SECONDS));
+        Assert.assertNull(group.getCompletionException());
+        Assert.assertEquals(0, group.getChildCount());
+        Assert.assertEquals(THREADS * PROCS_PER_THREAD + 1, group.getTotalChildCount());
+        Assert.assertTrue(group.getChildNodes().isEmpty());
+    }
+
+    /** a node which leaves twice is counted once */
+    @Test
+    public void repeatedLeaveTest() throws InterruptedException {
+        ActorGroup group = new ActorGroup();
+        ShortProc daemon = new ShortProc(group);
+        ShortProc proc = new ShortProc(group);
+        daemon.setDaemon(true);
+        daemon.start();
+        Assert.assertTrue(daemon.await(1, TimeUnit.SECONDS));
+        Assert.assertEquals(1, group.getChildCount());
+        Assert.assertFalse(group.isCompleted());
+        proc.start();
+        Assert.assertTrue(group.await(1, TimeUnit.SECONDS));
+    }
+}
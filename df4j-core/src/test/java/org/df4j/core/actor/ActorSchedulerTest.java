@@ -0,0 +1,46 @@
+package org.df4j.core.actor;
+
+import org.df4j.core.activities.PublisherActor;
+import org.df4j.core.activities.SubscriberActor;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+public class ActorSchedulerTest {
+
+    @Test
+    public void pubSubTest() throws InterruptedException {
+        ActorScheduler scheduler = new ActorScheduler(2);
+        ActorGroup group = new ActorGroup(scheduler);
+        PublisherActor pub = new PublisherActor(group, 1000, 0);
+        SubscriberActor sub = new SubscriberActor(group, 0);
+        pub.subscribe(sub);
+        pub.start();
+        sub.start();
+        Assert.assertTrue(sub.await(2, TimeUnit.SECONDS));
+        Assert.assertSame(scheduler, pub.getExecutor()); // SubscriberActor does not enter the group
+        Assert.assertTrue(scheduler.getTaskCount() > 1000);
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void currentSchedulerTest() throws InterruptedException {
+        ActorScheduler scheduler = new ActorScheduler(1);
+        Executor[] seen = new Executor[1];
+        Thread[] thread = new Thread[1];
+        scheduler.execute(()->{
+            thread[0] = Thread.currentThread();
+            seen[0] = ActorScheduler.currentScheduler();
+        });
+        for (int k = 0; k < 100 && thread[0] == null; k++) {
+            Thread.sleep(10);
+        }
+        Assert.assertSame(scheduler, seen[0]);
+        Assert.assertNull(ActorScheduler.currentScheduler());
+        scheduler.shutdown();
+        thread[0].join(1000);
+        Assert.assertFalse(thread[0].isAlive());
+    }
+}
@@ -6,6 +6,11 @@ import org.junit.Test;
 import org.reactivestreams.Subscriber;
 import org.reactivestreams.Subscription;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 public class DelayTest {
@@ -19,6 +24,29 @@ public class DelayTest {
         assertTrue(subscriber.await(1000));
     }
 
+    /** the actor is resumed on its own executor and not on the timer thread, even with inline firing */
+    @Test
+    public void resumeOnExecutorTest() throws InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor((r)->new Thread(r, "actor-executor"));
+        DelayActor actor = new DelayActor() {
+            @Override
+            protected void runAction() throws Throwable {
+                assertFalse(Thread.currentThread().getName().startsWith("df4j-timer"));
+                super.runAction();
+            }
+        };
+        actor.period = 10;
+        actor.setExecutor(executor);
+        actor.setInlineFiring(8);
+        DelaySubscriber subscriber = new DelaySubscriber();
+        actor.out.subscribe(subscriber);
+        actor.start();
+        assertTrue(subscriber.await(1000));
+        assertTrue(actor.isCompleted());
+        assertEquals(null, actor.getCompletionException());
+        executor.shutdown();
+    }
+
     static class DelaySubscriber extends Completion implements Subscriber<Integer> {
         Subscription s;
 
@@ -0,0 +1,97 @@
+package org.df4j.core.actor;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+public class InlineFiringTest {
+
+    static class Transmitter extends AbstractProcessor<Long,Long> {
+        Thread thread;
+        int stackDepth;
+        boolean underPortLock;
+
+        Transmitter(Executor executor, int maxDepth) {
+            setExecutor(executor);
+            setInlineFiring(maxDepth);
+            start();
+        }
+
+        @Override
+        protected Long whenNext(Long item) {
+            thread = Thread.currentThread();
+            stackDepth = thread.getStackTrace().length;
+            underPortLock = Thread.holdsLock(getInPort());
+            return item;
+        }
+    }
+
+    static class Sink extends AbstractSubscriber<Long> {
+        Sink(Executor executor) {
+            setExecutor(executor);
+            start();
+        }
+
+        @Override
+        protected void whenNext(Long item) {
+            complete();
+        }
+    }
+
+    Transmitter[] chain(Executor executor, int length, int maxDepth) {
+        Transmitter[] transmitters = new Transmitter[length];
+        for (int k = 0; k < length; k++) {
+            transmitters[k] = new Transmitter(executor, maxDepth);
+            if (k > 0) {
+                transmitters[k-1].subscribe(transmitters[k]);
+            }
+        }
+        return transmitters;
+    }
+
+    @Test
+    public void sameThreadTest() throws InterruptedException {
+        Executor executor = new ForkJoinPool(2);
+        Transmitter[] transmitters = chain(executor, 10, 16);
+        Sink sink = new Sink(executor);
+        transmitters[9].subscribe(sink);
+        transmitters[0].onNext(1L);
+        Assert.assertTrue(sink.await(1, TimeUnit.SECONDS));
+        for (int k = 1; k < transmitters.length; k++) {
+            Assert.assertSame(transmitters[0].thread, transmitters[k].thread);
+            Assert.assertFalse(transmitters[k].underPortLock);
+        }
+        // InpFlow is unblocked under its lock, so the runs are deferred and looped, not nested
+        for (int k = 2; k < transmitters.length; k++) {
+            Assert.assertEquals(transmitters[1].stackDepth, transmitters[k].stackDepth);
+        }
+    }
+
+    /** threads of other executors cannot be recognized, so the actor is always submitted */
+    @Test
+    public void foreignExecutorTest() throws InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Transmitter transmitter = new Transmitter(executor, 16);
+        Sink sink = new Sink(executor);
+        transmitter.subscribe(sink);
+        transmitter.onNext(1L);
+        Assert.assertTrue(sink.await(1, TimeUnit.SECONDS));
+        Assert.assertNotSame(Thread.currentThread(), transmitter.thread);
+        executor.shutdown();
+    }
+
+    @Test
+    public void depthBoundTest() throws InterruptedException {
+        Executor executor = ForkJoinPool.commonPool();
+        Transmitter[] transmitters = chain(executor, 10000, 2);
+        Sink sink = new Sink(executor);
+        transmitters[transmitters.length-1].subscribe(sink);
+        transmitters[0].onNext(1L);
+        Assert.assertTrue(sink.await(2, TimeUnit.SECONDS));
+    }
+}
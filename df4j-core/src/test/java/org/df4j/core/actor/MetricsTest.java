@@ -0,0 +1,98 @@
+package org.df4j.core.actor;
+
+import org.df4j.core.port.InpFlow;
+import org.df4j.core.util.Utils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+public class MetricsTest {
+    static final int MSG_COUNT = 10;
+
+    static class Consumer extends Actor {
+        InpFlow<Integer> inp = new InpFlow<>(this);
+        int sum = 0;
+
+        Consumer(ActorGroup parent) {
+            super(parent);
+            setExecutor(Utils.directExec);
+        }
+
+        @Override
+        protected void runAction() {
+            Integer value = inp.poll();
+            if (value == null) {
+                complete();
+            } else {
+                sum += value;
+            }
+        }
+    }
+
+    @Test
+    public void actorMetricsTest() throws InterruptedException {
+        ActorGroup group = new ActorGroup();
+        group.setMetricsEnabled(true);
+        Consumer consumer = new Consumer(group);
+        ActorMetrics metrics = consumer.getMetrics();
+        Assert.assertNotNull(metrics);
+        consumer.start();
+        Thread.sleep(20);
+        for (int k = 0; k < MSG_COUNT; k++) {
+            consumer.inp.onNext(k);
+        }
+        Assert.assertEquals(MSG_COUNT, metrics.getFireCount());
+        Assert.assertEquals(MSG_COUNT, metrics.getActionCount());
+        long[] blocked = metrics.getPortBlockedNanos();
+        Assert.assertEquals(2, blocked.length);
+        Assert.assertTrue(blocked[consumer.inp.portNum] >= TimeUnit.MILLISECONDS.toNanos(20));
+        GroupMetrics groupMetrics = group.getMetrics();
+        Assert.assertEquals(1, groupMetrics.getActorCount());
+        Assert.assertSame(metrics, groupMetrics.getActors().get(0));
+        consumer.inp.onComplete();
+        Assert.assertTrue(consumer.await(1, TimeUnit.SECONDS));
+        Assert.assertEquals(0, groupMetrics.getActorCount());
+        Assert.assertEquals(MSG_COUNT + 1, groupMetrics.getFireCount());
+        Assert.assertEquals(metrics.getRunNanos(), groupMetrics.getRunNanos());
+    }
+
+    @Test
+    public void metricsOffTest() {
+        Consumer consumer = new Consumer(new ActorGroup());
+        Assert.assertNull(consumer.getMetrics());
+        consumer.start();
+        consumer.inp.onNext(1);
+        Assert.assertEquals(1, consumer.sum);
+        Assert.assertNull(consumer.getMetrics());
+        ActorMetrics metrics = consumer.enableMetrics();
+        consumer.inp.onNext(2);
+        Assert.assertEquals(1, metrics.getFireCount());
+    }
+
+    @Test
+    public void mbeanTest() throws Exception {
+        ActorGroup group = new ActorGroup();
+        ObjectName name = group.registerMBean("MetricsTest");
+        try {
+            Consumer consumer = new Consumer(group);
+            consumer.start();
+            for (int k = 0; k < MSG_COUNT; k++) {
+                consumer.inp.onNext(k);
+            }
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            Assert.assertEquals((long) MSG_COUNT, server.getAttribute(name, "FireCount"));
+            Assert.assertEquals(1L, server.getAttribute(name, "ChildCount"));
+            CompositeData[] actors = (CompositeData[]) server.getAttribute(name, "Actors");
+            Assert.assertEquals(1, actors.length);
+            Assert.assertEquals((long) MSG_COUNT, actors[0].get("fireCount"));
+        } finally {
+            group.unregisterMBean();
+        }
+        Assert.assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+    }
+}
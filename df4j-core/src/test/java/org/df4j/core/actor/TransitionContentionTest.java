@@ -0,0 +1,135 @@
+package org.df4j.core.actor;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Many threads change the state of their own ports, all belonging to the same transition.
+ * No port state change may be lost, and the actor may never run concurrently with itself.
+ */
+public class TransitionContentionTest {
+    static final int PORT_NUM = 8;
+    static final int ROUNDS = 50000;
+
+    static class FanInActor extends Actor {
+        AsyncProc.Port[] ports = new AsyncProc.Port[PORT_NUM];
+        {
+            for (int k = 0; k < PORT_NUM; k++) {
+                ports[k] = new AsyncProc.Port(this, true);
+            }
+        }
+        final AtomicInteger running = new AtomicInteger();
+        volatile boolean overlapped = false;
+        volatile int fired = 0;
+
+        @Override
+        protected void runAction() {
+            if (running.incrementAndGet() != 1) {
+                overlapped = true;
+            }
+            fired++;
+            running.decrementAndGet();
+        }
+    }
+
+    private void contention(FanInActor actor) throws InterruptedException {
+        CountDownLatch startSignal = new CountDownLatch(1);
+        Thread[] producers = new Thread[PORT_NUM];
+        for (int k = 0; k < PORT_NUM; k++) {
+            AsyncProc.Port port = actor.ports[k];
+            boolean blockAtEnd = k % 2 == 1;
+            producers[k] = new Thread(()->{
+                try {
+                    startSignal.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int r = 0; r < ROUNDS; r++) {
+                    port.block();
+                    port.unblock();
+                }
+                if (blockAtEnd) {
+                    port.block();
+                }
+            });
+            producers[k].start();
+        }
+        startSignal.countDown();
+        for (Thread producer: producers) {
+            producer.join();
+        }
+        for (int k = 0; k < PORT_NUM; k++) {
+            Assert.assertEquals("port " + k, k % 2 == 0, actor.ports[k].isReady());
+        }
+    }
+
+    /** the actor is not started, so only the port bits are changed */
+    @Test
+    public void portStateTest() throws InterruptedException {
+        contention(new FanInActor());
+    }
+
+    /** waits until the tasks submitted to the single-thread executor before this call are done */
+    private static void flush(ExecutorService executor) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        executor.execute(done::countDown);
+        Assert.assertTrue(done.await(1, TimeUnit.SECONDS));
+    }
+
+    /**
+     * waits until the actor stops firing.
+     * A firing is counted before its run is submitted, so the run can be queued behind the first flush;
+     * the second flush waits for it. Repeated until no firing happens in between.
+     */
+    private static void settle(ExecutorService executor, AsyncProc actor) throws InterruptedException {
+        int fireCount;
+        do {
+            fireCount = actor.getFireCount();
+            flush(executor);
+            flush(executor);
+        } while (fireCount != actor.getFireCount());
+    }
+
+    /**
+     * The actor runs on a single-thread executor, so flushes wait for all its pending runs.
+     * A firing is seen at once in {@link AsyncProc#getFireCount()}, as it is counted by the unblocking thread.
+     */
+    @Test
+    public void fireOnceTest() throws InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            FanInActor actor = new FanInActor();
+            actor.setExecutor(executor);
+            actor.start();
+            contention(actor);
+            settle(executor, actor);
+            Assert.assertFalse(actor.overlapped);
+            Assert.assertTrue(actor.fired > 0);
+            // the odd ports stay blocked, so the actor does not fire
+            int fireCount = actor.getFireCount();
+            int fired = actor.fired;
+            for (int k = 0; k < PORT_NUM; k += 2) {
+                actor.ports[k].block();
+                actor.ports[k].unblock();
+            }
+            Assert.assertEquals(fireCount, actor.getFireCount());
+            for (int k = 1; k < PORT_NUM; k += 2) {
+                actor.ports[k].unblock();
+            }
+            Assert.assertNotEquals(fireCount, actor.getFireCount());
+            actor.ports[1].block();
+            flush(executor);
+            Assert.assertTrue(actor.fired > fired);
+            Assert.assertFalse(actor.overlapped);
+            actor.complete();
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
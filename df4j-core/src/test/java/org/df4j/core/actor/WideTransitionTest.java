@@ -0,0 +1,144 @@
+package org.df4j.core.actor;
+
+import org.df4j.core.port.InpFlow;
+import org.df4j.core.port.InpSignal;
+import org.df4j.core.util.Utils;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class WideTransitionTest {
+    static final int PORT_NUM = 200;
+
+    static class JoinActor extends Actor {
+        InpSignal[] inps = new InpSignal[PORT_NUM];
+        InpSignal narrow = new InpSignal(this);
+        int runCounter = 0;
+
+        {
+            for (int k = 0; k < PORT_NUM; k++) {
+                inps[k] = new InpSignal(this);
+            }
+            setExecutor(Utils.directExec);
+        }
+
+        @Override
+        protected void runAction() {
+            for (InpSignal inp: inps) {
+                inp.remove();
+            }
+            narrow.remove();
+            runCounter++;
+        }
+    }
+
+    @Test
+    public void joinTest() {
+        JoinActor actor = new JoinActor();
+        actor.start();
+        actor.narrow.release();
+        for (int k = PORT_NUM - 1; k > 0; k--) {
+            actor.inps[k].release();
+        }
+        Assert.assertEquals(0, actor.runCounter);
+        actor.inps[0].release();
+        Assert.assertEquals(1, actor.runCounter);
+        for (InpSignal inp: actor.inps) {
+            Assert.assertFalse(inp.isReady());
+            inp.release();
+        }
+        Assert.assertEquals(1, actor.runCounter);
+        actor.narrow.release();
+        Assert.assertEquals(2, actor.runCounter);
+    }
+
+    static class NarrowActor extends JoinActor {
+        {
+            nextAction(this::narrowAction, narrow);
+        }
+
+        void narrowAction() {
+            narrow.remove();
+            runCounter++;
+        }
+    }
+
+    @Test
+    public void widePortsInactiveTest() {
+        NarrowActor actor = new NarrowActor();
+        actor.start();
+        actor.narrow.release();
+        Assert.assertEquals(1, actor.runCounter);
+        actor.narrow.release();
+        Assert.assertEquals(2, actor.runCounter);
+    }
+
+    /** a single wide port is active, together with the narrow one */
+    static class SelectiveActor extends JoinActor {
+        {
+            nextAction(this::selectiveAction, narrow, inps[150]);
+        }
+
+        void selectiveAction() {
+            narrow.remove();
+            inps[150].remove();
+            runCounter++;
+        }
+    }
+
+    @Test
+    public void wideActivePortTest() {
+        SelectiveActor actor = new SelectiveActor();
+        actor.start();
+        Assert.assertTrue(actor.inps[150].isActive());
+        Assert.assertFalse(actor.inps[149].isActive());
+        actor.narrow.release();
+        Assert.assertEquals(0, actor.runCounter);
+        actor.inps[149].release();
+        Assert.assertEquals(0, actor.runCounter);
+        actor.inps[150].release();
+        Assert.assertEquals(1, actor.runCounter);
+        actor.inps[150].release();
+        Assert.assertEquals(1, actor.runCounter);
+        actor.narrow.release();
+        Assert.assertEquals(2, actor.runCounter);
+    }
+
+    static class SelectActor extends Actor {
+        PortGroup group = new PortGroup(this);
+        @SuppressWarnings("unchecked")
+        InpFlow<Integer>[] inps = (InpFlow<Integer>[]) new InpFlow<?>[PORT_NUM];
+        int lastServed = -1;
+
+        {
+            for (int k = 0; k < PORT_NUM; k++) {
+                inps[k] = new InpFlow<>(group);
+            }
+            setExecutor(Utils.directExec);
+        }
+
+        @Override
+        protected void runAction() {
+            for (int k = 0; k < PORT_NUM; k++) {
+                if (inps[k].isReady()) {
+                    inps[k].remove();
+                    lastServed = k;
+                    return;
+                }
+            }
+            throw new IllegalStateException();
+        }
+    }
+
+    @Test
+    public void groupTest() {
+        SelectActor actor = new SelectActor();
+        actor.start();
+        Assert.assertEquals(-1, actor.lastServed);
+        actor.inps[150].onNext(150);
+        Assert.assertEquals(150, actor.lastServed);
+        Assert.assertFalse(actor.group.isReady());
+        actor.inps[3].onNext(3);
+        Assert.assertEquals(3, actor.lastServed);
+        Assert.assertFalse(actor.group.isReady());
+    }
+}
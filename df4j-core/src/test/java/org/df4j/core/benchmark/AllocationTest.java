@@ -0,0 +1,148 @@
+package org.df4j.core.benchmark;
+
+import org.df4j.core.actor.AbstractProcessor;
+import org.df4j.core.actor.AbstractSubscriber;
+import org.df4j.core.actor.Actor;
+import org.df4j.core.port.InpLongs;
+import org.df4j.core.port.OutLongs;
+import org.df4j.core.util.Utils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures memory allocated per message passed through a chain of processors.
+ * All the actors run on the current thread, so all allocations are counted for it.
+ */
+public class AllocationTest {
+    static final int CHAIN_LENGTH = 8;
+    static final int WARMUP_MESSAGES = 200000;
+    static final int MESSAGES = 100000;
+    static final Object TOKEN = new Object();
+
+    static class Transmitter extends AbstractProcessor<Object, Object> {
+        {
+            setExecutor(Utils.directExec);
+        }
+
+        @Override
+        protected Object whenNext(Object item) {
+            return item;
+        }
+    }
+
+    static class Sink extends AbstractSubscriber<Object> {
+        long count = 0;
+
+        {
+            setExecutor(Utils.directExec);
+        }
+
+        @Override
+        protected void whenNext(Object item) {
+            count++;
+        }
+    }
+
+    static class LongTransmitter extends Actor {
+        InpLongs inp = new InpLongs(this);
+        OutLongs out = new OutLongs(this);
+
+        {
+            setExecutor(Utils.directExec);
+        }
+
+        @Override
+        protected void runAction() {
+            out.onNext(inp.remove());
+        }
+    }
+
+    static class LongSink extends Actor {
+        InpLongs inp = new InpLongs(this);
+        long sum = 0;
+
+        {
+            setExecutor(Utils.directExec);
+        }
+
+        @Override
+        protected void runAction() {
+            sum += inp.remove();
+        }
+    }
+
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    @Test
+    public void processorChainTest() {
+        Transmitter[] chain = new Transmitter[CHAIN_LENGTH];
+        for (int k = 0; k < CHAIN_LENGTH; k++) {
+            chain[k] = new Transmitter();
+        }
+        Sink sink = new Sink();
+        for (int k = 0; k < CHAIN_LENGTH - 1; k++) {
+            chain[k].subscribe(chain[k + 1]);
+        }
+        chain[CHAIN_LENGTH - 1].subscribe(sink);
+        for (Transmitter transmitter: chain) {
+            transmitter.start();
+        }
+        sink.start();
+        Transmitter first = chain[0];
+        for (int k = 0; k < WARMUP_MESSAGES; k++) {
+            first.onNext(TOKEN);
+        }
+        long before = allocatedBytes();
+        for (int k = 0; k < MESSAGES; k++) {
+            first.onNext(TOKEN);
+        }
+        long allocated = allocatedBytes() - before;
+        Assert.assertEquals(WARMUP_MESSAGES + MESSAGES, sink.count);
+        double perMessage = (double) allocated / MESSAGES;
+        System.out.println("chain of " + CHAIN_LENGTH + ": " + allocated + " bytes allocated for " + MESSAGES
+                + " messages, " + perMessage + " bytes per message");
+        // a few bytes may be allocated by the measurement itself
+        Assert.assertTrue(perMessage < 1.0);
+    }
+
+    /**
+     * the same chain with primitive ports, which do not box tokens; values beyond the Long cache would be boxed by generic ports
+     */
+    @Test
+    public void longChainTest() {
+        LongTransmitter[] chain = new LongTransmitter[CHAIN_LENGTH];
+        for (int k = 0; k < CHAIN_LENGTH; k++) {
+            chain[k] = new LongTransmitter();
+        }
+        LongSink sink = new LongSink();
+        for (int k = 0; k < CHAIN_LENGTH - 1; k++) {
+            chain[k].out.subscribe(chain[k + 1].inp);
+        }
+        chain[CHAIN_LENGTH - 1].out.subscribe(sink.inp);
+        for (LongTransmitter transmitter: chain) {
+            transmitter.start();
+        }
+        sink.start();
+        InpLongs first = chain[0].inp;
+        long value = 1000;
+        for (int k = 0; k < WARMUP_MESSAGES; k++) {
+            first.onNext(value++);
+        }
+        long before = allocatedBytes();
+        for (int k = 0; k < MESSAGES; k++) {
+            first.onNext(value++);
+        }
+        long allocated = allocatedBytes() - before;
+        long expectedSum = (1000 + value - 1) * (value - 1000) / 2;
+        Assert.assertEquals(expectedSum, sink.sum);
+        double perMessage = (double) allocated / MESSAGES;
+        System.out.println("chain of " + CHAIN_LENGTH + " with primitive ports: " + allocated + " bytes allocated for "
+                + MESSAGES + " messages, " + perMessage + " bytes per message");
+        Assert.assertTrue(perMessage < 1.0);
+    }
+}
@@ -0,0 +1,117 @@
+package org.df4j.core.benchmark;
+
+import org.df4j.core.actor.Actor;
+import org.df4j.core.port.InpFlow;
+import org.df4j.core.port.InpMessagePort;
+import org.df4j.core.port.InpRing;
+import org.junit.Assert;
+import org.junit.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Cross-thread throughput of a buffered input port: a producer thread feeds an actor as fast as the demand allows.
+ * Compares {@link InpFlow} (synchronized queue) with {@link InpRing} (lock-free ring buffer).
+ */
+public class RingPortTest {
+    static final int CAPACITY = 256;
+    static final int WARMUP_TOKENS = 500000;
+    static final int TOKENS = 1000000;
+    static final Integer TOKEN = 1;
+
+    static class Consumer extends Actor {
+        final InpMessagePort<Integer> inp;
+        long count = 0;
+
+        Consumer(Function<Consumer, InpMessagePort<Integer>> portFactory) {
+            inp = portFactory.apply(this);
+        }
+
+        @Override
+        protected void runAction() {
+            if (inp.isCompleted()) {
+                complete();
+                return;
+            }
+            inp.remove();
+            count++;
+        }
+    }
+
+    /** runs on its own thread and spins while there is no demand */
+    static class Producer extends Thread implements Subscription {
+        final AtomicLong demand = new AtomicLong();
+        final Subscriber<Integer> subscriber;
+        final int tokens;
+
+        Producer(Subscriber<Integer> subscriber, int tokens) {
+            this.subscriber = subscriber;
+            this.tokens = tokens;
+            subscriber.onSubscribe(this);
+        }
+
+        @Override
+        public void request(long n) {
+            demand.addAndGet(n);
+        }
+
+        @Override
+        public void cancel() {
+        }
+
+        @Override
+        public void run() {
+            long available = 0;
+            for (int k = 0; k < tokens; k++) {
+                while (available == 0) {
+                    available = demand.getAndSet(0);
+                    if (available == 0) {
+                        Thread.yield();
+                    }
+                }
+                available--;
+                subscriber.onNext(TOKEN);
+            }
+            subscriber.onComplete();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private long throughput(String name, Function<Consumer, InpMessagePort<Integer>> portFactory, int tokens) throws InterruptedException {
+        Consumer consumer = new Consumer(portFactory);
+        Producer producer = new Producer((Subscriber<Integer>) consumer.inp, tokens);
+        consumer.start();
+        long startTime = System.nanoTime();
+        producer.start();
+        Assert.assertTrue(consumer.await(20, TimeUnit.SECONDS));
+        long elaps = System.nanoTime() - startTime;
+        Assert.assertEquals(tokens, consumer.count);
+        long tokensPerMs = tokens * 1000000L / elaps;
+        System.out.println(name + ": " + tokensPerMs + " tokens per ms");
+        return tokensPerMs;
+    }
+
+    @Test
+    public void throughputTest() throws InterruptedException {
+        Function<Consumer, InpMessagePort<Integer>> flow = (c)->new InpFlow<>(c, CAPACITY);
+        Function<Consumer, InpMessagePort<Integer>> ring = (c)->{
+            InpRing<Integer> port = new InpRing<>(c, CAPACITY);
+            port.setRequestThreshold(CAPACITY / 4);
+            return port;
+        };
+        Function<Consumer, InpMessagePort<Integer>> flowBatched = (c)->{
+            InpFlow<Integer> port = new InpFlow<>(c, CAPACITY);
+            port.setRequestThreshold(CAPACITY / 4);
+            return port;
+        };
+        throughput("InpFlow warmup", flow, WARMUP_TOKENS);
+        throughput("InpRing warmup", ring, WARMUP_TOKENS);
+        throughput("InpFlow", flow, TOKENS);
+        throughput("InpFlow, request threshold " + CAPACITY / 4, flowBatched, TOKENS);
+        throughput("InpRing, request threshold " + CAPACITY / 4, ring, TOKENS);
+    }
+}
@@ -48,4 +48,68 @@ public class RingTest {
             ring();
         }
      }
+
+    static class BatchTransmitter extends AbstractProcessor<Long,Long> {
+        BatchTransmitter(int capacity, int batchSize) {
+            getInPort().setCapacity(capacity);
+            setBatchSize(batchSize);
+            start();
+        }
+
+        @Override
+        protected Long whenNext(Long item) throws Throwable {
+            return item;
+        }
+    }
+
+    static class BatchEntryPoint extends BatchTransmitter {
+        final long maxPasses;
+        long passes=0;
+
+        BatchEntryPoint(int capacity, int batchSize, long maxPasses) {
+            super(capacity, batchSize);
+            this.maxPasses = maxPasses;
+        }
+
+        @Override
+        protected Long whenNext(Long item) throws Throwable {
+            passes++;
+            if (passes==maxPasses) {
+                complete();
+            }
+            return item;
+        }
+    }
+
+    /**
+     * many tokens circulate in the ring at the same time
+     */
+    public void batchRing(int batchSize) throws InterruptedException {
+        int capacity = 16;
+        int tokens = 16;
+        long passes = 1000000;
+        BatchEntryPoint entryPoint = new BatchEntryPoint(capacity, batchSize, passes/100);
+        for (long k=0; k<tokens; k++) {
+            entryPoint.onNext(k);
+        }
+        AbstractProcessor<Long,Long> pred=entryPoint;
+        for (int k=1; k<100; k++) {
+            BatchTransmitter next = new BatchTransmitter(capacity, batchSize);
+            pred.subscribe(next);
+            pred=next;
+        }
+        long startTime = System.currentTimeMillis();
+        pred.subscribe(entryPoint);
+        entryPoint.await(12000);
+        long elaps = System.currentTimeMillis() - startTime;
+        System.out.println("batch size "+batchSize+": "+passes+" passed in "+elaps+" ms");
+    }
+
+    @Test
+    public void batchRingTest() throws InterruptedException {
+        for (int k=0; k<2; k++){
+            batchRing(1);
+            batchRing(16);
+        }
+    }
 }
@@ -0,0 +1,152 @@
+package org.df4j.core.benchmark;
+
+import org.df4j.core.actor.AsyncProc;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Fan-in: many producer threads change the state of their own ports, all belonging to the same transition.
+ * Compares the lock-free transition with {@link LockedTransition}, which changes the port state under a monitor
+ * as the transition did before it was made lock-free.
+ * Prints throughput only; it is not named *Test, so it is not run by the build and is run manually.
+ * The correctness under contention is checked by {@link org.df4j.core.actor.TransitionContentionTest}.
+ */
+public class TransitionContentionBenchmark {
+    static final int PORT_NUM = 16;
+    static final int ROUNDS = 200000;
+
+    /** port state changes of one producer */
+    interface PortOps {
+        void block();
+
+        void unblock();
+    }
+
+    static class FanInProc extends AsyncProc {
+        AsyncProc.Port[] ports = new AsyncProc.Port[PORT_NUM];
+        {
+            for (int k = 0; k < PORT_NUM; k++) {
+                ports[k] = new AsyncProc.Port(this, true);
+            }
+        }
+
+        @Override
+        protected void runAction() {
+        }
+    }
+
+    /** the former transition: the blocked bits and the port flags are changed under the transition monitor */
+    static class LockedTransition {
+        private final boolean[] ready = new boolean[PORT_NUM];
+        private int blockedPortsScale = 0;
+        int fired = 0;
+
+        LockedTransition() {
+            Arrays.fill(ready, true);
+        }
+
+        synchronized void block(int portNum) {
+            if (!ready[portNum]) {
+                return;
+            }
+            ready[portNum] = false;
+            blockedPortsScale |= 1 << portNum;
+        }
+
+        synchronized void unblock(int portNum) {
+            if (ready[portNum]) {
+                return;
+            }
+            ready[portNum] = true;
+            blockedPortsScale &= ~(1 << portNum);
+            if (blockedPortsScale == 0) {
+                fired++; // instead of submitting the actor
+            }
+        }
+    }
+
+    private static PortOps lockFreePort(FanInProc proc, int portNum) {
+        AsyncProc.Port port = proc.ports[portNum];
+        return new PortOps() {
+            @Override
+            public void block() {
+                port.block();
+            }
+
+            @Override
+            public void unblock() {
+                port.unblock();
+            }
+        };
+    }
+
+    private static PortOps lockedPort(LockedTransition transition, int portNum) {
+        return new PortOps() {
+            @Override
+            public void block() {
+                transition.block(portNum);
+            }
+
+            @Override
+            public void unblock() {
+                transition.unblock(portNum);
+            }
+        };
+    }
+
+    private static long contention(PortOps[] ports) throws InterruptedException {
+        CountDownLatch startSignal = new CountDownLatch(1);
+        Thread[] producers = new Thread[ports.length];
+        for (int k = 0; k < ports.length; k++) {
+            PortOps port = ports[k];
+            producers[k] = new Thread(()->{
+                try {
+                    startSignal.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int r = 0; r < ROUNDS; r++) {
+                    port.block();
+                    port.unblock();
+                }
+            });
+            producers[k].start();
+        }
+        long startTime = System.nanoTime();
+        startSignal.countDown();
+        for (Thread producer: producers) {
+            producer.join();
+        }
+        long elaps = System.nanoTime() - startTime;
+        return 2L * ROUNDS * ports.length * 1000000 / elaps;
+    }
+
+    /**
+     * @param producerCount number of producer threads
+     * @return port state changes per ms of the lock-free transition and of the locked one
+     */
+    public long[] contention(int producerCount) throws InterruptedException {
+        FanInProc proc = new FanInProc(); // not started, so never fires
+        LockedTransition locked = new LockedTransition();
+        PortOps[] lockFreePorts = new PortOps[producerCount];
+        PortOps[] lockedPorts = new PortOps[producerCount];
+        for (int k = 0; k < producerCount; k++) {
+            lockFreePorts[k] = lockFreePort(proc, k);
+            lockedPorts[k] = lockedPort(locked, k);
+        }
+        long lockFree = contention(lockFreePorts);
+        long lockBased = contention(lockedPorts);
+        System.out.println(""+producerCount+" producers: lock-free "+lockFree+", locked "+lockBased+" port state changes per ms");
+        return new long[]{lockFree, lockBased};
+    }
+
+    @Test
+    public void contentionTest() throws InterruptedException {
+        contention(1); // warmup
+        for (int producerCount = 1; producerCount <= PORT_NUM; producerCount *= 2) {
+            contention(producerCount);
+        }
+    }
+}
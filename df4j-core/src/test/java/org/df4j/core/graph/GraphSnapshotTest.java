@@ -0,0 +1,104 @@
+package org.df4j.core.graph;
+
+import org.df4j.core.actor.Actor;
+import org.df4j.core.actor.ActorGroup;
+import org.df4j.core.port.InpFlow;
+import org.df4j.core.port.OutFlow;
+import org.junit.Assert;
+import org.junit.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+public class GraphSnapshotTest {
+    static final int CAPACITY = 4;
+
+    static class Producer extends Actor {
+        OutFlow<Integer> out = new OutFlow<>(this);
+
+        Producer(ActorGroup parent) {
+            super(parent);
+        }
+
+        @Override
+        protected void runAction() {
+        }
+    }
+
+    static class Consumer extends Actor {
+        InpFlow<Integer> inp = new InpFlow<>(this, CAPACITY);
+
+        Consumer(ActorGroup parent) {
+            super(parent);
+        }
+
+        @Override
+        protected void runAction() {
+        }
+    }
+
+    static class ExternalSubscriber implements Subscriber<Integer> {
+        @Override
+        public void onSubscribe(Subscription s) {
+        }
+
+        @Override
+        public void onNext(Integer integer) {
+        }
+
+        @Override
+        public void onError(Throwable t) {
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+
+    @Test
+    public void snapshotTest() {
+        ActorGroup group = new ActorGroup();
+        group.setChildTracking(true);
+        Producer producer = new Producer(group);
+        Consumer consumer = new Consumer(group);
+        producer.out.subscribe(consumer.inp);
+        for (int k = 0; k < CAPACITY; k++) {
+            producer.out.onNext(k);
+        }
+        producer.out.subscribe(new ExternalSubscriber());
+
+        GraphSnapshot snapshot = GraphSnapshot.of(group);
+        Assert.assertEquals(3, snapshot.getNodes().size());
+        GraphSnapshot.NodeInfo producerNode = snapshot.getNode(producer);
+        GraphSnapshot.NodeInfo consumerNode = snapshot.getNode(consumer);
+        Assert.assertEquals("Producer", producerNode.getName());
+        Assert.assertEquals(1, producerNode.getBlockedBy().size());
+        Assert.assertEquals("OutFlow", producerNode.getBlockedBy().get(0).getKind());
+        Assert.assertTrue(consumerNode.getBlockedBy().isEmpty());
+
+        Assert.assertEquals(2, snapshot.getEdges().size());
+        GraphSnapshot.EdgeInfo edge = snapshot.getEdges().get(0);
+        Assert.assertSame(producerNode, edge.getFrom());
+        Assert.assertSame(consumerNode, edge.getTo());
+        GraphSnapshot.PortInfo inp = edge.getToPort();
+        Assert.assertEquals(CAPACITY, inp.getBuffered());
+        Assert.assertEquals(CAPACITY, inp.getCapacity());
+        Assert.assertEquals(0, inp.getRequested());
+        Assert.assertTrue(inp.isFull());
+        GraphSnapshot.EdgeInfo externalEdge = snapshot.getEdges().get(1);
+        Assert.assertTrue(externalEdge.getTo().isExternal());
+        Assert.assertNull(externalEdge.getToPort());
+
+        String dot = snapshot.toDot();
+        Assert.assertTrue(dot, dot.contains(producerNode.getId() + " -> " + consumerNode.getId()
+                + " [label=\"1->1 4/4 req=0\", color=red]"));
+        String json = snapshot.toJson();
+        Assert.assertTrue(json, json.contains("\"kind\":\"InpFlow\",\"ready\":true,\"completed\":false,\"buffered\":4,\"capacity\":4,\"requested\":0"));
+        Assert.assertTrue(json, json.contains("{\"from\":\"a0\",\"fromPort\":\"1\",\"to\":\"a1\",\"toPort\":\"1\"}")
+                || json.contains("{\"from\":\"a1\",\"fromPort\":\"1\",\"to\":\"a0\",\"toPort\":\"1\"}"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void childTrackingOffTest() {
+        GraphSnapshot.of(new ActorGroup());
+    }
+}
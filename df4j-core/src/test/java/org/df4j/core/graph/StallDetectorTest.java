@@ -0,0 +1,171 @@
+package org.df4j.core.graph;
+
+import org.df4j.core.actor.Actor;
+import org.df4j.core.actor.ActorGroup;
+import org.df4j.core.actor.AsyncProc;
+import org.df4j.core.port.InpFlow;
+import org.df4j.core.port.InpSignal;
+import org.df4j.core.port.OutFlow;
+import org.df4j.core.util.Utils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class StallDetectorTest {
+
+    /** passes tokens from inp to out */
+    static class Relay extends Actor {
+        InpFlow<Integer> inp = new InpFlow<>(this);
+        OutFlow<Integer> out = new OutFlow<>(this);
+
+        Relay(ActorGroup parent) {
+            super(parent);
+            setExecutor(Utils.directExec);
+        }
+
+        @Override
+        protected void runAction() {
+            out.onNext(inp.remove());
+        }
+    }
+
+    /** waits for a signal which nobody sends, like a philosopher waiting for a fork */
+    static class Waiter extends Actor {
+        InpSignal signal = new InpSignal(this);
+
+        @Override
+        protected void runAction() {
+            signal.remove();
+        }
+    }
+
+    /** waits for the first signal only, while the second one is not yet expected */
+    static class SelectiveWaiter extends Actor {
+        InpSignal first = new InpSignal(this);
+        InpSignal second = new InpSignal(this);
+
+        SelectiveWaiter() {
+            nextAction(this::takeFirst, first);
+        }
+
+        private void takeFirst() {
+            first.remove();
+            nextAction(this::runAction);
+        }
+
+        @Override
+        protected void runAction() {
+            first.remove();
+            second.remove();
+        }
+    }
+
+    @Test
+    public void inactivePortTest() {
+        SelectiveWaiter waiter = new SelectiveWaiter();
+        waiter.start();
+        Assert.assertFalse(waiter.second.isActive());
+        GraphSnapshot.NodeInfo node = GraphSnapshot.of(Arrays.asList(waiter)).getNode(waiter);
+        Assert.assertEquals(1, node.getBlockedBy().size());
+        Assert.assertEquals(Integer.toString(waiter.first.getPortNum()), node.getBlockedBy().get(0).getPath());
+        StallDetector detector = new StallDetector(0, TimeUnit.MILLISECONDS);
+        detector.register(waiter);
+        detector.scan();
+        StallReport report = detector.scan();
+        Assert.assertEquals(1, report.getStalls().size());
+        Assert.assertEquals(Arrays.asList(waiter.first), report.getStalls().get(0).getBlockedPorts());
+    }
+
+    @Test
+    public void subscriptionCycleTest() {
+        ActorGroup group = new ActorGroup();
+        group.setChildTracking(true);
+        Relay a = new Relay(group);
+        Relay b = new Relay(group);
+        a.out.subscribe(b.inp);
+        b.out.subscribe(a.inp);
+        a.start();
+        b.start();
+        StallDetector detector = new StallDetector(0, TimeUnit.MILLISECONDS);
+        detector.register(group);
+        Assert.assertTrue(detector.scan().isEmpty()); // first seen
+        StallReport report = detector.scan();
+        Assert.assertEquals(2, report.getStalls().size());
+        StallReport.Stall stall = report.getStalls().get(0);
+        Relay stalled = (Relay) stall.getActor();
+        Assert.assertEquals(Arrays.asList(stalled.inp), stall.getBlockedPorts());
+        Assert.assertEquals(Arrays.asList(stalled == a ? b : a), stall.getWaitsFor());
+        Assert.assertEquals(1, report.getCycles().size());
+        Assert.assertEquals(new HashSet<>(Arrays.asList(a, b)), new HashSet<>(report.getCycles().get(0)));
+    }
+
+    @Test
+    public void progressTest() {
+        ActorGroup group = new ActorGroup();
+        Relay a = new Relay(group);
+        a.out.subscribe(new InpFlow<>(new Waiter(), 100));
+        a.start();
+        StallDetector detector = new StallDetector(0, TimeUnit.MILLISECONDS);
+        detector.register(a);
+        Assert.assertTrue(detector.scan().isEmpty());
+        a.inp.onNext(1); // fires, so it made progress since the previous scan
+        Assert.assertTrue(detector.scan().isEmpty());
+        StallReport report = detector.scan();
+        Assert.assertEquals(1, report.getStalls().size());
+        Assert.assertTrue(report.getCycles().isEmpty());
+    }
+
+    /** a zero period would rescan without a pause */
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroPeriodTest() {
+        new StallDetector(100, TimeUnit.MILLISECONDS).start(0, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void dependencyCycleTest() {
+        Waiter first = new Waiter();
+        Waiter second = new Waiter();
+        Waiter third = new Waiter();
+        first.start();
+        second.start();
+        third.start();
+        StallDetector detector = new StallDetector(0, TimeUnit.MILLISECONDS);
+        detector.register(first);
+        detector.register(second);
+        detector.register(third);
+        detector.addDependency(first, second);
+        detector.addDependency(second, first);
+        detector.addDependency(third, first);
+        detector.scan();
+        StallReport report = detector.scan();
+        Assert.assertEquals(3, report.getStalls().size());
+        List<List<AsyncProc>> cycles = report.getCycles();
+        Assert.assertEquals(1, cycles.size());
+        Assert.assertEquals(new HashSet<>(Arrays.asList(first, second)), new HashSet<>(cycles.get(0)));
+    }
+
+    @Test
+    public void periodicScanTest() throws InterruptedException {
+        Waiter waiter = new Waiter();
+        waiter.start();
+        StallDetector detector = new StallDetector(20, TimeUnit.MILLISECONDS);
+        detector.register(waiter);
+        ArrayBlockingQueue<StallReport> reports = new ArrayBlockingQueue<>(100);
+        detector.start(5, TimeUnit.MILLISECONDS, reports::offer);
+        try {
+            StallReport report = reports.poll(2, TimeUnit.SECONDS);
+            Assert.assertNotNull(report);
+            StallReport.Stall stall = report.getStalls().get(0);
+            Assert.assertSame(waiter, stall.getActor());
+            Assert.assertTrue(stall.getBlockedNanos() >= TimeUnit.MILLISECONDS.toNanos(20));
+            Assert.assertTrue(report.toString(), report.toString().contains("1:InpSignal"));
+        } finally {
+            detector.stop();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package org.df4j.core.port;
+
+import org.df4j.core.activities.ManualProc;
+import org.df4j.core.actor.Actor;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+public class ByteFlowTest {
+
+    static ByteBuffer bytes(int from, int to) {
+        byte[] array = new byte[to - from];
+        for (int k = from; k < to; k++) {
+            array[k - from] = (byte) k;
+        }
+        return ByteBuffer.wrap(array);
+    }
+
+    static void assertBytes(int from, int to, ByteBuffer buffer) {
+        Assert.assertEquals(to - from, buffer.remaining());
+        for (int k = from; k < to; k++) {
+            Assert.assertEquals((byte) k, buffer.get());
+        }
+    }
+
+    @Test
+    public void byteDemandTest() {
+        ManualProc proc = new ManualProc();
+        OutBytes out = new OutBytes(proc, 16);
+        InpBytes inp = new InpBytes(proc, 10);
+        out.subscribe(inp);
+        ByteBuffer data = bytes(0, 24);
+        out.onNext(data);
+        Assert.assertEquals(0, data.position()); // the buffer itself is not consumed
+        Assert.assertEquals(10, inp.getBufferedCount()); // as much as requested
+        Assert.assertEquals(14, out.getBufferedCount());
+        Assert.assertTrue(out.isReady());
+        ByteBuffer slice = inp.poll(4);
+        Assert.assertTrue(slice.isReadOnly());
+        assertBytes(0, 4, slice);
+        Assert.assertEquals(10, inp.getBufferedCount()); // 4 more bytes requested and passed
+        assertBytes(4, 10, inp.poll());
+        assertBytes(10, 14, inp.poll());
+        out.onNext(bytes(24, 40));
+        Assert.assertFalse(out.isReady()); // 16 bytes buffered
+        Assert.assertFalse(out.offer(bytes(40, 41)));
+        out.onComplete();
+        ByteBuffer dst = ByteBuffer.allocate(100);
+        while (!inp.isCompleted()) {
+            inp.drainTo(dst);
+        }
+        dst.flip();
+        assertBytes(14, 40, dst);
+        Assert.assertTrue(inp.isReady());
+    }
+
+    @Test
+    public void zeroCopyTest() {
+        InpBytes inp = new InpBytes(new ManualProc(), 10);
+        ByteBuffer data = bytes(0, 8);
+        inp.onNext(data);
+        data.put(0, (byte) 100); // the port holds a view of the same memory
+        ByteBuffer received = inp.remove();
+        Assert.assertEquals(100, received.get());
+        Assert.assertFalse(inp.isReady());
+    }
+
+    static class Source extends Actor {
+        OutBytes out = new OutBytes(this, 256);
+        final byte[] data;
+        final Random random = new Random(1);
+        int pos = 0;
+
+        Source(byte[] data) {
+            this.data = data;
+        }
+
+        @Override
+        protected void runAction() {
+            if (pos == data.length) {
+                out.onComplete();
+                complete();
+                return;
+            }
+            int len = Math.min(1 + random.nextInt(500), data.length - pos);
+            out.onNext(ByteBuffer.wrap(data, pos, len));
+            pos += len;
+        }
+    }
+
+    static class Sink extends Actor {
+        InpBytes inp = new InpBytes(this, 100);
+        final ByteBuffer received;
+
+        Sink(int size) {
+            received = ByteBuffer.allocate(size);
+            inp.setRequestThreshold(50);
+        }
+
+        @Override
+        protected void runAction() {
+            if (inp.isCompleted()) {
+                complete();
+                return;
+            }
+            received.put(inp.remove());
+        }
+    }
+
+    @Test
+    public void pipelineTest() throws InterruptedException {
+        byte[] data = new byte[100000];
+        new Random(2).nextBytes(data);
+        Source source = new Source(data);
+        Sink sink = new Sink(data.length);
+        source.out.subscribe(sink.inp);
+        sink.start();
+        source.start();
+        Assert.assertTrue(sink.await(2, TimeUnit.SECONDS));
+        Assert.assertFalse(sink.received.hasRemaining());
+        Assert.assertTrue(Arrays.equals(data, sink.received.array()));
+    }
+}
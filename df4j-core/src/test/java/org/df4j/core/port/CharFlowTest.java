@@ -0,0 +1,155 @@
+package org.df4j.core.port;
+
+import org.df4j.core.activities.ManualProc;
+import org.df4j.core.actor.Actor;
+import org.df4j.protocol.CharFlow;
+import org.junit.Assert;
+import org.junit.Test;
+import org.reactivestreams.Subscription;
+
+import java.util.concurrent.TimeUnit;
+
+public class CharFlowTest {
+
+    @Test
+    public void bulkTest() {
+        ManualProc proc = new ManualProc();
+        OutChars out = new OutChars(proc, 8);
+        InpChars inp = new InpChars(proc, 8);
+        out.subscribe(inp);
+        char[] text = "hello, world".toCharArray();
+        out.onNext(text, 0, text.length);
+        Assert.assertEquals(8, inp.getBufferedCount());
+        try {
+            out.onNext(text, 0, 5);
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            // expected, nothing inserted
+        }
+        Assert.assertEquals(4, out.offer(text, 0, 5));
+        Assert.assertFalse(out.isReady()); // 8 chars buffered
+        char[] dst = new char[20];
+        Assert.assertEquals(8, inp.drainTo(dst, 0, 20));
+        Assert.assertEquals("hello, w", new String(dst, 0, 8));
+        Assert.assertEquals(8, inp.getBufferedCount()); // refilled by one request
+        Assert.assertTrue(out.isReady());
+        Assert.assertEquals('o', inp.remove());
+        out.onComplete();
+        int count = inp.drainTo(dst, 0, 20);
+        Assert.assertEquals("rldhell", new String(dst, 0, count));
+        Assert.assertTrue(inp.isCompleted());
+        Assert.assertEquals(0, inp.drainTo(dst, 0, 20));
+    }
+
+    /** implements single-char methods only */
+    static class CharCollector implements CharFlow.Subscriber {
+        StringBuilder sb = new StringBuilder();
+        boolean completed = false;
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(char c) {
+            sb.append(c);
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+
+        @Override
+        public void onError(Throwable e) {
+        }
+    }
+
+    @Test
+    public void singleCharSubscriberTest() {
+        OutChars out = new OutChars(new ManualProc(), 8);
+        char[] text = "abcdefgh".toCharArray();
+        out.onNext(text, 0, 3);
+        CharCollector collector = new CharCollector();
+        out.subscribe(collector);
+        out.onNext(text, 3, 5);
+        out.onComplete();
+        Assert.assertEquals("abcdefgh", collector.sb.toString());
+        Assert.assertTrue(collector.completed);
+    }
+
+    static class TextSource extends Actor {
+        OutChars out = new OutChars(this, 64);
+        final char[] text;
+        int pos = 0;
+
+        TextSource(char[] text) {
+            this.text = text;
+        }
+
+        @Override
+        protected void runAction() {
+            if (pos == text.length) {
+                out.onComplete();
+                complete();
+                return;
+            }
+            pos += out.offer(text, pos, Math.min(100, text.length - pos));
+        }
+    }
+
+    static class TextSink extends Actor {
+        InpChars inp = new InpChars(this, 64);
+        char[] chunk = new char[32];
+        StringBuilder sb = new StringBuilder();
+
+        {
+            inp.setRequestThreshold(32);
+        }
+
+        @Override
+        protected void runAction() {
+            if (inp.isCompleted()) {
+                complete();
+                return;
+            }
+            int count = inp.drainTo(chunk, 0, chunk.length);
+            sb.append(chunk, 0, count);
+        }
+    }
+
+    @Test
+    public void pipelineTest() throws InterruptedException {
+        StringBuilder sb = new StringBuilder();
+        for (int k = 0; k < 10000; k++) {
+            sb.append(k).append(' ');
+        }
+        String text = sb.toString();
+        TextSource source = new TextSource(text.toCharArray());
+        TextSink sink = new TextSink();
+        source.out.subscribe(sink.inp);
+        sink.start();
+        source.start();
+        Assert.assertTrue(sink.await(2, TimeUnit.SECONDS));
+        Assert.assertEquals(text, sink.sb.toString());
+    }
+
+    /** characters which come after completion are ignored, even if the buffer is full */
+    @Test
+    public void afterCompletionTest() {
+        InpChars inp = new InpChars(new ManualProc(), 1);
+        inp.onNext('a');
+        inp.onComplete();
+        inp.onNext('b');
+        inp.onNext(new char[]{'c', 'd'}, 0, 2);
+        Assert.assertEquals(1, inp.getBufferedCount());
+        Assert.assertEquals('a', inp.remove());
+        Assert.assertTrue(inp.isCompleted());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroCapacityTest() {
+        new OutChars(new ManualProc(), 0);
+    }
+}
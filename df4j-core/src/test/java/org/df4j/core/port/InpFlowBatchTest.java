@@ -0,0 +1,125 @@
+package org.df4j.core.port;
+
+import org.df4j.core.activities.ManualProc;
+import org.df4j.core.activities.ManualSubscription;
+import org.df4j.core.activities.RangeActor;
+import org.df4j.core.actor.Actor;
+import org.df4j.core.actor.ActorGroup;
+import org.junit.Assert;
+import org.junit.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class InpFlowBatchTest {
+    static final int CAPACITY = 8;
+
+    /** emits tokens on demand from the test thread */
+    static class ManualPublisher implements Publisher<Integer> {
+        final ManualSubscription subscription = new ManualSubscription();
+        int next = 0;
+        Subscriber<? super Integer> subscriber;
+
+        @Override
+        public void subscribe(Subscriber<? super Integer> s) {
+            subscriber = s;
+            s.onSubscribe(subscription);
+        }
+
+        void emitAll() {
+            while (next < subscription.requested) {
+                subscriber.onNext(next++);
+            }
+        }
+    }
+
+    @Test
+    public void thresholdTest() {
+        InpFlow<Integer> inp = new InpFlow<>(new ManualProc(), CAPACITY);
+        inp.setRequestThreshold(CAPACITY * 3 / 4);
+        ManualPublisher pub = new ManualPublisher();
+        pub.subscribe(inp);
+        pub.emitAll();
+        Assert.assertEquals(Arrays.asList((long) CAPACITY), pub.subscription.requests);
+        for (int k = 0; k < 5; k++) {
+            Assert.assertEquals(k, (int) inp.remove());
+        }
+        Assert.assertEquals(1, pub.subscription.requests.size());
+        inp.remove(); // 6 places free
+        Assert.assertEquals(Arrays.asList((long) CAPACITY, 6L), pub.subscription.requests);
+        Assert.assertEquals(6, inp.getRequestedCount());
+    }
+
+    @Test
+    public void defaultThresholdTest() {
+        InpFlow<Integer> inp = new InpFlow<>(new ManualProc(), CAPACITY);
+        ManualPublisher pub = new ManualPublisher();
+        pub.subscribe(inp);
+        pub.emitAll();
+        inp.remove();
+        inp.remove();
+        Assert.assertEquals(Arrays.asList((long) CAPACITY, 1L, 1L), pub.subscription.requests);
+    }
+
+    @Test
+    public void drainToTest() {
+        InpFlow<Integer> inp = new InpFlow<>(new ManualProc(), CAPACITY);
+        ManualPublisher pub = new ManualPublisher();
+        pub.subscribe(inp);
+        pub.emitAll();
+        List<Integer> batch = new ArrayList<>();
+        Assert.assertEquals(5, inp.drainTo(batch, 5));
+        Assert.assertEquals(Arrays.asList(0, 1, 2, 3, 4), batch);
+        Assert.assertTrue(inp.isReady());
+        Assert.assertEquals(Arrays.asList((long) CAPACITY, 5L), pub.subscription.requests); // one request per batch
+        batch.clear();
+        Assert.assertEquals(3, inp.drainTo(batch));
+        Assert.assertFalse(inp.isReady());
+        Assert.assertEquals(0, inp.drainTo(batch));
+        pub.emitAll();
+        Assert.assertEquals(CAPACITY, inp.getBufferedCount());
+    }
+
+    /** takes all available tokens at once, so that the publisher gets a request per batch */
+    static class BatchSink extends Actor {
+        InpFlow<Long> inp = new InpFlow<>(this, CAPACITY);
+        List<Long> received = new ArrayList<>();
+
+        BatchSink() {
+            inp.setRequestThreshold(CAPACITY / 2);
+        }
+
+        @Override
+        protected void runAction() {
+            if (inp.isCompleted()) {
+                complete(inp.getCompletionException());
+                return;
+            }
+            inp.drainTo(received);
+        }
+    }
+
+    @Test
+    public void actorTest() throws InterruptedException {
+        int count = 1000;
+        BatchSink sink = new BatchSink();
+        RangeActor source = new RangeActor(new ActorGroup(), 0, count);
+        source.out.subscribe(sink.inp);
+        sink.start();
+        Assert.assertTrue(sink.await(2, TimeUnit.SECONDS));
+        Assert.assertFalse(sink.isCompletedExceptionally());
+        Assert.assertEquals(count, sink.received.size());
+        for (int k = 0; k < count; k++) {
+            Assert.assertEquals(k, sink.received.get(k).intValue());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void thresholdOverCapacityTest() {
+        new InpFlow<Integer>(new ManualProc(), CAPACITY).setRequestThreshold(CAPACITY + 1);
+    }
+}
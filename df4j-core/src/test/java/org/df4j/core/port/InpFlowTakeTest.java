@@ -0,0 +1,52 @@
+package org.df4j.core.port;
+
+import org.df4j.core.actor.AsyncProc;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+public class InpFlowTakeTest {
+
+    static class Owner extends AsyncProc {
+        InpFlow<Integer> inp = new InpFlow<>(this, 4);
+
+        @Override
+        protected void runAction() {
+        }
+    }
+
+    @Test
+    public void takeTest() throws InterruptedException {
+        Owner owner = new Owner();
+        Thread producer = new Thread(()->{
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                return;
+            }
+            owner.inp.onNext(1);
+            owner.inp.onNext(2);
+            owner.inp.onComplete();
+        });
+        producer.start();
+        Assert.assertEquals(1, owner.inp.take().intValue());
+        Assert.assertEquals(2, owner.inp.take().intValue());
+        try {
+            owner.inp.take();
+            Assert.fail();
+        } catch (CompletionException e) {
+            // expected
+        }
+        producer.join();
+    }
+
+    @Test
+    public void pollTimeoutTest() throws InterruptedException {
+        Owner owner = new Owner();
+        Assert.assertNull(owner.inp.poll(10, TimeUnit.MILLISECONDS));
+        owner.inp.onNext(3);
+        Assert.assertEquals(3, owner.inp.poll(10, TimeUnit.MILLISECONDS).intValue());
+    }
+}
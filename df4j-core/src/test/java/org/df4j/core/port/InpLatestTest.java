@@ -0,0 +1,136 @@
+package org.df4j.core.port;
+
+import org.df4j.core.activities.ManualProc;
+import org.df4j.core.actor.Actor;
+import org.df4j.core.actor.AsyncProc;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class InpLatestTest {
+
+    @Test
+    public void conflationTest() {
+        InpLatest<Integer> inp = new InpLatest<>(new ManualProc());
+        Assert.assertFalse(inp.isReady());
+        inp.onNext(1);
+        inp.onNext(2);
+        inp.onNext(3);
+        Assert.assertTrue(inp.isReady());
+        Assert.assertEquals(2, inp.getDroppedCount());
+        Assert.assertEquals(3, inp.current().intValue());
+        Assert.assertEquals(3, inp.remove().intValue());
+        Assert.assertFalse(inp.isReady());
+        Assert.assertNull(inp.poll());
+        inp.onNext(4);
+        Assert.assertTrue(inp.isReady());
+        Assert.assertEquals(4, inp.remove().intValue());
+    }
+
+    @Test
+    public void completionTest() {
+        InpLatest<Integer> inp = new InpLatest<>(new ManualProc());
+        inp.onNext(1);
+        inp.onComplete();
+        inp.onNext(2);
+        Assert.assertFalse(inp.isCompleted());
+        Assert.assertEquals(1, inp.remove().intValue());
+        Assert.assertTrue(inp.isReady());
+        Assert.assertTrue(inp.isCompleted());
+    }
+
+    /** pauses the producer thread between storing a token and checking the state of the port */
+    static class PausingInpLatest extends InpLatest<Integer> {
+        final CountDownLatch paused = new CountDownLatch(1);
+        final CountDownLatch resumed = new CountDownLatch(1);
+        volatile Thread producer;
+
+        PausingInpLatest(AsyncProc parent) {
+            super(parent);
+        }
+
+        @Override
+        public boolean isReady() {
+            if (Thread.currentThread() == producer) {
+                producer = null;
+                paused.countDown();
+                try {
+                    resumed.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            return super.isReady();
+        }
+    }
+
+    @Test
+    public void lateUnblockTest() throws InterruptedException {
+        PausingInpLatest inp = new PausingInpLatest(new ManualProc());
+        Thread producer = new Thread(()->inp.onNext(1));
+        inp.producer = producer;
+        producer.start();
+        inp.paused.await();
+        Assert.assertEquals(1, inp.remove().intValue());
+        Assert.assertFalse(inp.isReady());
+        inp.resumed.countDown();
+        producer.join();
+        Assert.assertFalse(inp.isReady()); // the late producer must not leave an empty port ready
+    }
+
+    static class Source extends Actor {
+        OutFlow<Integer> out = new OutFlow<>(this);
+        final int count;
+        int next = 1;
+
+        Source(int count) {
+            this.count = count;
+        }
+
+        @Override
+        protected void runAction() {
+            if (next > count) {
+                out.onComplete();
+                complete();
+                return;
+            }
+            out.onNext(next++);
+        }
+    }
+
+    static class Sink extends Actor {
+        InpLatest<Integer> inp = new InpLatest<>(this);
+        int last = 0;
+        int processed = 0;
+
+        @Override
+        protected void runAction() throws InterruptedException {
+            if (inp.isCompleted()) {
+                complete(inp.getCompletionException());
+                return;
+            }
+            int token = inp.remove();
+            Assert.assertTrue(token > last);
+            last = token;
+            processed++;
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    public void slowConsumerTest() throws InterruptedException {
+        int count = 20000;
+        Source source = new Source(count);
+        Sink sink = new Sink();
+        source.out.subscribe(sink.inp);
+        sink.start();
+        source.start();
+        Assert.assertTrue(sink.await(5, TimeUnit.SECONDS));
+        Assert.assertFalse(sink.isCompletedExceptionally());
+        Assert.assertEquals(count, sink.last);
+        Assert.assertEquals(count, sink.processed + sink.inp.getDroppedCount());
+        Assert.assertTrue(sink.processed < count);
+    }
+}
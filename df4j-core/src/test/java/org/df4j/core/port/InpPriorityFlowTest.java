@@ -0,0 +1,115 @@
+package org.df4j.core.port;
+
+import org.df4j.core.activities.ManualProc;
+import org.df4j.core.activities.ManualSubscription;
+import org.df4j.core.actor.Actor;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class InpPriorityFlowTest {
+
+    /** negative tokens are urgent */
+    static int priority(Integer token) {
+        return token < 0 ? 1 : 0;
+    }
+
+    @Test
+    public void priorityTest() {
+        InpPriorityFlow<Integer> inp = new InpPriorityFlow<>(new ManualProc(), 2, InpPriorityFlowTest::priority, 4);
+        inp.onNext(1);
+        inp.onNext(2);
+        inp.onNext(-1);
+        inp.onNext(-2);
+        Assert.assertEquals(2, inp.getBufferedCount(1));
+        Assert.assertEquals(-1, inp.current().intValue());
+        List<Integer> res = new ArrayList<>();
+        res.add(inp.remove());
+        inp.onNext(3);
+        inp.drainTo(res);
+        Assert.assertEquals(Arrays.asList(-1, -2, 1, 2, 3), res);
+        Assert.assertFalse(inp.isReady());
+    }
+
+    @Test
+    public void demandTest() {
+        InpPriorityFlow<Integer> inp = new InpPriorityFlow<>(new ManualProc(), 2, InpPriorityFlowTest::priority, 4);
+        ManualSubscription subscription = new ManualSubscription();
+        inp.onSubscribe(subscription);
+        Assert.assertEquals(4, subscription.requested);
+        for (int k = 0; k < 4; k++) {
+            inp.onNext(k);
+        }
+        Assert.assertEquals(0, inp.getRequestedCount());
+        inp.remove();
+        Assert.assertEquals(5, subscription.requested);
+        inp.setRequestThreshold(2);
+        inp.onNext(-1);
+        Assert.assertEquals(-1, inp.remove().intValue());
+        Assert.assertEquals(5, subscription.requested); // postponed
+        inp.remove();
+        Assert.assertEquals(7, subscription.requested);
+    }
+
+    static class Source extends Actor {
+        OutFlow<Integer> out = new OutFlow<>(this);
+        final int count;
+        int next = 0;
+
+        Source(int count) {
+            this.count = count;
+        }
+
+        @Override
+        protected void runAction() {
+            if (next == count) {
+                out.onComplete();
+                complete();
+                return;
+            }
+            next++;
+            out.onNext(next % 10 == 0 ? -next : next);
+        }
+    }
+
+    static class Sink extends Actor {
+        InpPriorityFlow<Integer> inp = new InpPriorityFlow<>(this, 2, InpPriorityFlowTest::priority, 8);
+        int lastBulk = 0;
+        int lastUrgent = 0;
+        int received = 0;
+
+        @Override
+        protected void runAction() {
+            if (inp.isCompleted()) {
+                complete(inp.getCompletionException());
+                return;
+            }
+            int token = inp.remove();
+            if (token < 0) {
+                Assert.assertTrue(-token > lastUrgent);
+                lastUrgent = -token;
+            } else {
+                Assert.assertTrue(token > lastBulk);
+                lastBulk = token;
+            }
+            received++;
+        }
+    }
+
+    @Test
+    public void orderTest() throws InterruptedException {
+        int count = 500;
+        Source source = new Source(count);
+        Sink sink = new Sink();
+        source.out.subscribe(sink.inp);
+        sink.start();
+        source.start();
+        Assert.assertTrue(sink.await(2, TimeUnit.SECONDS));
+        Assert.assertFalse(sink.isCompletedExceptionally());
+        Assert.assertEquals(count, sink.received);
+    }
+}
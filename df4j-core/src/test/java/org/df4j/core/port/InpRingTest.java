@@ -0,0 +1,134 @@
+package org.df4j.core.port;
+
+import org.df4j.core.activities.ManualProc;
+import org.df4j.core.activities.ManualSubscription;
+import org.df4j.core.activities.RangeActor;
+import org.df4j.core.actor.Actor;
+import org.df4j.core.actor.ActorGroup;
+import org.df4j.core.actor.AsyncProc;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.BufferOverflowException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class InpRingTest {
+
+    static class Summator extends Actor {
+        InpRing<Long> inp = new InpRing<>(this, 8);
+        long sum = 0;
+
+        @Override
+        protected void runAction() {
+            if (inp.isCompleted()) {
+                complete(inp.getCompletionException());
+                return;
+            }
+            sum += inp.remove();
+        }
+    }
+
+    @Test
+    public void rangeTest() throws InterruptedException {
+        int count = 100000;
+        RangeActor range = new RangeActor(new ActorGroup(), 0, count);
+        Summator summator = new Summator();
+        range.out.subscribe(summator.inp);
+        summator.start();
+        Assert.assertTrue(summator.await(2, TimeUnit.SECONDS));
+        Assert.assertEquals((long) count * (count - 1) / 2, summator.sum);
+    }
+
+    @Test
+    public void directTest() {
+        InpRing<Integer> inp = new InpRing<>(new ManualProc(), 4);
+        Assert.assertFalse(inp.isReady());
+        for (int k = 0; k < 4; k++) {
+            inp.onNext(k);
+        }
+        Assert.assertTrue(inp.isReady());
+        try {
+            inp.onNext(4);
+            Assert.fail();
+        } catch (BufferOverflowException e) {
+            // expected
+        }
+        inp.onComplete();
+        List<Integer> batch = new ArrayList<>();
+        Assert.assertEquals(3, inp.drainTo(batch, 3));
+        Assert.assertEquals(Arrays.asList(0, 1, 2), batch);
+        Assert.assertFalse(inp.isCompleted());
+        Assert.assertEquals(3, (int) inp.remove());
+        Assert.assertTrue(inp.isReady());
+        Assert.assertTrue(inp.isCompleted());
+        try {
+            inp.remove();
+            Assert.fail();
+        } catch (CompletionException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void requestThresholdTest() {
+        InpRing<Integer> inp = new InpRing<>(new ManualProc(), 4);
+        inp.setRequestThreshold(3);
+        ManualSubscription subscription = new ManualSubscription();
+        inp.onSubscribe(subscription);
+        for (int k = 0; k < 4; k++) {
+            inp.onNext(k);
+        }
+        inp.remove();
+        inp.remove();
+        Assert.assertEquals(Arrays.asList(4L), subscription.requests);
+        inp.remove();
+        Assert.assertEquals(Arrays.asList(4L, 3L), subscription.requests);
+        inp.drainTo(new ArrayList<>());
+        Assert.assertFalse(inp.isReady());
+        Assert.assertEquals(Arrays.asList(4L, 3L), subscription.requests);
+    }
+
+    /** pauses the producer thread between storing a token and checking the state of the port */
+    static class PausingInpRing extends InpRing<Integer> {
+        final CountDownLatch paused = new CountDownLatch(1);
+        final CountDownLatch resumed = new CountDownLatch(1);
+        volatile Thread producer;
+
+        PausingInpRing(AsyncProc parent) {
+            super(parent, 4);
+        }
+
+        @Override
+        public boolean isReady() {
+            if (Thread.currentThread() == producer) {
+                producer = null;
+                paused.countDown();
+                try {
+                    resumed.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            return super.isReady();
+        }
+    }
+
+    @Test
+    public void lateUnblockTest() throws InterruptedException {
+        PausingInpRing inp = new PausingInpRing(new ManualProc());
+        Thread producer = new Thread(()->inp.onNext(1));
+        inp.producer = producer;
+        producer.start();
+        inp.paused.await();
+        Assert.assertEquals(1, (int) inp.poll());
+        Assert.assertFalse(inp.isReady());
+        inp.resumed.countDown();
+        producer.join();
+        Assert.assertFalse(inp.isReady()); // the late producer must not leave an empty port ready
+    }
+}
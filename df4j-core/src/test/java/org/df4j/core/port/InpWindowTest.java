@@ -0,0 +1,110 @@
+package org.df4j.core.port;
+
+import org.df4j.core.activities.ManualProc;
+import org.df4j.core.actor.Actor;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class InpWindowTest {
+
+    @Test
+    public void sizeTest() {
+        InpWindow<Integer> inp = new InpWindow<>(new ManualProc(), 3, 50, TimeUnit.MILLISECONDS);
+        for (int k = 0; k < 4; k++) {
+            inp.onNext(k);
+            Assert.assertEquals(k >= 2, inp.isReady());
+        }
+        List<Integer> batch = inp.removeWindow();
+        Assert.assertEquals(Arrays.asList(0, 1, 2), batch);
+        Assert.assertFalse(inp.isReady()); // token 3 starts the next window
+        inp.onNext(4);
+        inp.onNext(5);
+        Assert.assertTrue(inp.isReady());
+        Assert.assertSame(batch, inp.removeWindow());
+        Assert.assertEquals(Arrays.asList(3, 4, 5), batch);
+    }
+
+    @Test
+    public void timeTest() throws InterruptedException {
+        InpWindow<Integer> inp = new InpWindow<>(new ManualProc(), 3, 50, TimeUnit.MILLISECONDS);
+        long start = System.nanoTime();
+        inp.onNext(1);
+        inp.onNext(2);
+        Assert.assertFalse(inp.isReady());
+        while (!inp.isReady()) {
+            Assert.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+            Thread.sleep(5);
+        }
+        Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        Assert.assertEquals(Arrays.asList(1, 2), inp.removeWindow());
+        Assert.assertFalse(inp.isReady());
+    }
+
+    @Test
+    public void completionTest() {
+        InpWindow<Integer> inp = new InpWindow<>(new ManualProc(), 3, 50, TimeUnit.MILLISECONDS);
+        inp.onNext(1);
+        inp.onComplete();
+        Assert.assertTrue(inp.isReady());
+        Assert.assertFalse(inp.isCompleted());
+        Assert.assertEquals(Arrays.asList(1), inp.removeWindow());
+        Assert.assertTrue(inp.isCompleted());
+    }
+
+    static class Source extends Actor {
+        OutFlow<Integer> out = new OutFlow<>(this);
+        final int count;
+        int next = 0;
+
+        Source(int count) {
+            this.count = count;
+        }
+
+        @Override
+        protected void runAction() {
+            if (next == count) {
+                out.onComplete();
+                complete();
+                return;
+            }
+            out.onNext(next++);
+        }
+    }
+
+    static class Sink extends Actor {
+        InpWindow<Integer> inp = new InpWindow<>(this, 5, 20, TimeUnit.MILLISECONDS);
+        List<Integer> received = new ArrayList<>();
+
+        @Override
+        protected void runAction() {
+            if (inp.isCompleted()) {
+                complete(inp.getCompletionException());
+                return;
+            }
+            List<Integer> batch = inp.removeWindow();
+            Assert.assertTrue(batch.size() <= 5);
+            received.addAll(batch);
+        }
+    }
+
+    @Test
+    public void batchingTest() throws InterruptedException {
+        int count = 203;
+        Source source = new Source(count);
+        Sink sink = new Sink();
+        source.out.subscribe(sink.inp);
+        sink.start();
+        source.start();
+        Assert.assertTrue(sink.await(2, TimeUnit.SECONDS));
+        Assert.assertFalse(sink.isCompletedExceptionally());
+        Assert.assertEquals(count, sink.received.size());
+        for (int k = 0; k < count; k++) {
+            Assert.assertEquals(k, sink.received.get(k).intValue());
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package org.df4j.core.port;
+
+import org.df4j.core.activities.ManualProc;
+import org.df4j.core.activities.ManualSubscriber;
+import org.df4j.core.actor.Actor;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class OutBroadcastTest {
+
+    @Test
+    public void slowestSubscriberTest() {
+        OutBroadcast<Integer> out = new OutBroadcast<>(new ManualProc(), 4);
+        Assert.assertFalse(out.isReady()); // no subscribers
+        ManualSubscriber<Integer> fast = new ManualSubscriber<>();
+        ManualSubscriber<Integer> slow = new ManualSubscriber<>();
+        out.subscribe(fast);
+        out.subscribe(slow);
+        Assert.assertTrue(out.isReady());
+        fast.subscription.request(100);
+        slow.subscription.request(1);
+        for (int k = 0; k < 5; k++) {
+            out.onNext(k);
+        }
+        Assert.assertFalse(out.isReady()); // slow subscriber holds 4 tokens
+        Assert.assertFalse(out.offer(5));
+        Assert.assertEquals(Arrays.asList(0, 1, 2, 3, 4), fast.tokens);
+        Assert.assertEquals(Arrays.asList(0), slow.tokens);
+        Assert.assertEquals(4, out.getBufferedCount());
+        slow.subscription.request(2);
+        Assert.assertTrue(out.isReady());
+        Assert.assertEquals(Arrays.asList(0, 1, 2), slow.tokens);
+        slow.subscription.cancel();
+        Assert.assertEquals(0, out.getBufferedCount());
+        out.onNext(5);
+        Assert.assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5), fast.tokens);
+    }
+
+    @Test
+    public void completionTest() {
+        OutBroadcast<Integer> out = new OutBroadcast<>(new ManualProc(), 4);
+        ManualSubscriber<Integer> first = new ManualSubscriber<>();
+        out.subscribe(first);
+        first.subscription.request(10);
+        out.onNext(1);
+        ManualSubscriber<Integer> late = new ManualSubscriber<>();
+        out.subscribe(late);
+        out.onNext(2);
+        out.onComplete();
+        Assert.assertTrue(first.completed);
+        Assert.assertEquals(Arrays.asList(1, 2), first.tokens);
+        Assert.assertFalse(late.completed); // token 2 is not delivered yet
+        late.subscription.request(1);
+        Assert.assertEquals(Arrays.asList(2), late.tokens);
+        Assert.assertTrue(late.completed);
+        ManualSubscriber<Integer> afterCompletion = new ManualSubscriber<>();
+        out.subscribe(afterCompletion);
+        Assert.assertTrue(afterCompletion.completed);
+    }
+
+    @Test
+    public void consumedTokensReleasedTest() throws InterruptedException {
+        OutBroadcast<Integer> out = new OutBroadcast<>(new ManualProc(), 4);
+        ManualSubscriber<Integer> first = new ManualSubscriber<>();
+        ManualSubscriber<Integer> second = new ManualSubscriber<>();
+        out.subscribe(first);
+        out.subscribe(second);
+        first.subscription.request(1);
+        Integer token = 1000; // not cached by Integer.valueOf
+        WeakReference<Integer> ref = new WeakReference<>(token);
+        out.onNext(token);
+        first.tokens.clear();
+        token = null;
+        second.subscription.request(1); // the last cursor passes the token
+        second.tokens.clear();
+        for (int k = 0; k < 20 && ref.get() != null; k++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        Assert.assertNull(ref.get());
+    }
+
+    /** blocks in onNext until released */
+    static class BlockingSubscriber extends ManualSubscriber<Integer> {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch released = new CountDownLatch(1);
+
+        @Override
+        public void onNext(Integer token) {
+            super.onNext(token);
+            entered.countDown();
+            try {
+                released.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * a subscription is cancelled by another thread while a token is being delivered to it;
+     * its slots are kept until the delivering thread leaves, and nothing is delivered after that
+     */
+    @Test
+    public void concurrentCancelTest() throws InterruptedException {
+        OutBroadcast<Integer> out = new OutBroadcast<>(new ManualProc(), 2);
+        ManualSubscriber<Integer> fast = new ManualSubscriber<>();
+        BlockingSubscriber slow = new BlockingSubscriber();
+        out.subscribe(fast);
+        out.subscribe(slow);
+        fast.subscription.request(100);
+        slow.subscription.request(100);
+        Thread publisher = new Thread(()->out.onNext(0));
+        publisher.start();
+        Assert.assertTrue(slow.entered.await(1, TimeUnit.SECONDS));
+        slow.subscription.cancel();
+        Assert.assertEquals(2, out.getSubscribers().size());
+        slow.released.countDown();
+        publisher.join(1000);
+        Assert.assertFalse(publisher.isAlive());
+        Assert.assertEquals(Arrays.asList(fast), out.getSubscribers());
+        for (int k = 1; k < 4; k++) {
+            out.onNext(k);
+        }
+        Assert.assertEquals(Arrays.asList(0, 1, 2, 3), fast.tokens);
+        Assert.assertEquals(Arrays.asList(0), slow.tokens);
+    }
+
+    static class Source extends Actor {
+        OutBroadcast<Integer> out = new OutBroadcast<>(this, 8);
+        final int count;
+        int next = 0;
+
+        Source(int count) {
+            this.count = count;
+        }
+
+        @Override
+        protected void runAction() {
+            if (next == count) {
+                out.onComplete();
+                complete();
+                return;
+            }
+            out.onNext(next++);
+        }
+    }
+
+    static class Sink extends Actor {
+        InpFlow<Integer> inp = new InpFlow<>(this, 2);
+        final int delay;
+        int expected = 0;
+
+        Sink(int delay) {
+            this.delay = delay;
+        }
+
+        @Override
+        protected void runAction() throws InterruptedException {
+            if (inp.isCompleted()) {
+                complete(inp.getCompletionException());
+                return;
+            }
+            int token = inp.remove();
+            Assert.assertEquals(expected++, token);
+            if (delay > 0 && token % 10 == 0) {
+                Thread.sleep(delay);
+            }
+        }
+    }
+
+    @Test
+    public void multicastTest() throws InterruptedException {
+        int count = 200;
+        Source source = new Source(count);
+        Sink[] sinks = {new Sink(0), new Sink(1), new Sink(5)};
+        for (Sink sink: sinks) {
+            source.out.subscribe(sink.inp);
+            sink.start();
+        }
+        source.start();
+        for (Sink sink: sinks) {
+            Assert.assertTrue(sink.await(2, TimeUnit.SECONDS));
+            Assert.assertFalse(sink.isCompletedExceptionally());
+            Assert.assertEquals(count, sink.expected);
+        }
+    }
+}
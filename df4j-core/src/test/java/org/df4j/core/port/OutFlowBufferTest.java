@@ -0,0 +1,147 @@
+package org.df4j.core.port;
+
+import org.df4j.core.activities.ManualProc;
+import org.df4j.core.activities.ManualSubscriber;
+import org.df4j.core.actor.Actor;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class OutFlowBufferTest {
+
+    @Test
+    public void unbufferedTest() {
+        OutFlow<Integer> out = new OutFlow<>(new ManualProc(), 0);
+        Assert.assertFalse(out.isReady());
+        Assert.assertFalse(out.offer(0));
+        ManualSubscriber<Integer> sub = new ManualSubscriber<>();
+        out.subscribe(sub);
+        sub.subscription.request(1);
+        Assert.assertTrue(out.isReady());
+        Assert.assertTrue(out.offer(1));
+        Assert.assertFalse(out.isReady());
+        Assert.assertEquals(Arrays.asList(1), sub.tokens);
+    }
+
+    @Test
+    public void bufferTest() {
+        OutFlow<Integer> out = new OutFlow<>(new ManualProc(), 4);
+        Assert.assertTrue(out.isReady());
+        for (int k = 0; k < 4; k++) {
+            out.onNext(k);
+        }
+        Assert.assertFalse(out.isReady());
+        Assert.assertFalse(out.offer(4));
+        ManualSubscriber<Integer> sub = new ManualSubscriber<>();
+        out.subscribe(sub);
+        sub.subscription.request(2);
+        Assert.assertEquals(Arrays.asList(0, 1), sub.tokens);
+        Assert.assertTrue(out.isReady());
+        Assert.assertEquals(2, out.getBufferedCount());
+        out.onNext(4); // after the buffered tokens
+        sub.subscription.request(10);
+        Assert.assertEquals(Arrays.asList(0, 1, 2, 3, 4), sub.tokens);
+        Assert.assertEquals(0, out.getBufferedCount());
+        out.onNext(5);
+        Assert.assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5), sub.tokens);
+    }
+
+    @Test
+    public void completionAfterBufferTest() {
+        OutFlow<Integer> out = new OutFlow<>(new ManualProc(), 4);
+        out.onNext(0);
+        out.onNext(1);
+        out.onComplete();
+        ManualSubscriber<Integer> sub = new ManualSubscriber<>();
+        out.subscribe(sub);
+        sub.subscription.request(1);
+        Assert.assertFalse(sub.completed);
+        sub.subscription.request(1);
+        Assert.assertEquals(Arrays.asList(0, 1), sub.tokens);
+        Assert.assertTrue(sub.completed);
+        ManualSubscriber<Integer> late = new ManualSubscriber<>();
+        out.subscribe(late);
+        Assert.assertTrue(late.completed);
+    }
+
+    @Test
+    public void offerAllTest() {
+        OutFlow<Integer> out = new OutFlow<>(new ManualProc(), 2);
+        ManualSubscriber<Integer> sub1 = new ManualSubscriber<>();
+        ManualSubscriber<Integer> sub2 = new ManualSubscriber<>();
+        out.subscribe(sub1);
+        out.subscribe(sub2);
+        sub1.subscription.request(3);
+        sub2.subscription.request(2);
+        Integer[] batch = {0, 1, 2, 3, 4, 5, 6, 7};
+        Assert.assertEquals(7, out.offerAll(batch));
+        Assert.assertEquals(Arrays.asList(0, 1, 2), sub1.tokens);
+        Assert.assertEquals(Arrays.asList(3, 4), sub2.tokens);
+        Assert.assertEquals(2, out.getBufferedCount());
+        Assert.assertFalse(out.isReady());
+        sub2.subscription.request(5);
+        Assert.assertEquals(Arrays.asList(3, 4, 5, 6), sub2.tokens);
+        Assert.assertEquals(3, out.offerAll(Arrays.asList(7, 8, 9)));
+        Assert.assertEquals(Arrays.asList(3, 4, 5, 6, 7, 8, 9), sub2.tokens);
+    }
+
+    /** emits tokens while the buffer has room */
+    static class Source extends Actor {
+        OutFlow<Integer> out = new OutFlow<>(this, 4);
+        final int count;
+        int next = 0;
+
+        Source(int count) {
+            this.count = count;
+        }
+
+        @Override
+        protected void runAction() {
+            if (next == count) {
+                out.onComplete();
+                complete();
+                return;
+            }
+            out.onNext(next++);
+        }
+    }
+
+    static class Sink extends Actor {
+        InpFlow<Integer> inp = new InpFlow<>(this, 1);
+        List<Integer> received = new ArrayList<>();
+
+        @Override
+        protected void runAction() {
+            if (inp.isCompleted()) {
+                complete(inp.getCompletionException());
+                return;
+            }
+            received.add(inp.remove());
+        }
+    }
+
+    @Test
+    public void actorTest() throws InterruptedException {
+        int count = 100;
+        Source source = new Source(count);
+        source.start();
+        long deadline = System.currentTimeMillis() + 2000;
+        while (source.out.isReady() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        Assert.assertEquals(4, source.out.getBufferedCount()); // the source waits for a subscriber
+        Sink sink = new Sink();
+        source.out.subscribe(sink.inp);
+        sink.start();
+        Assert.assertTrue(sink.await(2, TimeUnit.SECONDS));
+        Assert.assertFalse(sink.isCompletedExceptionally());
+        Assert.assertEquals(count, sink.received.size());
+        for (int k = 0; k < count; k++) {
+            Assert.assertEquals(k, sink.received.get(k).intValue());
+        }
+    }
+}
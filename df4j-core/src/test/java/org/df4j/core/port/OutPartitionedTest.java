@@ -0,0 +1,196 @@
+package org.df4j.core.port;
+
+import org.df4j.core.activities.ManualProc;
+import org.df4j.core.activities.ManualSubscriber;
+import org.df4j.core.actor.Actor;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class OutPartitionedTest {
+
+    /** small integer keys are routed to partition key % 3 */
+    static OutPartitioned<Integer, Integer> newPort() {
+        return new OutPartitioned<>(new ManualProc(), 3, t -> t % 3, 2);
+    }
+
+    @Test
+    public void routingTest() {
+        OutPartitioned<Integer, Integer> out = newPort();
+        List<ManualSubscriber<Integer>> subs = new ArrayList<>();
+        for (int k = 0; k < 3; k++) {
+            ManualSubscriber<Integer> sub = new ManualSubscriber<>();
+            out.subscribe(sub);
+            sub.subscription.request(100);
+            subs.add(sub);
+        }
+        Assert.assertEquals(3, out.getSubscribers().size());
+        for (int k = 0; k < 9; k++) {
+            out.onNext(k);
+        }
+        Assert.assertEquals(Arrays.asList(0, 3, 6), subs.get(0).tokens);
+        Assert.assertEquals(Arrays.asList(1, 4, 7), subs.get(1).tokens);
+        Assert.assertEquals(Arrays.asList(2, 5, 8), subs.get(2).tokens);
+        ManualSubscriber<Integer> extra = new ManualSubscriber<>();
+        out.subscribe(extra);
+        Assert.assertEquals(3, out.getSubscribers().size());
+    }
+
+    @Test
+    public void slowPartitionTest() {
+        OutPartitioned<Integer, Integer> out = newPort();
+        ManualSubscriber<Integer> slow = new ManualSubscriber<>();
+        ManualSubscriber<Integer> fast = new ManualSubscriber<>();
+        out.subscribe(0, slow);
+        out.subscribe(1, fast);
+        fast.subscription.request(100);
+        out.onNext(0);
+        out.onNext(1);
+        Assert.assertTrue(out.isReady());
+        out.onNext(3);
+        Assert.assertTrue(out.isReady()); // partition 0 is full, but others have room
+        Assert.assertFalse(out.isReady(6));
+        Assert.assertTrue(out.isReady(7));
+        Assert.assertFalse(out.offer(6));
+        Assert.assertFalse(out.isReady()); // waits for partition 0
+        Assert.assertTrue(out.offer(4)); // other keys still pass
+        Assert.assertEquals(Arrays.asList(1, 4), fast.tokens);
+        Assert.assertEquals(2, out.getBufferedCount(0));
+        slow.subscription.request(1);
+        Assert.assertEquals(Arrays.asList(0), slow.tokens);
+        Assert.assertTrue(out.isReady());
+        out.onNext(6);
+        slow.subscription.request(10);
+        Assert.assertEquals(Arrays.asList(0, 3, 6), slow.tokens);
+    }
+
+    /** a full partition whose subscriber has cancelled does not block other partitions */
+    @Test
+    public void orphanedPartitionTest() {
+        OutPartitioned<Integer, Integer> out = newPort();
+        ManualSubscriber<Integer> gone = new ManualSubscriber<>();
+        ManualSubscriber<Integer> other = new ManualSubscriber<>();
+        out.subscribe(0, gone);
+        out.subscribe(1, other);
+        other.subscription.request(100);
+        out.onNext(0);
+        out.onNext(3);
+        gone.subscription.cancel();
+        Assert.assertTrue(out.isReady());
+        for (int k = 1; k < 10; k += 3) {
+            Assert.assertTrue(out.offer(k));
+        }
+        Assert.assertEquals(Arrays.asList(1, 4, 7), other.tokens);
+        Assert.assertFalse(out.offer(6));
+        Assert.assertFalse(out.isReady());
+        ManualSubscriber<Integer> next = new ManualSubscriber<>();
+        out.subscribe(0, next);
+        next.subscription.request(1);
+        Assert.assertEquals(Arrays.asList(0), next.tokens);
+        Assert.assertTrue(out.isReady());
+        Assert.assertTrue(out.offer(6));
+    }
+
+    @Test
+    public void completionTest() {
+        OutPartitioned<Integer, Integer> out = newPort();
+        ManualSubscriber<Integer> first = new ManualSubscriber<>();
+        ManualSubscriber<Integer> second = new ManualSubscriber<>();
+        out.subscribe(first);
+        out.subscribe(second);
+        first.subscription.request(10);
+        out.onNext(0);
+        out.onNext(1);
+        out.onNext(2);
+        out.onComplete();
+        Assert.assertTrue(first.completed);
+        Assert.assertFalse(second.completed); // token 1 is not delivered yet
+        second.subscription.request(1);
+        Assert.assertEquals(Arrays.asList(1), second.tokens);
+        Assert.assertTrue(second.completed);
+        Assert.assertFalse(out.offer(3));
+        ManualSubscriber<Integer> late = new ManualSubscriber<>();
+        out.subscribe(late);
+        Assert.assertFalse(late.completed); // token 2 waits for demand
+        late.subscription.request(1);
+        Assert.assertEquals(Arrays.asList(2), late.tokens);
+        Assert.assertTrue(late.completed);
+    }
+
+    static class Source extends Actor {
+        OutPartitioned<Integer, Integer> out = new OutPartitioned<>(this, 3, t -> t % 3, 4);
+        final int count;
+        int next = 0;
+        /** the token refused by a full partition, to retry when the partition has room */
+        Integer pending;
+
+        Source(int count) {
+            this.count = count;
+        }
+
+        @Override
+        protected void runAction() {
+            if (pending == null) {
+                if (next == count) {
+                    out.onComplete();
+                    complete();
+                    return;
+                }
+                pending = next++;
+            }
+            if (out.offer(pending)) {
+                pending = null;
+            }
+        }
+    }
+
+    static class Sink extends Actor {
+        InpFlow<Integer> inp = new InpFlow<>(this, 2);
+        final int partition;
+        final int delay;
+        int expected;
+        int received = 0;
+
+        Sink(int partition, int delay) {
+            this.partition = partition;
+            this.delay = delay;
+            expected = partition;
+        }
+
+        @Override
+        protected void runAction() throws InterruptedException {
+            if (inp.isCompleted()) {
+                complete(inp.getCompletionException());
+                return;
+            }
+            int token = inp.remove();
+            Assert.assertEquals(expected, token);
+            expected += 3;
+            received++;
+            if (delay > 0 && token % 10 == 0) {
+                Thread.sleep(delay);
+            }
+        }
+    }
+
+    @Test
+    public void partitionedTest() throws InterruptedException {
+        int count = 300;
+        Source source = new Source(count);
+        Sink[] sinks = {new Sink(0, 0), new Sink(1, 1), new Sink(2, 5)};
+        for (Sink sink: sinks) {
+            source.out.subscribe(sink.partition, sink.inp);
+            sink.start();
+        }
+        source.start();
+        for (Sink sink: sinks) {
+            Assert.assertTrue(sink.await(2, TimeUnit.SECONDS));
+            Assert.assertFalse(sink.isCompletedExceptionally());
+            Assert.assertEquals(count / 3, sink.received);
+        }
+    }
+}
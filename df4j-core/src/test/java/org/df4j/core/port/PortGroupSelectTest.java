@@ -0,0 +1,111 @@
+package org.df4j.core.port;
+
+import org.df4j.core.activities.ManualProc;
+import org.df4j.core.actor.Actor;
+import org.df4j.core.actor.AsyncProc;
+import org.df4j.core.util.Utils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class PortGroupSelectTest {
+    static final int PORT_NUM = 100;
+
+    static class Multiplexer extends ManualProc {
+        PortGroup group = new PortGroup(this);
+        @SuppressWarnings("unchecked")
+        InpFlow<Integer>[] inps = (InpFlow<Integer>[]) new InpFlow<?>[PORT_NUM];
+
+        {
+            for (int k = 0; k < PORT_NUM; k++) {
+                inps[k] = new InpFlow<>(group, 10);
+            }
+        }
+
+        List<Integer> selectMany(int count) {
+            List<Integer> res = new ArrayList<>();
+            for (int k = 0; k < count; k++) {
+                AsyncProc.Port port = group.select();
+                res.add(port == null ? null : port.getPortNum());
+            }
+            return res;
+        }
+    }
+
+    @Test
+    public void roundRobinTest() {
+        Multiplexer mux = new Multiplexer();
+        Assert.assertNull(mux.group.select());
+        for (int portNum: new int[]{3, 31, 32, 50, 99}) {
+            for (int k = 0; k < 5; k++) {
+                mux.inps[portNum].onNext(k);
+            }
+        }
+        Assert.assertEquals(Arrays.asList(3, 31, 32, 50, 99, 3, 31), mux.selectMany(7));
+        // the port next to the last selected goes first
+        mux.inps[40].onNext(0);
+        Assert.assertEquals(Arrays.asList(32, 40, 50, 99, 3), mux.selectMany(5));
+        mux.inps[40].remove();
+        mux.inps[50].onComplete(); // ready, as completion is a signal too
+        Assert.assertEquals(Arrays.asList(31, 32, 50, 99), mux.selectMany(4));
+    }
+
+    @Test
+    public void weightedTest() {
+        Multiplexer mux = new Multiplexer();
+        mux.group.setWeight(mux.inps[1], 3);
+        mux.group.setWeight(mux.inps[70], 2);
+        for (int portNum: new int[]{1, 2, 70}) {
+            for (int k = 0; k < 10; k++) {
+                mux.inps[portNum].onNext(k);
+            }
+        }
+        Assert.assertEquals(Arrays.asList(1, 1, 1, 2, 70, 70, 1, 1), mux.selectMany(8));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void foreignPortTest() {
+        Multiplexer mux = new Multiplexer();
+        mux.group.setWeight(new Multiplexer().inps[0], 2);
+    }
+
+    /** the actor serves all inputs with select() and none of them starves */
+    static class FairMerger extends Actor {
+        PortGroup group = new PortGroup(this);
+        @SuppressWarnings("unchecked")
+        InpFlow<Integer>[] inps = (InpFlow<Integer>[]) new InpFlow<?>[PORT_NUM];
+        List<Integer> order = new ArrayList<>();
+
+        {
+            for (int k = 0; k < PORT_NUM; k++) {
+                inps[k] = new InpFlow<>(group, 4);
+            }
+            setExecutor(Utils.directExec);
+        }
+
+        @Override
+        protected void runAction() {
+            @SuppressWarnings("unchecked")
+            InpFlow<Integer> inp = (InpFlow<Integer>) group.select();
+            order.add(inp.remove());
+        }
+    }
+
+    @Test
+    public void fairnessTest() {
+        FairMerger merger = new FairMerger();
+        for (int k = 0; k < PORT_NUM; k++) {
+            for (int j = 0; j < 4; j++) {
+                merger.inps[k].onNext(k);
+            }
+        }
+        merger.start();
+        Assert.assertEquals(4 * PORT_NUM, merger.order.size());
+        for (int k = 0; k < merger.order.size(); k++) {
+            Assert.assertEquals(k % PORT_NUM, (int) merger.order.get(k));
+        }
+    }
+}
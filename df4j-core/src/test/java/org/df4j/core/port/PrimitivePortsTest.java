@@ -0,0 +1,144 @@
+package org.df4j.core.port;
+
+import org.df4j.core.activities.ManualProc;
+import org.df4j.core.activities.ManualSubscription;
+import org.df4j.core.actor.Actor;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+public class PrimitivePortsTest {
+
+    static class LongSource extends Actor {
+        OutLongs out = new OutLongs(this, 8);
+        final long count;
+        long next = 0;
+
+        LongSource(long count) {
+            this.count = count;
+        }
+
+        @Override
+        protected void runAction() {
+            if (next == count) {
+                out.onComplete();
+                complete();
+                return;
+            }
+            out.onNext(next++);
+        }
+    }
+
+    static class LongSum extends Actor {
+        InpLongs inp = new InpLongs(this, 8);
+        long sum = 0;
+
+        @Override
+        protected void runAction() {
+            if (inp.isCompleted()) {
+                complete();
+                return;
+            }
+            sum += inp.remove();
+        }
+    }
+
+    @Test
+    public void longPipelineTest() throws InterruptedException {
+        long count = 100000;
+        LongSource source = new LongSource(count);
+        LongSum sum = new LongSum();
+        source.out.subscribe(sum.inp);
+        sum.start();
+        source.start();
+        Assert.assertTrue(sum.await(2, TimeUnit.SECONDS));
+        Assert.assertEquals(count * (count - 1) / 2, sum.sum);
+    }
+
+    @Test
+    public void intBackpressureTest() {
+        ManualProc proc = new ManualProc();
+        OutInts outInts = new OutInts(proc, 2);
+        InpInts inpInts = new InpInts(proc, 2);
+        outInts.subscribe(inpInts);
+        for (int k = 0; k < 4; k++) { // 2 go to the input port, 2 stay in the output buffer
+            outInts.onNext(k);
+        }
+        Assert.assertFalse(outInts.isReady());
+        Assert.assertFalse(outInts.offer(4));
+        Assert.assertEquals(2, inpInts.getBufferedCount());
+        Assert.assertEquals(2, outInts.getBufferedCount());
+        Assert.assertEquals(0, inpInts.remove());
+        Assert.assertTrue(outInts.isReady());
+        Assert.assertEquals(1, outInts.getBufferedCount());
+        outInts.onComplete();
+        for (int k = 1; k < 4; k++) {
+            Assert.assertEquals(k, inpInts.remove());
+        }
+        Assert.assertTrue(inpInts.isCompleted());
+        Assert.assertTrue(inpInts.isReady());
+    }
+
+    @Test
+    public void doubleTest() {
+        ManualProc proc = new ManualProc();
+        OutDoubles outDoubles = new OutDoubles(proc, 2);
+        InpDoubles inpDoubles = new InpDoubles(proc, 2);
+        inpDoubles.onNext(0.5);
+        outDoubles.subscribe(inpDoubles);
+        outDoubles.onNext(1.5);
+        outDoubles.onError(new IllegalArgumentException());
+        Assert.assertEquals(0.5, inpDoubles.remove(), 0.0);
+        Assert.assertEquals(1.5, inpDoubles.current(), 0.0);
+        Assert.assertEquals(1.5, inpDoubles.remove(), 0.0);
+        Assert.assertTrue(inpDoubles.getCompletionException() instanceof IllegalArgumentException);
+        try {
+            inpDoubles.remove();
+            Assert.fail();
+        } catch (CompletionException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+    }
+
+    /** the freed room is requested when it reaches the threshold */
+    @Test
+    public void longThresholdTest() {
+        InpLongs inp = new InpLongs(new ManualProc(), 4);
+        inp.setRequestThreshold(3);
+        ManualSubscription subscription = new ManualSubscription();
+        inp.onSubscribe(subscription);
+        inp.onNext(new long[]{1, 2, 3}, 0, 3);
+        Assert.assertEquals(1, inp.remove());
+        Assert.assertEquals(Arrays.asList(4L), subscription.requests); // 2 places are free
+        long[] dst = new long[4];
+        Assert.assertEquals(2, inp.drainTo(dst, 0, 4));
+        Assert.assertEquals(Arrays.asList(4L, 3L), subscription.requests);
+        Assert.assertEquals(3, dst[1]);
+        Assert.assertFalse(inp.isReady());
+        Assert.assertEquals(0, inp.drainTo(dst, 0, 4));
+    }
+
+    @Test
+    public void doubleBulkTest() {
+        ManualProc proc = new ManualProc();
+        OutDoubles outDoubles = new OutDoubles(proc, 2);
+        InpDoubles inpDoubles = new InpDoubles(proc, 2);
+        outDoubles.subscribe(inpDoubles);
+        double[] src = {0.5, 1.5, 2.5, 3.5, 4.5};
+        Assert.assertEquals(4, outDoubles.offer(src, 0, 5)); // 2 go to the input port, 2 stay in the output buffer
+        Assert.assertFalse(outDoubles.isReady());
+        try {
+            outDoubles.onNext(src, 4, 1);
+            Assert.fail();
+        } catch (IllegalStateException e) {
+        }
+        double[] dst = new double[4];
+        Assert.assertEquals(2, inpDoubles.drainTo(dst, 0, 4));
+        Assert.assertTrue(outDoubles.isReady());
+        Assert.assertEquals(2, inpDoubles.drainTo(dst, 2, 2));
+        Assert.assertArrayEquals(new double[]{0.5, 1.5, 2.5, 3.5}, dst, 0.0);
+    }
+}
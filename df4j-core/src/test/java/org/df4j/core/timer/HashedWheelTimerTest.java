@@ -0,0 +1,116 @@
+package org.df4j.core.timer;
+
+import org.df4j.protocol.SimpleSubscription;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class HashedWheelTimerTest {
+
+    /** delays in the lowest wheel, in the second wheel, and crossing turns of the lowest wheel */
+    @Test
+    public void orderTest() throws InterruptedException {
+        HashedWheelTimer timer = new HashedWheelTimer();
+        long[] delays = {700, 5, 300, 0, 255, 257, 40, 1000};
+        List<Long> fired = Collections.synchronizedList(new ArrayList<>());
+        long[] elapsed = new long[delays.length];
+        CountDownLatch latch = new CountDownLatch(delays.length);
+        long startTime = System.nanoTime();
+        for (int k = 0; k < delays.length; k++) {
+            int index = k;
+            timer.schedule(()->{
+                elapsed[index] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+                fired.add(delays[index]);
+                latch.countDown();
+            }, delays[k], TimeUnit.MILLISECONDS);
+        }
+        Assert.assertTrue(latch.await(3, TimeUnit.SECONDS));
+        for (int k = 0; k < delays.length; k++) {
+            Assert.assertTrue("delay " + delays[k] + " expired after " + elapsed[k], elapsed[k] >= delays[k]);
+        }
+        List<Long> expected = new ArrayList<>();
+        for (long delay: delays) {
+            expected.add(delay);
+        }
+        Collections.sort(expected);
+        Assert.assertEquals(expected, fired);
+        timer.shutdown();
+    }
+
+    @Test
+    public void cancelTest() throws InterruptedException {
+        HashedWheelTimer timer = new HashedWheelTimer();
+        AtomicInteger counter = new AtomicInteger();
+        SimpleSubscription cancelled = timer.schedule(counter::incrementAndGet, 20, TimeUnit.MILLISECONDS);
+        CountDownLatch latch = new CountDownLatch(1);
+        timer.schedule(latch::countDown, 50, TimeUnit.MILLISECONDS);
+        cancelled.cancel();
+        Assert.assertTrue(cancelled.isCancelled());
+        Assert.assertTrue(latch.await(1, TimeUnit.SECONDS));
+        Assert.assertEquals(0, counter.get());
+        timer.shutdown();
+    }
+
+    /**
+     * a long delay waits in an upper wheel while a shorter one, scheduled later, occupies the lowest wheel
+     * beyond its next turn; the long one must still fire in time, not when the lowest wheel is processed next
+     */
+    @Test
+    public void latenessTest() throws InterruptedException {
+        HashedWheelTimer timer = new HashedWheelTimer();
+        long startTime = System.nanoTime();
+        long[] elapsed = new long[2];
+        CountDownLatch latch = new CountDownLatch(3);
+        timer.schedule(()->{
+            elapsed[0] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+            latch.countDown();
+        }, 300, TimeUnit.MILLISECONDS);
+        Thread.sleep(150);
+        timer.schedule(()->{
+            elapsed[1] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+            latch.countDown();
+        }, 250, TimeUnit.MILLISECONDS);
+        timer.schedule(latch::countDown, 10, TimeUnit.MILLISECONDS); // wakes the timer thread before the turn
+        Assert.assertTrue(latch.await(2, TimeUnit.SECONDS));
+        Assert.assertTrue("300 ms delay expired after " + elapsed[0], elapsed[0] >= 300);
+        Assert.assertTrue("250 ms delay expired after " + elapsed[1], elapsed[1] >= 400);
+        // the earlier deadline expires first, however slow the machine is
+        Assert.assertTrue("300 ms delay expired after " + elapsed[0], elapsed[0] < elapsed[1]);
+        Assert.assertTrue("300 ms delay expired after " + elapsed[0], elapsed[0] < TimeUnit.SECONDS.toMillis(2));
+        timer.shutdown();
+    }
+
+    /** many pending timeouts, half of them cancelled */
+    @Test
+    public void manyTimeoutsTest() throws InterruptedException {
+        int count = 200000;
+        HashedWheelTimer timer = new HashedWheelTimer();
+        AtomicInteger counter = new AtomicInteger();
+        Runnable task = counter::incrementAndGet;
+        SimpleSubscription[] timeouts = new SimpleSubscription[count];
+        for (int k = 0; k < count; k++) {
+            timeouts[k] = timer.schedule(task, 100 + k % 500, TimeUnit.MILLISECONDS);
+        }
+        // on a slow machine, some timeouts can expire before they are cancelled
+        int cancelledCount = 0;
+        for (int k = 0; k < count; k += 2) {
+            timeouts[k].cancel();
+            if (timeouts[k].isCancelled()) {
+                cancelledCount++;
+            }
+        }
+        Assert.assertTrue(cancelledCount > 0);
+        // all the timeouts are due before this one, and expire in the same timer thread
+        CountDownLatch latch = new CountDownLatch(1);
+        timer.schedule(latch::countDown, 700, TimeUnit.MILLISECONDS);
+        Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(count - cancelledCount, counter.get());
+        timer.shutdown();
+    }
+}
@@ -0,0 +1,23 @@
+package org.df4j.core.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CharBufferTest {
+
+    @Test
+    public void bulkWrapTest() {
+        CharBuffer buffer = new CharBuffer(5);
+        char[] dst = new char[5];
+        for (int round = 0; round < 7; round++) { // positions wrap around several times
+            buffer.add("abc".toCharArray(), 0, 3);
+            buffer.add('d');
+            Assert.assertEquals(1, buffer.remainingCapacity());
+            Assert.assertEquals('a', buffer.remove());
+            Assert.assertEquals(3, buffer.remove(dst, 1, 4));
+            Assert.assertEquals("bcd", new String(dst, 1, 3));
+            Assert.assertTrue(buffer.isEmpty());
+        }
+        Assert.assertEquals(0, buffer.remove(dst, 0, 5));
+    }
+}
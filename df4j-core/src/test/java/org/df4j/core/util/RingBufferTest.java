@@ -0,0 +1,100 @@
+package org.df4j.core.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+public class RingBufferTest {
+
+    @Test
+    public void capacityTest() {
+        RingBuffer<Integer> ring = new RingBuffer<>(5);
+        Assert.assertEquals(5, ring.capacity());
+        Assert.assertTrue(ring.isEmpty());
+        Assert.assertNull(ring.poll());
+        for (int k = 0; k < 5; k++) {
+            Assert.assertTrue(ring.offer(k));
+        }
+        Assert.assertFalse(ring.offer(5));
+        Assert.assertFalse(ring.offerShared(5));
+        Assert.assertEquals(5, ring.size());
+        Assert.assertEquals(0, (int) ring.peek());
+        for (int round = 0; round < 20; round++) { // wrap around several times
+            Assert.assertEquals(round, (int) ring.poll());
+            Assert.assertTrue(ring.offer(round + 5));
+        }
+        for (int k = 20; k < 25; k++) {
+            Assert.assertEquals(k, (int) ring.poll());
+        }
+        Assert.assertTrue(ring.isEmpty());
+        Assert.assertNull(ring.peek());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroCapacityTest() {
+        new RingBuffer<>(0);
+    }
+
+    @Test
+    public void singleProducerTest() throws InterruptedException {
+        int count = 1000000;
+        RingBuffer<Integer> ring = new RingBuffer<>(64);
+        Thread producer = new Thread(()->{
+            for (int k = 0; k < count; k++) {
+                while (!ring.offer(k)) {
+                    Thread.yield();
+                }
+            }
+        });
+        producer.start();
+        for (int k = 0; k < count; k++) {
+            Integer token;
+            while ((token = ring.poll()) == null) {
+                Thread.yield();
+            }
+            Assert.assertEquals(k, (int) token);
+        }
+        producer.join();
+        Assert.assertTrue(ring.isEmpty());
+    }
+
+    @Test
+    public void multiProducerTest() throws InterruptedException {
+        int producerCount = 4;
+        int count = 200000;
+        RingBuffer<Integer> ring = new RingBuffer<>(100);
+        Thread[] producers = new Thread[producerCount];
+        for (int p = 0; p < producerCount; p++) {
+            int base = p * count;
+            producers[p] = new Thread(()->{
+                for (int k = 0; k < count; k++) {
+                    while (!ring.offerShared(base + k)) {
+                        Thread.yield();
+                    }
+                }
+            });
+            producers[p].start();
+        }
+        BitSet received = new BitSet();
+        int[] last = new int[producerCount];
+        Arrays.fill(last, -1);
+        for (int k = 0; k < producerCount * count; k++) {
+            Integer token;
+            while ((token = ring.poll()) == null) {
+                Thread.yield();
+            }
+            Assert.assertFalse(received.get(token));
+            received.set(token);
+            int p = token / count;
+            Assert.assertTrue(token % count > last[p]); // each producer's order is kept
+            last[p] = token % count;
+        }
+        for (Thread producer: producers) {
+            producer.join();
+        }
+        Assert.assertEquals(producerCount * count, received.cardinality());
+        Assert.assertTrue(ring.isEmpty());
+    }
+}
@@ -0,0 +1,38 @@
+package org.df4j.loom;
+
+import org.df4j.core.actor.Actor;
+import org.df4j.core.actor.ActorGroup;
+import org.df4j.core.port.InpFlow;
+
+/**
+ * An {@link Actor} written in blocking style, like a {@link Thread}.
+ * <p>
+ * Its {@link #runAction()} is called only once, in a dedicated virtual thread (see {@link VirtualThreads}),
+ * and is not gated by the ports: it reads input ports with blocking calls like {@link InpFlow#take()}.
+ * Such calls park the virtual thread and release its carrier thread,
+ * so thousands of blocking actors do not starve the executor of ordinary actors.
+ * When {@link #runAction()} returns, the actor completes; when it throws an exception, the actor completes exceptionally.
+ */
+public abstract class BlockingActor extends Actor {
+    {
+        nextAction(this::runBody, PORTS_NONE);
+    }
+
+    public BlockingActor(ActorGroup parent) {
+        super(parent);
+    }
+
+    public BlockingActor() {
+    }
+
+    private void runBody() throws Throwable {
+        runAction();
+        complete();
+    }
+
+    @Override
+    protected void fire() {
+        _controlportBlock();
+        VirtualThreads.newThread(this::run).start();
+    }
+}
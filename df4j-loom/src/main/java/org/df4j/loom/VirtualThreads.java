@@ -0,0 +1,67 @@
+package org.df4j.loom;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Factory of threads for blocking code.
+ * <p>
+ * On JDK 21+ creates virtual threads. This version is compiled for Java 8 and finds virtual threads reflectively,
+ * so that it works also when the classes are loaded from a directory and not from the multi-release jar.
+ * On older JDKs falls back to platform daemon threads.
+ * The jar contains a version for JDK 21+ which calls {@code Thread.ofVirtual()} directly.
+ */
+public final class VirtualThreads {
+    private static final ThreadFactory virtualFactory = findVirtualFactory();
+    private static final AtomicInteger platformThreadCounter = new AtomicInteger();
+
+    private VirtualThreads() {}
+
+    private static ThreadFactory findVirtualFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, "df4j-virtual-", 0L);
+            Method factory = builderClass.getMethod("factory");
+            return (ThreadFactory) factory.invoke(builder);
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return true if threads created by this class are virtual
+     */
+    public static boolean isSupported() {
+        return virtualFactory != null;
+    }
+
+    /**
+     * @param task the task to run
+     * @return new unstarted virtual thread, or daemon platform thread if virtual threads are not supported
+     */
+    public static Thread newThread(Runnable task) {
+        if (virtualFactory != null) {
+            return virtualFactory.newThread(task);
+        }
+        Thread thread = new Thread(task, "df4j-blocking-" + platformThreadCounter.getAndIncrement());
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * Executor for {@link org.df4j.core.actor.ActorGroup}s whose actors block in their actions.
+     * Each task runs in a new virtual thread.
+     * If virtual threads are not supported, tasks run in a cached pool of platform daemon threads.
+     * @return new executor
+     */
+    public static Executor newExecutor() {
+        if (virtualFactory != null) {
+            return (task)->virtualFactory.newThread(task).start();
+        }
+        return Executors.newCachedThreadPool(VirtualThreads::newThread);
+    }
+}
@@ -0,0 +1,7 @@
+/**
+ * Execution of actors which block, e.g. on I/O.
+ *
+ * To run ordinary actors on virtual threads, create their group with {@code new ActorGroup(VirtualThreads.newExecutor())}.
+ * To write an actor as a sequential blocking loop, extend {@link org.df4j.loom.BlockingActor}.
+ */
+package org.df4j.loom;
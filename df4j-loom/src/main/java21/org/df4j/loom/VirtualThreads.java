@@ -0,0 +1,39 @@
+package org.df4j.loom;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Factory of threads for blocking code.
+ * <p>
+ * The version for JDK 21+: all threads are virtual.
+ */
+public final class VirtualThreads {
+    private static final ThreadFactory virtualFactory = Thread.ofVirtual().name("df4j-virtual-", 0).factory();
+
+    private VirtualThreads() {}
+
+    /**
+     * @return true if threads created by this class are virtual
+     */
+    public static boolean isSupported() {
+        return true;
+    }
+
+    /**
+     * @param task the task to run
+     * @return new unstarted virtual thread
+     */
+    public static Thread newThread(Runnable task) {
+        return virtualFactory.newThread(task);
+    }
+
+    /**
+     * Executor for {@link org.df4j.core.actor.ActorGroup}s whose actors block in their actions.
+     * Each task runs in a new virtual thread.
+     * @return new executor
+     */
+    public static Executor newExecutor() {
+        return (task)->virtualFactory.newThread(task).start();
+    }
+}
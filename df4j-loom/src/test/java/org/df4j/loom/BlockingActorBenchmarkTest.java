@@ -0,0 +1,120 @@
+package org.df4j.loom;
+
+import org.df4j.core.actor.Actor;
+import org.df4j.core.actor.ActorGroup;
+import org.df4j.core.port.InpFlow;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Many concurrent actors, each receives {@link #TOKENS} tokens.
+ * Compares ordinary actors on the common pool and on virtual threads with blocking actors.
+ * With {@code sleep}, the last action of each actor blocks, as if doing I/O.
+ */
+public class BlockingActorBenchmarkTest {
+    /** platform threads are too heavy to have 100k of them */
+    static final int ACTOR_COUNT = VirtualThreads.isSupported() ? 100000 : 1000;
+    static final int TOKENS = 10;
+    static final long SLEEP_MILLIS = 10;
+
+    static class SumActor extends Actor {
+        final InpFlow<Integer> inp = new InpFlow<>(this, TOKENS);
+        final AtomicLong total;
+        final boolean sleep;
+        long sum = 0;
+        int count = 0;
+
+        SumActor(ActorGroup parent, AtomicLong total, boolean sleep) {
+            super(parent);
+            this.total = total;
+            this.sleep = sleep;
+        }
+
+        @Override
+        protected void runAction() throws InterruptedException {
+            sum += inp.remove();
+            count++;
+            if (count == TOKENS) {
+                if (sleep) {
+                    Thread.sleep(SLEEP_MILLIS);
+                }
+                total.addAndGet(sum);
+                complete();
+            }
+        }
+    }
+
+    static class BlockingSumActor extends BlockingActor {
+        final InpFlow<Integer> inp = new InpFlow<>(this, TOKENS);
+        final AtomicLong total;
+        final boolean sleep;
+
+        BlockingSumActor(ActorGroup parent, AtomicLong total, boolean sleep) {
+            super(parent);
+            this.total = total;
+            this.sleep = sleep;
+        }
+
+        @Override
+        protected void runAction() throws InterruptedException {
+            long sum = 0;
+            for (int k = 0; k < TOKENS; k++) {
+                sum += inp.take();
+            }
+            if (sleep) {
+                Thread.sleep(SLEEP_MILLIS);
+            }
+            total.addAndGet(sum);
+        }
+    }
+
+    private long run(String name, ActorGroup group, boolean blocking, boolean sleep) throws InterruptedException {
+        AtomicLong total = new AtomicLong();
+        InpFlow<Integer>[] inps = new InpFlow[ACTOR_COUNT];
+        long startTime = System.nanoTime();
+        for (int k = 0; k < ACTOR_COUNT; k++) {
+            Actor actor;
+            if (blocking) {
+                BlockingSumActor blockingActor = new BlockingSumActor(group, total, sleep);
+                inps[k] = blockingActor.inp;
+                actor = blockingActor;
+            } else {
+                SumActor sumActor = new SumActor(group, total, sleep);
+                inps[k] = sumActor.inp;
+                actor = sumActor;
+            }
+            actor.start();
+        }
+        for (int t = 1; t <= TOKENS; t++) {
+            for (InpFlow<Integer> inp: inps) {
+                inp.onNext(t);
+            }
+        }
+        boolean completed = group.await(5, TimeUnit.MINUTES);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+        Assert.assertTrue(completed);
+        Assert.assertEquals((long) ACTOR_COUNT * TOKENS * (TOKENS + 1) / 2, total.get());
+        System.out.println(name + (sleep ? " with sleep" : "") + ": " + ACTOR_COUNT + " actors in " + elapsedMs + " ms");
+        return elapsedMs;
+    }
+
+    @Test
+    public void computeTest() throws InterruptedException {
+        run("Actor on common pool", new ActorGroup(), false, false);
+        run("Actor on virtual threads", new ActorGroup(VirtualThreads.newExecutor()), false, false);
+        run("BlockingActor", new ActorGroup(), true, false);
+    }
+
+    /**
+     * Ordinary actors on the common pool are not measured here:
+     * their sleeping actions would occupy all the pool threads, and run in series.
+     */
+    @Test
+    public void sleepTest() throws InterruptedException {
+        run("Actor on virtual threads", new ActorGroup(VirtualThreads.newExecutor()), false, true);
+        run("BlockingActor", new ActorGroup(), true, true);
+    }
+}